@@ -1,10 +1,11 @@
-import { useState, useMemo } from 'react';
+import { useState, useMemo, useEffect } from 'react';
 import { useTranslation } from 'react-i18next';
 import { FiUser, FiMail, FiLock, FiEye, FiEyeOff } from 'react-icons/fi';
 import '../Login/LoginForm.scss';
 import { authApiUrl } from '../../../../api/config';
 
 type RegisterRequest = { username: string; email: string; password: string };
+type Availability = { username?: boolean; email?: boolean };
 
 type Props = {
   onGoLogin?: (e?: React.MouseEvent<HTMLAnchorElement>) => void;
@@ -15,6 +16,7 @@ export default function RegisterForm({ onGoLogin }: Props) {
 
   const registerEndpoint = authApiUrl('/auth/register');
   const resendEndpoint   = authApiUrl('/auth/verify-email/request');
+  const availabilityEndpoint = authApiUrl('/auth/availability');
 
   const [form, setForm] = useState<RegisterRequest>({ username: '', email: '', password: '' });
   const [showPwd, setShowPwd] = useState(false);
@@ -24,6 +26,31 @@ export default function RegisterForm({ onGoLogin }: Props) {
   const [lastRegisteredEmail, setLastRegisteredEmail] = useState<string | null>(null);
   const [resendInfo, setResendInfo] = useState<string | null>(null);
   const [resendLoading, setResendLoading] = useState(false);
+  const [available, setAvailable] = useState<Availability>({});
+
+  // Comprobación en vivo (sin pasar por el hash del registro); si falla o hay 429, decide el submit
+  useEffect(() => {
+    const username = form.username.trim();
+    const email = form.email.trim();
+    const params = new URLSearchParams();
+    if (username.length >= 3) params.set('username', username);
+    if (/^[^@\s]+@[^@\s]+$/.test(email)) params.set('email', email);
+    if (!params.toString()) { setAvailable({}); return; }
+
+    const ctrl = new AbortController();
+    const timer = setTimeout(async () => {
+      try {
+        const res = await fetch(`${availabilityEndpoint}?${params}`, {
+          headers: { Accept: 'application/json' },
+          signal: ctrl.signal,
+        });
+        setAvailable(res.ok ? await res.json() : {});
+      } catch {
+        if (!ctrl.signal.aborted) setAvailable({});
+      }
+    }, 400);
+    return () => { clearTimeout(timer); ctrl.abort(); };
+  }, [form.username, form.email, availabilityEndpoint]);
 
   const handleChange = (e: React.ChangeEvent<HTMLInputElement>) => {
     const { name, value } = e.target;
@@ -42,8 +69,10 @@ export default function RegisterForm({ onGoLogin }: Props) {
     if (!form.username.trim()) return t('usernameRequired') || 'El nombre de usuario es obligatorio';
     if (!form.email.trim()) return t('emailRequired') || 'El email es obligatorio';
     if (form.password.trim().length < 8) return t('passwordTooShort') || 'La contraseña debe tener al menos 8 caracteres';
+    if (available.username === false) return t('usernameTaken') || 'El nombre de usuario ya existe';
+    if (available.email === false) return t('emailTaken') || 'El email ya está registrado';
     return null;
-  }, [form.username, form.email, form.password, t]);
+  }, [form.username, form.email, form.password, available, t]);
 
   const canSubmit = useMemo(() => !clientError && !loading, [clientError, loading]);
 
@@ -147,9 +176,12 @@ export default function RegisterForm({ onGoLogin }: Props) {
             minLength={3}
             value={form.username}
             onChange={handleChange}
-            aria-invalid={!!(errorMsg && !form.username.trim())}
+            aria-invalid={!!(errorMsg && !form.username.trim()) || available.username === false}
           />
         </div>
+        {available.username === false && (
+          <small className="error" aria-live="polite">{t('usernameTaken') || 'El nombre de usuario ya existe'}</small>
+        )}
 
         <div className="pill-input">
           <span className="left-icon" aria-hidden><FiMail /></span>
@@ -162,9 +194,12 @@ export default function RegisterForm({ onGoLogin }: Props) {
             required
             value={form.email}
             onChange={handleChange}
-            aria-invalid={!!(errorMsg && !form.email.trim())}
+            aria-invalid={!!(errorMsg && !form.email.trim()) || available.email === false}
           />
         </div>
+        {available.email === false && (
+          <small className="error" aria-live="polite">{t('emailTaken') || 'El email ya está registrado'}</small>
+        )}
 
         <div className="pill-input">
           <span className="left-icon" aria-hidden><FiLock /></span>
@@ -0,0 +1,53 @@
+#!/usr/bin/env python3
+"""Compara dos ficheros JSON de JMH (-rf json) y marca las regresiones.
+
+    ./compare.py results/v1.0.0.json results/v1.1.0.json [--threshold 10]
+
+Sale con código 1 si alguna métrica empeora más que el umbral (en %), para usarlo en CI.
+"""
+import argparse
+import json
+import sys
+
+
+def load(path):
+    with open(path) as f:
+        data = json.load(f)
+    out = {}
+    for r in data:
+        params = ",".join(f"{k}={v}" for k, v in sorted((r.get("params") or {}).items()))
+        key = r["benchmark"] + (f"[{params}]" if params else "")
+        m = r["primaryMetric"]
+        out[key] = (r["mode"], m["score"], m["scoreUnit"])
+    return out
+
+
+def main():
+    ap = argparse.ArgumentParser()
+    ap.add_argument("baseline")
+    ap.add_argument("candidate")
+    ap.add_argument("--threshold", type=float, default=10.0, help="regresión máxima tolerada en %%")
+    args = ap.parse_args()
+
+    base, cand = load(args.baseline), load(args.candidate)
+    regressions = 0
+    for key in sorted(base.keys() & cand.keys()):
+        mode, b, unit = base[key]
+        _, c, _ = cand[key]
+        # thrpt: más es mejor; avgt/sample/ss: menos es mejor
+        change = (c - b) / b * 100 if b else 0.0
+        worse = -change if mode == "thrpt" else change
+        flag = "REGRESSION" if worse > args.threshold else ""
+        regressions += bool(flag)
+        print(f"{key:90s} {b:14.3f} -> {c:14.3f} {unit:8s} {change:+7.1f}% {flag}")
+
+    for key in sorted(base.keys() - cand.keys()):
+        print(f"{key:90s} (solo en baseline)")
+    for key in sorted(cand.keys() - base.keys()):
+        print(f"{key:90s} (nuevo)")
+
+    sys.exit(1 if regressions else 0)
+
+
+if __name__ == "__main__":
+    main()
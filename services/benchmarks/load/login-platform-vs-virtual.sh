@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Compara ms-auth /auth/login con hilos de plataforma y con hilos virtuales (APP_VIRTUAL_THREADS).
+#
+# Requisitos: docker compose con el stack del repo, `hey` (https://github.com/rakyll/hey) y un
+# usuario verificado en authdb cuyas credenciales se pasan por LOGIN_USER / LOGIN_PASSWORD.
+#
+#   LOGIN_USER=alice LOGIN_PASSWORD='Secret123' ./services/benchmarks/load/login-platform-vs-virtual.sh
+#
+# Variables opcionales: DURATION (30s), CONCURRENCY (200), BASE_URL (http://localhost:8081).
+# Todas las peticiones salen de una IP, así que el límite de login por IP se sube para medir BCrypt y no el 429
+# (el de la cuenta solo se gasta con contraseñas incorrectas).
+set -euo pipefail
+
+: "${LOGIN_USER:?LOGIN_USER requerido}"
+: "${LOGIN_PASSWORD:?LOGIN_PASSWORD requerido}"
+DURATION="${DURATION:-30s}"
+CONCURRENCY="${CONCURRENCY:-200}"
+BASE_URL="${BASE_URL:-http://localhost:8081}"
+OUT_DIR="${OUT_DIR:-services/benchmarks/target/load}"
+
+command -v hey >/dev/null || { echo "hey no está instalado" >&2; exit 1; }
+mkdir -p "$OUT_DIR"
+
+body=$(printf '{"usernameOrEmail":"%s","password":"%s"}' "$LOGIN_USER" "$LOGIN_PASSWORD")
+
+wait_healthy() {
+  for _ in $(seq 1 60); do
+    curl -fsS "$BASE_URL/actuator/health" >/dev/null 2>&1 && return 0
+    sleep 2
+  done
+  echo "ms-auth no arrancó" >&2; exit 1
+}
+
+for mode in false true; do
+  label=$([ "$mode" = true ] && echo virtual || echo platform)
+  echo "==> ms-auth con hilos ${label}"
+  # --build: con AOT el executor (plataforma/virtual) se fija al construir la imagen
+  APP_VIRTUAL_THREADS=$mode \
+  APP_RATE_LIMIT_LOGIN_IP_BURST=1000000 APP_RATE_LIMIT_LOGIN_IP_PER_MINUTE=1000000 \
+    docker compose up -d --build --force-recreate ms-auth >/dev/null
+  wait_healthy
+
+  # Calentamiento: JIT y pool de conexiones
+  hey -z 10s -c "$CONCURRENCY" -m POST -T application/json -d "$body" "$BASE_URL/auth/login" >/dev/null
+
+  hey -z "$DURATION" -c "$CONCURRENCY" -m POST -T application/json -d "$body" "$BASE_URL/auth/login" \
+    | tee "$OUT_DIR/login-${label}.txt"
+done
+
+echo
+echo "Resumen (${CONCURRENCY} conexiones, ${DURATION}):"
+for label in platform virtual; do
+  rps=$(awk '/Requests\/sec/ {print $2}' "$OUT_DIR/login-${label}.txt")
+  p99=$(awk '/99% in/ {print $3}' "$OUT_DIR/login-${label}.txt")
+  printf '  %-8s %10s req/s   p99 %ss\n' "$label" "$rps" "$p99"
+done
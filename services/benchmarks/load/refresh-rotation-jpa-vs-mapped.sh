@@ -0,0 +1,100 @@
+#!/usr/bin/env bash
+# Compara rotaciones/s de POST /auth/refresh con el almacén JPA (PostgreSQL) y con el fichero mapeado
+# (APP_REFRESH_STORE=jpa|mapped).
+#
+# Cada cliente hace login una vez y encadena refresh con el token que le devuelve la rotación anterior, así que
+# `hey` no sirve: el cliente es Python 3 sin dependencias. Requiere docker compose con el stack del repo y un
+# usuario verificado en authdb:
+#
+#   LOGIN_USER=alice LOGIN_PASSWORD='Secret123' ./services/benchmarks/load/refresh-rotation-jpa-vs-mapped.sh
+#
+# Variables opcionales: DURATION (30, segundos), CONCURRENCY (64), BASE_URL (http://localhost:8081).
+# El tope de sesiones se sube a CONCURRENCY para que los clientes no se expulsen entre sí, y el límite de login por
+# IP para que los logins de todos los clientes (desde una misma IP) no acaben en 429.
+set -euo pipefail
+
+: "${LOGIN_USER:?LOGIN_USER requerido}"
+: "${LOGIN_PASSWORD:?LOGIN_PASSWORD requerido}"
+DURATION="${DURATION:-30}"
+CONCURRENCY="${CONCURRENCY:-64}"
+BASE_URL="${BASE_URL:-http://localhost:8081}"
+OUT_DIR="${OUT_DIR:-services/benchmarks/target/load}"
+
+command -v python3 >/dev/null || { echo "python3 no está instalado" >&2; exit 1; }
+mkdir -p "$OUT_DIR"
+
+wait_healthy() {
+  for _ in $(seq 1 60); do
+    curl -fsS "$BASE_URL/actuator/health" >/dev/null 2>&1 && return 0
+    sleep 2
+  done
+  echo "ms-auth no arrancó" >&2; exit 1
+}
+
+# Imprime "<rotaciones/s> <p99 ms> <errores>"
+rotate() {
+  python3 - "$BASE_URL" "$LOGIN_USER" "$LOGIN_PASSWORD" "$1" "$CONCURRENCY" <<'PY'
+import json, sys, threading, time, urllib.request, urllib.error
+
+base, user, password, duration, workers = sys.argv[1], sys.argv[2], sys.argv[3], float(sys.argv[4]), int(sys.argv[5])
+
+def post(path, body):
+    req = urllib.request.Request(base + path, json.dumps(body).encode(), {"Content-Type": "application/json"})
+    with urllib.request.urlopen(req, timeout=10) as res:
+        return json.load(res)
+
+latencies, errors, lock = [], [0], threading.Lock()
+
+def login(deadline):
+    # Un fallo (429, 5xx, conexión) cuenta como error y se reintenta; None si se acaba el tiempo
+    while time.monotonic() < deadline:
+        try:
+            return post("/auth/login", {"usernameOrEmail": user, "password": password})["refreshToken"]
+        except urllib.error.URLError as e:
+            with lock: errors[0] += 1
+            retry = e.headers.get("Retry-After") if isinstance(e, urllib.error.HTTPError) else None
+            time.sleep(min(float(retry or 1), max(0.0, deadline - time.monotonic())))
+    return None
+
+def worker(deadline):
+    token = login(deadline)
+    mine = []
+    while token is not None and time.monotonic() < deadline:
+        start = time.perf_counter()
+        try:
+            token = post("/auth/refresh", {"refreshToken": token})["refreshToken"]
+            mine.append(time.perf_counter() - start)
+        except urllib.error.URLError:
+            with lock: errors[0] += 1
+            token = login(deadline)
+    with lock: latencies.extend(mine)
+
+deadline = time.monotonic() + duration
+threads = [threading.Thread(target=worker, args=(deadline,)) for _ in range(workers)]
+for t in threads: t.start()
+for t in threads: t.join()
+
+latencies.sort()
+p99 = latencies[int(len(latencies) * 0.99) - 1] * 1000 if latencies else 0
+print(f"{len(latencies) / duration:.1f} {p99:.1f} {errors[0]}")
+PY
+}
+
+for store in jpa mapped; do
+  echo "==> ms-auth con app.refresh.store=${store}"
+  APP_REFRESH_STORE=$store APP_JWT_MAX_SESSIONS=$CONCURRENCY \
+  APP_RATE_LIMIT_LOGIN_IP_BURST=1000000 APP_RATE_LIMIT_LOGIN_IP_PER_MINUTE=1000000 \
+    docker compose up -d --force-recreate ms-auth >/dev/null
+  wait_healthy
+
+  # Calentamiento: JIT y pool de conexiones
+  rotate 10 >/dev/null
+  rotate "$DURATION" | tee "$OUT_DIR/refresh-${store}.txt"
+done
+
+echo
+echo "Resumen (${CONCURRENCY} clientes, ${DURATION}s):"
+for store in jpa mapped; do
+  read -r rps p99 errs < "$OUT_DIR/refresh-${store}.txt"
+  printf '  %-7s %10s rotaciones/s   p99 %s ms   errores %s\n' "$store" "$rps" "$p99" "$errs"
+done
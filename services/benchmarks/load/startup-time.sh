@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Tiempo de arranque de cada servicio (docker compose up -> primer /actuator/health UP),
+# sin y con AOT + CDS (APP_FAST_STARTUP). Las imágenes deben estar construidas con los Dockerfile del repo.
+#
+#   ./services/benchmarks/load/startup-time.sh
+#
+# Variables opcionales: SERVICES ("ms-auth ms-hr ms-production"), RUNS (5), TIMEOUT_SECONDS (120).
+set -euo pipefail
+
+SERVICES="${SERVICES:-ms-auth ms-hr ms-production}"
+RUNS="${RUNS:-5}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+OUT_DIR="${OUT_DIR:-services/benchmarks/target/load}"
+
+mkdir -p "$OUT_DIR"
+out="$OUT_DIR/startup-time.txt"
+: > "$out"
+
+port_of() {
+  case "$1" in
+    ms-auth) echo 8081 ;;
+    ms-hr) echo 8082 ;;
+    ms-production) echo 8083 ;;
+    *) echo "servicio desconocido: $1" >&2; exit 1 ;;
+  esac
+}
+
+now_ms() { echo $(( $(date +%s%N) / 1000000 )); }
+
+# Milisegundos desde que se crea el contenedor hasta que /actuator/health responde UP
+measure() {
+  local svc=$1 fast=$2 port start
+  port=$(port_of "$svc")
+  docker compose stop "$svc" >/dev/null 2>&1 || true
+  start=$(now_ms)
+  APP_FAST_STARTUP=$fast docker compose up -d --no-deps --force-recreate "$svc" >/dev/null
+  while (( $(now_ms) - start < TIMEOUT_SECONDS * 1000 )); do
+    if curl -fsS "http://localhost:${port}/actuator/health" 2>/dev/null | grep -q '"status":"UP"'; then
+      echo $(( $(now_ms) - start ))
+      return 0
+    fi
+    sleep 0.1
+  done
+  echo "$svc no arrancó en ${TIMEOUT_SECONDS}s (APP_FAST_STARTUP=$fast)" >&2
+  exit 1
+}
+
+median() { sort -n | awk '{a[NR]=$1} END {print (NR % 2) ? a[(NR+1)/2] : int((a[NR/2] + a[NR/2+1]) / 2)}'; }
+
+docker compose up -d postgres >/dev/null
+
+for svc in $SERVICES; do
+  for fast in false true; do
+    label=$([ "$fast" = true ] && echo aot+cds || echo jar)
+    for _ in $(seq 1 "$RUNS"); do
+      ms=$(measure "$svc" "$fast")
+      echo "$svc $label $ms" | tee -a "$out"
+    done
+  done
+done
+
+echo
+echo "Mediana de ${RUNS} arranques (ms hasta health UP):"
+printf '  %-14s %10s %10s\n' servicio jar aot+cds
+for svc in $SERVICES; do
+  jar=$(awk -v s="$svc" '$1 == s && $2 == "jar" {print $3}' "$out" | median)
+  fast=$(awk -v s="$svc" '$1 == s && $2 == "aot+cds" {print $3}' "$out" | median)
+  printf '  %-14s %10s %10s\n' "$svc" "$jar" "$fast"
+done
+
+# Deja los servicios como estaban (modo rápido)
+docker compose up -d --no-deps --force-recreate $SERVICES >/dev/null
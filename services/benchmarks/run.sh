@@ -0,0 +1,20 @@
+#!/usr/bin/env bash
+# Ejecuta las suites JMH y guarda los resultados en JSON, uno por versión/commit:
+#   services/benchmarks/results/<git describe>.json
+#
+#   ./services/benchmarks/run.sh                      # todas las suites
+#   ./services/benchmarks/run.sh JwtServiceBenchmark  # filtro JMH (regex)
+#   ./services/benchmarks/compare.py results/a.json results/b.json
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/../.." && pwd)"
+OUT_DIR="$ROOT/services/benchmarks/results"
+VERSION="$(git -C "$ROOT" describe --tags --always --dirty 2>/dev/null || echo local)"
+
+mvn -B -q -DskipTests -f "$ROOT/pom.xml" -pl services/benchmarks -am package
+mkdir -p "$OUT_DIR"
+
+java -jar "$ROOT/services/benchmarks/target/benchmarks.jar" "$@" \
+  -rf json -rff "$OUT_DIR/$VERSION.json"
+
+echo "Resultados: $OUT_DIR/$VERSION.json"
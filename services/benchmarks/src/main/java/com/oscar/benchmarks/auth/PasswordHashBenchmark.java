@@ -0,0 +1,45 @@
+package com.oscar.benchmarks.auth;
+
+import com.oscar.proyecto.ms_auth.password.CalibratedPasswordEncoders;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code PasswordEncoder.matches} con el encoder de {@link CalibratedPasswordEncoders}: el paso más caro de
+ * {@code /auth/login}. Cada algoritmo con su coste mínimo (BCrypt 10, PBKDF2 310 000 iteraciones), sin
+ * calibrar, para que el resultado no dependa de la máquina. Se mide en tiempo medio por operación porque cada
+ * llamada cuesta milisegundos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+    @Param({"bcrypt:10", "pbkdf2:310000"})
+    public String algorithm;
+
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        String[] spec = algorithm.split(":");
+        encoder = CalibratedPasswordEncoders.create(spec[0], Integer.parseInt(spec[1]), 0);
+        hash = encoder.encode("Secret123");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("Secret123", hash);
+    }
+
+    @Benchmark
+    public boolean mismatch() {
+        return encoder.matches("Wrong123", hash);
+    }
+}
@@ -0,0 +1,48 @@
+package com.oscar.benchmarks.security;
+
+import com.oscar.shared.security.JwtAlgorithm;
+import com.oscar.shared.security.JwtTokenVerifier;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de emitir ({@code sign}) y verificar ({@code verify}) un access token completo con cada
+ * algoritmo admitido. {@code sign} reproduce {@code JwtService.generate}; {@code verify} es el
+ * {@link JwtTokenVerifier} sin caché, es decir, lo que paga un servicio con un token nuevo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAlgorithmBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtAlgorithm alg;
+    private KeyPair keys;
+    private JwtTokenVerifier verifier;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        alg = JwtAlgorithm.from(algorithm);
+        keys = JwtFixtures.keyPair(alg);
+        verifier = new JwtTokenVerifier(keys.getPublic(), JwtFixtures.ISSUER, null);
+        token = JwtFixtures.token(keys, alg);
+    }
+
+    @Benchmark
+    public String sign() {
+        return JwtFixtures.token(keys, alg);
+    }
+
+    @Benchmark
+    public Object verify() {
+        return verifier.verify(token);
+    }
+}
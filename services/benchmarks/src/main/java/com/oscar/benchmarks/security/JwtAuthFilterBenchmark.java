@@ -0,0 +1,90 @@
+package com.oscar.benchmarks.security;
+
+import com.oscar.shared.security.JwtKeySet;
+import com.oscar.shared.security.JwtTokenVerifier;
+import com.oscar.shared.security.JwtVerificationMetrics;
+import com.oscar.shared.security.MSJwtAuthFilter;
+import com.oscar.shared.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtro JWT de extremo a extremo con request/response simulados.
+ * <ul>
+ *   <li>{@code legacy}: filtro original (parser nuevo por petición, substring, stream de roles).</li>
+ *   <li>{@code lean}: pipeline actual sin caché (parser precompilado, authorities internadas).</li>
+ *   <li>{@code cached}: pipeline actual con caché de tokens verificados (camino habitual en producción).</li>
+ *   <li>{@code cachedMetered}: igual que {@code cached} más {@link JwtVerificationMetrics} (coste de la instrumentación).</li>
+ * </ul>
+ * Para ver bytes/op: {@code java -jar target/benchmarks.jar JwtAuthFilterBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    private LegacyJwtAuthFilter legacy;
+    private MSJwtAuthFilter lean;
+    private MSJwtAuthFilter cached;
+    private MSJwtAuthFilter cachedMetered;
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        KeyPair keys = JwtFixtures.rsaKeyPair();
+        String token = JwtFixtures.rs256Token(keys);
+
+        legacy = new LegacyJwtAuthFilter(keys.getPublic(), JwtFixtures.ISSUER);
+        lean = new MSJwtAuthFilter(new JwtTokenVerifier(keys.getPublic(), JwtFixtures.ISSUER, null));
+        cached = new MSJwtAuthFilter(new JwtTokenVerifier(keys.getPublic(), JwtFixtures.ISSUER, new VerifiedTokenCache(1024)));
+        cachedMetered = new MSJwtAuthFilter(new JwtTokenVerifier(new JwtKeySet(keys.getPublic()), JwtFixtures.ISSUER,
+                new VerifiedTokenCache(1024), new JwtVerificationMetrics(new SimpleMeterRegistry(), "benchmark")));
+
+        request = new MockHttpServletRequest("GET", "/api/hr/secure/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> { };
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) throws Exception {
+        legacy.doFilter(request, response, chain);
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void lean(Blackhole bh) throws Exception {
+        lean.doFilter(request, response, chain);
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void cached(Blackhole bh) throws Exception {
+        cached.doFilter(request, response, chain);
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void cachedMetered(Blackhole bh) throws Exception {
+        cachedMetered.doFilter(request, response, chain);
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+}
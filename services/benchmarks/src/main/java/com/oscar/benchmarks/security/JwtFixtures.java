@@ -0,0 +1,67 @@
+package com.oscar.benchmarks.security;
+
+import com.oscar.shared.security.JwtAlgorithm;
+import io.jsonwebtoken.Jwts;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/** Claves y tokens equivalentes a los que emite ms-auth, generados en memoria para los benchmarks. */
+final class JwtFixtures {
+
+    static final String ISSUER = "ms-auth";
+
+    static KeyPair rsaKeyPair() {
+        return keyPair(JwtAlgorithm.RS256);
+    }
+
+    /** Par de claves del tipo que usa cada algoritmo: RSA 2048, EC P-256 o Ed25519. */
+    static KeyPair keyPair(JwtAlgorithm algorithm) {
+        try {
+            return switch (algorithm) {
+                case RS256 -> {
+                    KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+                    gen.initialize(2048);
+                    yield gen.generateKeyPair();
+                }
+                case ES256 -> {
+                    KeyPairGenerator gen = KeyPairGenerator.getInstance("EC");
+                    gen.initialize(new ECGenParameterSpec("secp256r1"));
+                    yield gen.generateKeyPair();
+                }
+                case EdDSA -> KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+            };
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String rs256Token(KeyPair keys) {
+        return token(keys, JwtAlgorithm.RS256);
+    }
+
+    // aud como cadena, igual que los tokens de ms-auth (audience().single() solo está deprecado en favor del array)
+    @SuppressWarnings("deprecation")
+    static String token(KeyPair keys, JwtAlgorithm algorithm) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .header().add("typ", "JWT").and()
+                .subject("alice")
+                .issuer(ISSUER)
+                .audience().single("api")
+                .id(UUID.randomUUID().toString())
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plusSeconds(3600)))
+                .claim("uid", 1L)
+                .claim("roles", List.of("USER", "HR"))
+                .signWith(keys.getPrivate(), algorithm.signature())
+                .compact();
+    }
+
+    private JwtFixtures() {}
+}
@@ -0,0 +1,94 @@
+package com.oscar.benchmarks.security;
+
+import com.oscar.proyecto.ms_auth.jwt.JwtService;
+import com.oscar.shared.security.Jwks;
+import com.oscar.shared.security.JwtAlgorithm;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwtService} real de ms-auth con claves en memoria: {@code generate} es lo que paga cada
+ * {@code /auth/login} y {@code /auth/refresh}; {@code parseClaims} es la validación local de ms-auth.
+ * {@code generateWithBuilder} es la emisión anterior con el builder genérico de jjwt, como referencia
+ * (con {@code -prof gc} se ve también la diferencia en bytes por token).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtService jwtService;
+    private Map<String, Object> claims;
+    private String token;
+    private JwtAlgorithm alg;
+    private KeyPair keys;
+    private String keyId;
+
+    @Setup
+    public void setUp() {
+        alg = JwtAlgorithm.from(algorithm);
+        keys = JwtFixtures.keyPair(alg);
+        keyId = Jwks.thumbprint(keys.getPublic());
+        jwtService = new JwtService(
+                pem("PRIVATE KEY", keys.getPrivate().getEncoded()),
+                pem("PUBLIC KEY", keys.getPublic().getEncoded()),
+                60, JwtFixtures.ISSUER, "api", algorithm, "", new String[0], new DefaultResourceLoader());
+        claims = Map.of("uid", 1L);
+        token = jwtService.generate("alice", claims);
+    }
+
+    @Benchmark
+    public String generate() {
+        return jwtService.generate("alice", claims);
+    }
+
+    // Mismo token que JwtService.generateWithBuilder: aud como cadena, por eso audience().single()
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String generateWithBuilder() {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .header()
+                    .add("typ", "JWT")
+                    .keyId(keyId)
+                    .and()
+                .subject("alice")
+                .issuer(JwtFixtures.ISSUER)
+                .audience().single("api")
+                .id(UUID.randomUUID().toString())
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plusSeconds(3600)))
+                .claims(claims)
+                .signWith(keys.getPrivate(), alg.signature())
+                .compact();
+    }
+
+    @Benchmark
+    public Object parseClaims() {
+        return jwtService.parseClaims(token);
+    }
+
+    private static ByteArrayResource pem(String type, byte[] der) {
+        String pem = "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+        return new ByteArrayResource(pem.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,71 @@
+package com.oscar.benchmarks.security;
+
+import com.oscar.proyecto.ms_auth.token.TokenCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenCodec} frente a lo que había antes en cada servicio de tokens: {@code MessageDigest.getInstance}
+ * en cada hash y un {@code SecureRandom} compartido por todos los hilos. Se mide con 1, 8 y 32 hilos
+ * ({@code T1}, {@code T8}, {@code T32}) para ver cómo escala cada uno con logins concurrentes.
+ * <p>
+ * {@code hashInto} escribe en un array del hilo: con {@code -prof gc} debe dar 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class TokenCodecBenchmark {
+
+    private static final SecureRandom SHARED_RANDOM = new SecureRandom();
+
+    private final String plain = TokenCodec.randomToken(64);
+    private final byte[] hash = new byte[TokenCodec.HASH_LENGTH];
+
+    @Benchmark
+    public String legacyToken() {
+        byte[] bytes = new byte[64];
+        SHARED_RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    @Benchmark
+    public String token() {
+        return TokenCodec.randomToken(64);
+    }
+
+    @Benchmark
+    public String legacyHash() throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] digest = md.digest(plain.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    @Benchmark
+    public String hash() {
+        return TokenCodec.sha256Url(plain);
+    }
+
+    @Benchmark
+    public byte[] hashInto() {
+        TokenCodec.sha256Url(plain, hash, 0);
+        return hash;
+    }
+
+    @Threads(1)
+    public static class T1 extends TokenCodecBenchmark {}
+
+    @Threads(8)
+    public static class T8 extends TokenCodecBenchmark {}
+
+    @Threads(32)
+    public static class T32 extends TokenCodecBenchmark {}
+}
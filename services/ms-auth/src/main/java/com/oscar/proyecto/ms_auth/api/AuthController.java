@@ -1,8 +1,12 @@
 package com.oscar.proyecto.ms_auth.api;
 
 import com.oscar.proyecto.ms_auth.api.dto.*;
+import com.oscar.proyecto.ms_auth.authz.AuthorizationService;
+import com.oscar.proyecto.ms_auth.exception.InvalidCredentialsException;
 import com.oscar.proyecto.ms_auth.jwt.JwtService;
+import com.oscar.proyecto.ms_auth.ratelimit.CredentialThrottle;
 import com.oscar.proyecto.ms_auth.token.RefreshTokenService;
+import com.oscar.proyecto.ms_auth.user.LoginUser;
 import com.oscar.proyecto.ms_auth.user.User;
 import com.oscar.proyecto.ms_auth.user.UserService;
 import com.oscar.proyecto.ms_auth.password.PasswordResetService;
@@ -12,13 +16,12 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Map;
-
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
@@ -28,17 +31,23 @@ public class AuthController {
     private final RefreshTokenService refreshTokenService;
     private final PasswordResetService passwordResetService;
     private final EmailVerificationService emailVerificationService;
+    private final AuthorizationService authorization;
+    private final CredentialThrottle throttle;
 
     public AuthController(UserService userService,
                           JwtService jwtService,
                           RefreshTokenService refreshTokenService,
                           PasswordResetService passwordResetService,
-                          EmailVerificationService emailVerificationService) {
+                          EmailVerificationService emailVerificationService,
+                          AuthorizationService authorization,
+                          CredentialThrottle throttle) {
         this.userService = userService;
         this.jwtService = jwtService;
         this.refreshTokenService = refreshTokenService;
         this.passwordResetService = passwordResetService;
         this.emailVerificationService = emailVerificationService;
+        this.authorization = authorization;
+        this.throttle = throttle;
     }
 
     @Operation(
@@ -115,19 +124,28 @@ public class AuthController {
                             description = "Login exitoso",
                             content = @Content(schema = @Schema(implementation = TokenResponse.class))
                     ),
-                    @ApiResponse(responseCode = "401", description = "Credenciales inválidas")
+                    @ApiResponse(responseCode = "401", description = "Credenciales inválidas"),
+                    @ApiResponse(responseCode = "429", description = "RATE_LIMITED por IP o cuenta (con Retry-After)")
             }
     )
     @PostMapping("/login")
-    public ResponseEntity<TokenResponse> login(@Valid @RequestBody LoginRequest request) {
-        var user = userService.authenticate(request.usernameOrEmail(), request.password());
+    public ResponseEntity<TokenResponse> login(@Valid @RequestBody LoginRequest request, HttpServletRequest http) {
+        throttle.check(CredentialThrottle.Endpoint.LOGIN, http, request.usernameOrEmail());
+        final LoginUser user;
+        try {
+            user = userService.authenticate(request.usernameOrEmail(), request.password());
+        } catch (InvalidCredentialsException e) {
+            throttle.failed(CredentialThrottle.Endpoint.LOGIN, request.usernameOrEmail());
+            throw e;
+        }
 
         String accessToken = jwtService.generate(
-                user.getUsername(),
-                Map.of("uid", user.getId())
+                user.username(),
+                authorization.accessTokenClaims(user.id())
         );
 
-        RefreshTokenService.IssuedRefresh issued = refreshTokenService.create(user);
+        RefreshTokenService.IssuedRefresh issued =
+                refreshTokenService.create(new RefreshTokenService.UserRef(user.id(), user.username()));
 
         return ResponseEntity.ok(new TokenResponse(
                 "Bearer",
@@ -170,7 +188,7 @@ public class AuthController {
 
             String newAccessToken = jwtService.generate(
                     result.user().username(),
-                    Map.of("uid", result.user().id())
+                    authorization.accessTokenClaims(result.user().id())
             );
 
             return ResponseEntity.ok(new TokenResponse(
@@ -258,11 +276,14 @@ public class AuthController {
                     )
             ),
             responses = {
-                    @ApiResponse(responseCode = "204", description = "Si existe, se envían instrucciones por email")
+                    @ApiResponse(responseCode = "204", description = "Si existe, se envían instrucciones por email"),
+                    @ApiResponse(responseCode = "429", description = "RATE_LIMITED por IP o email (con Retry-After)")
             }
     )
     @PostMapping("/forgot-password")
-    public ResponseEntity<Void> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request) {
+    public ResponseEntity<Void> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request,
+                                               HttpServletRequest http) {
+        throttle.check(CredentialThrottle.Endpoint.FORGOT_PASSWORD, http, request.email());
         passwordResetService.requestReset(request.email());
         return ResponseEntity.noContent().build();
     }
@@ -0,0 +1,94 @@
+package com.oscar.proyecto.ms_auth.authz;
+
+import com.oscar.shared.security.Permission;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Gestión de roles y asignaciones. Requiere el permiso {@link Permission#USERS_ADMIN}. */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final AuthorizationService authz;
+
+    public AdminController(AuthorizationService authz) {
+        this.authz = authz;
+    }
+
+    @Operation(summary = "Catálogo de permisos con su bit en el claim authz")
+    @GetMapping("/permissions")
+    public List<PermissionView> permissions() {
+        AuthorizationService.requireAdmin();
+        return Arrays.stream(Permission.values()).map(p -> new PermissionView(p.name(), p.bit())).toList();
+    }
+
+    @Operation(summary = "Listar roles")
+    @GetMapping("/roles")
+    public List<AuthorizationService.RoleView> roles() {
+        AuthorizationService.requireAdmin();
+        return authz.listRoles();
+    }
+
+    @Operation(
+            summary = "Crear rol",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Rol creado"),
+                    @ApiResponse(responseCode = "400", description = "ROLE_ALREADY_EXISTS / UNKNOWN_PERMISSION")
+            }
+    )
+    @PostMapping("/roles")
+    public AuthorizationService.RoleView createRole(@Valid @RequestBody CreateRoleRequest body) {
+        AuthorizationService.requireAdmin();
+        return authz.createRole(body.name(), body.permissions());
+    }
+
+    @Operation(summary = "Reemplazar los permisos de un rol (revoca los access tokens de sus miembros)")
+    @PutMapping("/roles/{name}/permissions")
+    public AuthorizationService.RoleView updateRole(@PathVariable("name") String name,
+                                                    @Valid @RequestBody PermissionsRequest body) {
+        AuthorizationService.requireAdmin();
+        return authz.updateRolePermissions(name, body.permissions());
+    }
+
+    @Operation(summary = "Eliminar rol (revoca los access tokens de sus miembros)")
+    @DeleteMapping("/roles/{name}")
+    public ResponseEntity<Void> deleteRole(@PathVariable("name") String name) {
+        AuthorizationService.requireAdmin();
+        authz.deleteRole(name);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Roles de un usuario")
+    @GetMapping("/users/{id}/roles")
+    public List<String> userRoles(@PathVariable("id") Long id) {
+        AuthorizationService.requireAdmin();
+        return authz.rolesOfUser(id);
+    }
+
+    @Operation(summary = "Reemplazar los roles de un usuario (revoca sus access tokens vigentes)")
+    @PutMapping("/users/{id}/roles")
+    public List<String> setUserRoles(@PathVariable("id") Long id, @Valid @RequestBody UserRolesRequest body) {
+        AuthorizationService.requireAdmin();
+        return authz.setUserRoles(id, body.roles());
+    }
+
+    public record PermissionView(String name, int bit) {}
+
+    public record CreateRoleRequest(
+            @NotBlank @Size(max = 50) String name,
+            @NotNull List<@NotBlank String> permissions
+    ) {}
+
+    public record PermissionsRequest(@NotNull List<@NotBlank String> permissions) {}
+
+    public record UserRolesRequest(@NotNull List<@NotBlank String> roles) {}
+}
@@ -0,0 +1,167 @@
+package com.oscar.proyecto.ms_auth.authz;
+
+import com.oscar.proyecto.ms_auth.exception.ForbiddenOperationException;
+import com.oscar.proyecto.ms_auth.exception.RoleAlreadyExistsException;
+import com.oscar.proyecto.ms_auth.exception.RoleNotFoundException;
+import com.oscar.proyecto.ms_auth.exception.UnknownPermissionException;
+import com.oscar.proyecto.ms_auth.exception.UserNotFoundException;
+import com.oscar.proyecto.ms_auth.revocation.TokenEpochService;
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import com.oscar.shared.security.Permission;
+import com.oscar.shared.security.PermissionBits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Roles y permisos de ms-auth.
+ * <p>
+ * Los permisos efectivos de un usuario se emiten en el access token como bitset ({@code authz},
+ * ver {@link PermissionBits}). Como el token no se reemite al cambiar una asignación, cualquier cambio
+ * que afecte a un usuario revoca sus access tokens vigentes: el cliente renueva con su refresh token
+ * y recibe los permisos nuevos.
+ */
+@Service
+public class AuthorizationService {
+
+    /** Rol con todos los permisos que se crea al arrancar si no existe. */
+    public static final String ADMIN_ROLE = "ADMIN";
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationService.class);
+
+    private final RoleRepository roles;
+    private final UserRepository users;
+    private final TokenEpochService tokenEpochs;
+    private final List<String> bootstrapAdmins;
+
+    public AuthorizationService(RoleRepository roles,
+                                UserRepository users,
+                                TokenEpochService tokenEpochs,
+                                @Value("${app.authz.bootstrap-admins:}") String[] bootstrapAdmins) {
+        this.roles = roles;
+        this.users = users;
+        this.tokenEpochs = tokenEpochs;
+        this.bootstrapAdmins = Arrays.stream(bootstrapAdmins).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    public record RoleView(String name, List<Permission> permissions) {
+        static RoleView of(Role r) {
+            return new RoleView(r.getName(), r.getPermissions().stream().sorted().toList());
+        }
+    }
+
+    /**
+     * Comprueba que el usuario de la petición actual tiene {@link Permission#USERS_ADMIN}; si no, lanza
+     * {@link ForbiddenOperationException} (403). Para los endpoints de administración de cualquier paquete.
+     */
+    public static void requireAdmin() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.getAuthorities().contains(Permission.USERS_ADMIN.authority())) {
+            throw new ForbiddenOperationException();
+        }
+    }
+
+    /** Claims personalizados del access token: {@code uid} y, si tiene alguno, sus permisos. */
+    @Transactional(readOnly = true)
+    public Map<String, Object> accessTokenClaims(long userId) {
+        long bits = PermissionBits.of(roles.findPermissionsOfUser(userId));
+        return bits == 0
+                ? Map.of("uid", userId)
+                : Map.of("uid", userId, "authz", PermissionBits.encode(bits));
+    }
+
+    @Transactional(readOnly = true)
+    public List<RoleView> listRoles() {
+        return roles.findAllByOrderByNameAsc().stream().map(RoleView::of).toList();
+    }
+
+    @Transactional
+    public RoleView createRole(String name, Collection<String> permissions) {
+        if (roles.existsByName(name)) throw new RoleAlreadyExistsException();
+        Role role = new Role(name);
+        role.setPermissions(parse(permissions));
+        return RoleView.of(roles.save(role));
+    }
+
+    @Transactional
+    public RoleView updateRolePermissions(String name, Collection<String> permissions) {
+        Role role = roles.findByName(name).orElseThrow(RoleNotFoundException::new);
+        Set<Permission> next = parse(permissions);
+        if (!next.equals(role.getPermissions())) {
+            role.setPermissions(next);
+            revokeMembers(role);
+        }
+        return RoleView.of(role);
+    }
+
+    @Transactional
+    public void deleteRole(String name) {
+        Role role = roles.findByName(name).orElseThrow(RoleNotFoundException::new);
+        revokeMembers(role);
+        roles.deleteAssignments(role.getId());
+        roles.delete(role);
+    }
+
+    @Transactional(readOnly = true)
+    public List<String> rolesOfUser(Long userId) {
+        User user = users.findById(userId).orElseThrow(UserNotFoundException::new);
+        return user.getRoles().stream().map(Role::getName).sorted().toList();
+    }
+
+    @Transactional
+    public List<String> setUserRoles(Long userId, Collection<String> roleNames) {
+        User user = users.findById(userId).orElseThrow(UserNotFoundException::new);
+        Set<String> wanted = new HashSet<>(roleNames);
+        List<Role> found = roles.findByNameIn(wanted);
+        if (found.size() != wanted.size()) throw new RoleNotFoundException();
+
+        if (!new HashSet<>(found).equals(user.getRoles())) {
+            user.getRoles().clear();
+            user.getRoles().addAll(found);
+            tokenEpochs.revokeAccessTokens(userId);
+        }
+        return found.stream().map(Role::getName).sorted().toList();
+    }
+
+    /** Garantiza el rol {@value #ADMIN_ROLE} con el catálogo completo y lo asigna a {@code app.authz.bootstrap-admins}. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void bootstrap() {
+        Role admin = roles.findByName(ADMIN_ROLE).orElseGet(() -> roles.save(new Role(ADMIN_ROLE)));
+        if (!admin.getPermissions().containsAll(EnumSet.allOf(Permission.class))) {
+            admin.setPermissions(EnumSet.allOf(Permission.class));
+        }
+        for (String username : bootstrapAdmins) {
+            users.findByUsername(username).ifPresentOrElse(
+                    u -> {
+                        if (u.getRoles().add(admin)) tokenEpochs.revokeAccessTokens(u.getId());
+                    },
+                    () -> log.warn("Bootstrap admin '{}' does not exist", username));
+        }
+    }
+
+    private void revokeMembers(Role role) {
+        tokenEpochs.revokeAccessTokens(roles.findUserIdsByRoleId(role.getId()));
+    }
+
+    private static Set<Permission> parse(Collection<String> names) {
+        Set<Permission> out = EnumSet.noneOf(Permission.class);
+        for (String n : names) {
+            try {
+                out.add(Permission.valueOf(n));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new UnknownPermissionException();
+            }
+        }
+        return out;
+    }
+}
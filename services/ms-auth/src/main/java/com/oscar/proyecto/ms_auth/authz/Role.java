@@ -0,0 +1,47 @@
+package com.oscar.proyecto.ms_auth.authz;
+
+import com.oscar.shared.security.Permission;
+import jakarta.persistence.*;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Rol asignable a usuarios. Los permisos se guardan por nombre en {@code role_permissions}, así que
+ * el bit de cada permiso (formato del token) puede evolucionar sin migrar datos.
+ */
+@Entity
+@Table(name = "roles", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_roles_name", columnNames = "name")
+})
+public class Role {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String name;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "role_permissions", joinColumns = @JoinColumn(name = "role_id"))
+    @Enumerated(EnumType.STRING)
+    @Column(name = "permission", nullable = false, length = 50)
+    private Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+
+    protected Role() { }
+
+    public Role(String name) {
+        this.name = name;
+    }
+
+    public Long getId() { return id; }
+
+    public String getName() { return name; }
+
+    public Set<Permission> getPermissions() { return permissions; }
+    public void setPermissions(Set<Permission> permissions) {
+        this.permissions.clear();
+        this.permissions.addAll(permissions);
+    }
+}
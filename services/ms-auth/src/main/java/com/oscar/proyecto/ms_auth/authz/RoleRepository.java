@@ -0,0 +1,33 @@
+package com.oscar.proyecto.ms_auth.authz;
+
+import com.oscar.shared.security.Permission;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface RoleRepository extends JpaRepository<Role, Long> {
+
+    Optional<Role> findByName(String name);
+
+    boolean existsByName(String name);
+
+    List<Role> findByNameIn(Collection<String> names);
+
+    List<Role> findAllByOrderByNameAsc();
+
+    /** Permisos efectivos del usuario (unión de los de sus roles) en una sola consulta. */
+    @Query("select distinct p from User u join u.roles r join r.permissions p where u.id = :userId")
+    List<Permission> findPermissionsOfUser(@Param("userId") Long userId);
+
+    @Query(value = "select user_id from user_roles where role_id = :roleId", nativeQuery = true)
+    List<Long> findUserIdsByRoleId(@Param("roleId") Long roleId);
+
+    @Modifying
+    @Query(value = "delete from user_roles where role_id = :roleId", nativeQuery = true)
+    int deleteAssignments(@Param("roleId") Long roleId);
+}
@@ -0,0 +1,195 @@
+package com.oscar.proyecto.ms_auth.cleanup;
+
+import com.oscar.proyecto.ms_auth.token.RefreshTokenPartitions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limpieza de tokens caducados: {@code refresh_tokens}, {@code password_reset_tokens} y
+ * {@code email_verification_tokens}.
+ * <p>
+ * Cada tabla se recorre por {@code id} ascendente (keyset) en lotes de {@code app.cleanup.batch-size} filas,
+ * cada lote en su propia transacción corta: nunca se bloquean más filas que las de un lote ni se acumula
+ * un borrado enorme en una sola transacción. En {@code refresh_tokens} el mismo lote descuenta los tokens
+ * borrados de {@code refresh_session_counts}; en modo particionado esa tabla se salta, sus caducados se van
+ * con la partición ({@link RefreshTokenPartitions}).
+ * <p>
+ * Todas las réplicas programan el mismo cron; con PostgreSQL un cerrojo consultivo de sesión
+ * ({@code pg_try_advisory_lock}) deja pasar solo a una y las demás terminan sin hacer nada.
+ * <p>
+ * Métricas: {@code auth.token.cleanup.deleted} (filas borradas) y {@code auth.token.cleanup.duration}
+ * (tiempo por tabla), ambas con la etiqueta {@code table}, y {@code auth.token.cleanup.skipped}
+ * (ejecuciones cedidas a otra instancia).
+ */
+@Component
+public class TokenCleanup {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenCleanup.class);
+
+    /** Clave del cerrojo consultivo de la limpieza. */
+    static final long CLEANUP_LOCK = 0x746f_6b63_6c6eL; // "tokcln"
+
+    static final String REFRESH_TOKENS = "refresh_tokens";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final RefreshTokenPartitions partitions;
+    private final int batchSize;
+    private final boolean advisoryLock;
+    private final List<Target> targets;
+    private final Counter skipped;
+
+    public TokenCleanup(DataSource dataSource,
+                        JdbcTemplate jdbc,
+                        PlatformTransactionManager transactionManager,
+                        RefreshTokenPartitions partitions,
+                        MeterRegistry meters,
+                        @Value("${app.cleanup.batch-size:1000}") int batchSize,
+                        @Value("${spring.datasource.url:}") String datasourceUrl) {
+        if (batchSize < 1) throw new IllegalArgumentException("app.cleanup.batch-size must be positive");
+        this.dataSource = dataSource;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.partitions = partitions;
+        this.batchSize = batchSize;
+        // Los cerrojos consultivos son de PostgreSQL; con otra BD (H2 en tests) hay una sola instancia
+        this.advisoryLock = datasourceUrl.startsWith("jdbc:postgresql:");
+        this.targets = List.of(
+                new Target(REFRESH_TOKENS, true, meters),
+                new Target("password_reset_tokens", false, meters),
+                new Target("email_verification_tokens", false, meters));
+        this.skipped = meters.counter("auth.token.cleanup.skipped");
+    }
+
+    /** Limpieza automática cada hora. */
+    @Scheduled(cron = "0 0 * * * *")
+    public void clean() {
+        if (!advisoryLock) {
+            cleanAll();
+            return;
+        }
+        // El cerrojo es de sesión: se mantiene en una conexión propia mientras los lotes usan otras
+        try (Connection lock = dataSource.getConnection()) {
+            if (!lockQuery(lock, "select pg_try_advisory_lock(?)")) {
+                skipped.increment();
+                log.debug("TokenCleanup: otra instancia está haciendo la limpieza");
+                return;
+            }
+            try {
+                cleanAll();
+            } finally {
+                lockQuery(lock, "select pg_advisory_unlock(?)");
+            }
+        } catch (SQLException e) {
+            throw jdbc.getExceptionTranslator().translate("TokenCleanup advisory lock", null, e);
+        }
+    }
+
+    private void cleanAll() {
+        Instant now = Instant.now();
+        for (Target target : targets) {
+            if (target.countsSessions && partitions.isEnabled()) continue;
+            long start = System.nanoTime();
+            long removed = cleanTable(target, now);
+            target.duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            target.deleted.increment(removed);
+            if (removed > 0) {
+                log.info("TokenCleanup: eliminados {} tokens caducados de {}", removed, target.table);
+            }
+        }
+    }
+
+    private long cleanTable(Target target, Instant now) {
+        long removed = 0;
+        long after = 0;
+        while (true) {
+            long from = after;
+            Batch batch = tx.execute(status -> deleteBatch(target, Timestamp.from(now), from));
+            removed += batch.deleted;
+            if (batch.selected < batchSize) return removed;
+            after = batch.lastId;
+        }
+    }
+
+    /**
+     * Un lote: bloquea las siguientes {@code batchSize} filas caducadas con {@code id > after} y borra justo
+     * esas, por su lista de ids; por rango se llevaría también filas del hueco que la consulta no vio (y no
+     * descontaría). Un logout concurrente sobre una de ellas espera al commit y ya no la encuentra, así que
+     * el contador de sesiones no se descuenta dos veces.
+     */
+    private Batch deleteBatch(Target target, Timestamp now, long after) {
+        List<long[]> rows = jdbc.query(
+                "select id, user_id from " + target.table
+                        + " where id > ? and expires_at < ? order by id limit ? for update",
+                (rs, i) -> new long[] { rs.getLong(1), rs.getLong(2) },
+                after, now, batchSize);
+        if (rows.isEmpty()) return new Batch(0, 0, after);
+
+        long lastId = rows.get(rows.size() - 1)[0];
+        Long[] ids = new Long[rows.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = rows.get(i)[0];
+        int deleted = jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement("delete from " + target.table + " where id = any(?)");
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        });
+
+        if (target.countsSessions) {
+            Map<Long, Integer> perUser = new HashMap<>();
+            for (long[] row : rows) perUser.merge(row[1], 1, Integer::sum);
+            List<Object[]> args = new ArrayList<>(perUser.size());
+            perUser.forEach((userId, n) -> args.add(new Object[] { n, userId }));
+            jdbc.batchUpdate(
+                    "update refresh_session_counts set sessions = greatest(sessions - ?, 0) where user_id = ?", args);
+        }
+        return new Batch(rows.size(), deleted, lastId);
+    }
+
+    private static boolean lockQuery(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, CLEANUP_LOCK);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private record Batch(int selected, int deleted, long lastId) {}
+
+    private static final class Target {
+        final String table;
+        final boolean countsSessions;
+        final Counter deleted;
+        final Timer duration;
+
+        Target(String table, boolean countsSessions, MeterRegistry meters) {
+            this.table = table;
+            this.countsSessions = countsSessions;
+            this.deleted = meters.counter("auth.token.cleanup.deleted", "table", table);
+            this.duration = meters.timer("auth.token.cleanup.duration", "table", table);
+        }
+    }
+}
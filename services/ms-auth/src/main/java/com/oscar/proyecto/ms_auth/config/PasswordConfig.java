@@ -1,14 +1,31 @@
 package com.oscar.proyecto.ms_auth.config;
 
+import com.oscar.proyecto.ms_auth.password.BoundedPasswordEncoder;
+import com.oscar.proyecto.ms_auth.password.CalibratedPasswordEncoders;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordConfig {
+
+    /**
+     * Hash calibrado ({@link CalibratedPasswordEncoders}) en un pool acotado fuera de los hilos de Tomcat;
+     * {@code threads = 0} usa un hilo por CPU.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry meters,
+            @Value("${app.password.algorithm:bcrypt}") String algorithm,
+            @Value("${app.password.cost:0}") int cost,
+            @Value("${app.password.target-millis:250}") long targetMillis,
+            @Value("${app.password.hashing.threads:0}") int threads,
+            @Value("${app.password.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${app.password.hashing.retry-after-seconds:1}") int retryAfterSeconds) {
+        return new BoundedPasswordEncoder(CalibratedPasswordEncoders.create(algorithm, cost, targetMillis),
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                queueCapacity, retryAfterSeconds, meters);
     }
 }
@@ -2,6 +2,7 @@ package com.oscar.proyecto.ms_auth.exception;
 
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -45,6 +46,20 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.UNAUTHORIZED, ex.getMessage());
     }
 
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Map<String, String>> handleHashingBusy(PasswordHashingBusyException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Integer.toString(ex.getRetryAfterSeconds()))
+                .body(Map.of("code", ex.getMessage()));
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    public ResponseEntity<Map<String, String>> handleRateLimited(RateLimitedException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(Map.of("code", ex.getMessage()));
+    }
+
     @ExceptionHandler(CurrentPasswordIncorrectException.class)
     public ResponseEntity<Map<String, String>> handleCurrentPwd(CurrentPasswordIncorrectException ex) {
         System.out.println(ex.getClass().getName() + ": " + ex.getMessage());
@@ -64,6 +79,18 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.FORBIDDEN, ex.getMessage()); // "FORBIDDEN"
     }
 
+    @ExceptionHandler(RoleNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleRoleNotFound(RoleNotFoundException ex) {
+        log.debug("{}: {}", ex.getClass().getName(), ex.getMessage());
+        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage()); // "ROLE_NOT_FOUND"
+    }
+
+    @ExceptionHandler({RoleAlreadyExistsException.class, UnknownPermissionException.class})
+    public ResponseEntity<Map<String, String>> handleRoleBadRequest(RuntimeException ex) {
+        log.debug("{}: {}", ex.getClass().getName(), ex.getMessage());
+        return buildResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
     // Si queda algún ResponseStatusException suelto, respétalo (evita que caiga al 500 genérico)
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<Map<String, String>> handleRse(ResponseStatusException ex) {
@@ -0,0 +1,21 @@
+package com.oscar.proyecto.ms_auth.exception;
+
+/** Cola de hashing de contraseñas llena: se responde 429 con {@code Retry-After}. */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public PasswordHashingBusyException(int retryAfterSeconds) {
+        super("TOO_MANY_REQUESTS");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,21 @@
+package com.oscar.proyecto.ms_auth.exception;
+
+/** Límite de peticiones superado ({@code TokenBucketLimiter}): se responde 429 con {@code Retry-After}. */
+public class RateLimitedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitedException(long retryAfterSeconds) {
+        super("RATE_LIMITED");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
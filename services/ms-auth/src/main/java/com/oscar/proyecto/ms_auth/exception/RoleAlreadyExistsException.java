@@ -0,0 +1,5 @@
+package com.oscar.proyecto.ms_auth.exception;
+
+public class RoleAlreadyExistsException extends RuntimeException {
+    public RoleAlreadyExistsException() { super("ROLE_ALREADY_EXISTS"); }
+}
@@ -0,0 +1,5 @@
+package com.oscar.proyecto.ms_auth.exception;
+
+public class RoleNotFoundException extends RuntimeException {
+    public RoleNotFoundException() { super("ROLE_NOT_FOUND"); }
+}
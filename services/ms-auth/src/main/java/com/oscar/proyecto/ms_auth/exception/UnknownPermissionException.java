@@ -0,0 +1,5 @@
+package com.oscar.proyecto.ms_auth.exception;
+
+public class UnknownPermissionException extends RuntimeException {
+    public UnknownPermissionException() { super("UNKNOWN_PERMISSION"); }
+}
@@ -0,0 +1,345 @@
+package com.oscar.proyecto.ms_auth.jwt;
+
+import com.oscar.shared.security.JwtAlgorithm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emisión de access tokens sin el builder genérico de jjwt, para el esquema fijo de ms-auth.
+ * <p>
+ * La cabecera ({@code alg}, {@code typ}, {@code kid}) no cambia entre tokens y se codifica una vez.
+ * Los claims se escriben en un buffer reutilizado y se codifican en base64url en el mismo buffer de salida,
+ * y la {@link Signature} se inicializa una vez. Ese estado se reparte en franjas (el doble de CPUs), como en
+ * {@code TokenCodec}, y no en {@code ThreadLocal}: con hilos virtuales cada petición tendría que crear e
+ * inicializar su propia {@link Signature}. Cada hilo usa siempre la misma franja y la bloquea mientras firma;
+ * es trabajo de CPU, así que fijar el hilo portador no importa. Por token solo se reservan la firma JCA y el
+ * {@code String} final.
+ * <p>
+ * El resultado es un JWS compacto normal: lo verifica cualquier parser, incluido el de
+ * {@code JwtTokenVerifier}.
+ */
+final class AccessTokenMinter {
+
+    /** Claims que escribe el propio minter: no se pueden sobrescribir con {@code extra}. */
+    static final Set<String> REGISTERED = Set.of("sub", "iss", "aud", "jti", "iat", "exp");
+
+    private static final byte[] B64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final JwtAlgorithm algorithm;
+    private final byte[] headerDot;      // base64url(cabecera) + '.'
+    private final byte[] issuerJson;     // ,"iss":"...","aud":"..."
+    private final long expirationSeconds;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    AccessTokenMinter(JwtAlgorithm algorithm, PrivateKey privateKey, String keyId,
+                      String issuer, String audience, long expirationSeconds) {
+        this.algorithm = algorithm;
+        this.expirationSeconds = expirationSeconds;
+
+        Json header = new Json(64);
+        header.raw("{\"alg\":").string(algorithm.name()).raw(",\"typ\":\"JWT\",\"kid\":").string(keyId).raw("}");
+        String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(header.toByteArray());
+        this.headerDot = (encoded + ".").getBytes(StandardCharsets.US_ASCII);
+
+        Json iss = new Json(64);
+        iss.raw(",\"iss\":").string(issuer).raw(",\"aud\":").string(audience);
+        this.issuerJson = iss.toByteArray();
+
+        // Se inicializan todas aquí: falla al arrancar y no en el primer login si la clave no vale
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new Stripe[Math.min(n, 64)];
+        this.mask = stripes.length - 1;
+        for (int i = 0; i < stripes.length; i++) {
+            try {
+                Signature s = Signature.getInstance(algorithm.jcaSignature());
+                s.initSign(privateKey);
+                stripes[i] = new Stripe(s);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + algorithm + " signer", e);
+            }
+        }
+    }
+
+    /** {@code true} si los claims extra caben en el esquema fijo; si no, hay que usar el builder de jjwt. */
+    static boolean supports(Map<String, Object> extra) {
+        for (Map.Entry<String, Object> e : extra.entrySet()) {
+            if (REGISTERED.contains(e.getKey()) || !Json.supports(e.getValue())) return false;
+        }
+        return true;
+    }
+
+    String mint(String subject, Map<String, Object> extra, long nowMillis) {
+        int h = System.identityHashCode(Thread.currentThread());
+        Stripe b = stripes[(h ^ (h >>> 16)) & mask];
+        synchronized (b) {
+            return mint(b, subject, extra, nowMillis);
+        }
+    }
+
+    private String mint(Stripe b, String subject, Map<String, Object> extra, long nowMillis) {
+        long iat = nowMillis / 1000;
+
+        Json claims = b.claims.reset();
+        claims.raw("{\"sub\":").string(subject).raw(issuerJson).raw(",\"jti\":\"");
+        jti(claims);
+        claims.raw("\",\"iat\":").number(iat).raw(",\"exp\":").number(iat + expirationSeconds);
+        for (Map.Entry<String, Object> e : extra.entrySet()) {
+            claims.raw(',').string(e.getKey()).raw(':').value(e.getValue());
+        }
+        claims.raw('}');
+
+        // header.payload en el buffer de salida; sobre esos bytes se firma
+        int signingInput = headerDot.length + b64Length(claims.len);
+        byte[] out = b.out(signingInput + 1 + b64Length(512));
+        System.arraycopy(headerDot, 0, out, 0, headerDot.length);
+        b64(claims.buf, claims.len, out, headerDot.length);
+
+        int sigLen = sign(b, out, signingInput);
+        out[signingInput] = '.';
+        int end = b64(b.sig, sigLen, out, signingInput + 1);
+        return new String(out, 0, end, StandardCharsets.ISO_8859_1);
+    }
+
+    private int sign(Stripe b, byte[] data, int len) {
+        try {
+            b.signature.update(data, 0, len);
+            int n = b.signature.sign(b.sig, 0, b.sig.length);
+            return algorithm == JwtAlgorithm.ES256 ? derToJose(b.sig, n, b.jose) : n;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign access token", e);
+        }
+    }
+
+    /** ECDSA de JCA devuelve DER ({@code SEQUENCE {r, s}}); JWS espera r||s de 32 bytes cada uno. */
+    private static int derToJose(byte[] sig, int len, byte[] jose) throws GeneralSecurityException {
+        int off = (sig[1] & 0x80) != 0 ? 3 : 2;              // SEQUENCE + longitud (corta o 0x81 xx)
+        int rLen = sig[off + 1];
+        int rOff = off + 2;
+        int sLen = sig[rOff + rLen + 1];
+        int sOff = rOff + rLen + 2;
+        if (sig[0] != 0x30 || sig[off] != 0x02 || sig[rOff + rLen] != 0x02 || sOff + sLen != len) {
+            throw new GeneralSecurityException("Invalid ECDSA signature encoding");
+        }
+        Arrays.fill(jose, 0, 64, (byte) 0);
+        copyInteger(sig, rOff, rLen, jose, 0);
+        copyInteger(sig, sOff, sLen, jose, 32);
+        System.arraycopy(jose, 0, sig, 0, 64);
+        return 64;
+    }
+
+    /** INTEGER DER (con posible 0x00 de signo) alineado a la derecha en 32 bytes. */
+    private static void copyInteger(byte[] src, int off, int len, byte[] dst, int dstOff) {
+        while (len > 32 && src[off] == 0) { off++; len--; }
+        System.arraycopy(src, off, dst, dstOff + 32 - len, len);
+    }
+
+    /**
+     * UUID v4 en forma canónica escrito directamente en el buffer. El jti solo identifica el token
+     * (la integridad la da la firma), así que basta con {@link ThreadLocalRandom}: sin el
+     * {@code SecureRandom} compartido de {@code UUID.randomUUID()} ni objetos intermedios.
+     */
+    private static void jti(Json json) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        long msb = (rnd.nextLong() & ~0xF000L) | 0x4000L;            // versión 4
+        long lsb = (rnd.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L; // variante IETF
+        hex(json, msb >>> 32, 8).raw('-');
+        hex(json, msb >>> 16, 4).raw('-');
+        hex(json, msb, 4).raw('-');
+        hex(json, lsb >>> 48, 4).raw('-');
+        hex(json, lsb, 12);
+    }
+
+    private static Json hex(Json json, long v, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            json.raw(HEX[(int) (v >>> (i * 4)) & 0xF]);
+        }
+        return json;
+    }
+
+    private static int b64Length(int n) {
+        return (n / 3) * 4 + (n % 3 == 0 ? 0 : n % 3 + 1);
+    }
+
+    /** base64url sin relleno de {@code src[0, len)} en {@code dst} a partir de {@code off}; devuelve el final. */
+    private static int b64(byte[] src, int len, byte[] dst, int off) {
+        int i = 0;
+        for (; i + 2 < len; i += 3) {
+            int v = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[off++] = B64URL[v >>> 18];
+            dst[off++] = B64URL[(v >>> 12) & 0x3F];
+            dst[off++] = B64URL[(v >>> 6) & 0x3F];
+            dst[off++] = B64URL[v & 0x3F];
+        }
+        if (len - i == 1) {
+            int v = (src[i] & 0xFF) << 16;
+            dst[off++] = B64URL[v >>> 18];
+            dst[off++] = B64URL[(v >>> 12) & 0x3F];
+        } else if (len - i == 2) {
+            int v = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            dst[off++] = B64URL[v >>> 18];
+            dst[off++] = B64URL[(v >>> 12) & 0x3F];
+            dst[off++] = B64URL[(v >>> 6) & 0x3F];
+        }
+        return off;
+    }
+
+    /** Estado de una franja (firmador, claims en JSON, token de salida y firma); solo con su monitor tomado. */
+    private static final class Stripe {
+        final Signature signature;
+        final Json claims = new Json(256);
+        final byte[] sig = new byte[512];    // RSA hasta 4096 bits, DER de ECDSA, Ed25519
+        final byte[] jose = new byte[64];
+        private byte[] out = new byte[1024];
+
+        Stripe(Signature signature) {
+            this.signature = signature;
+        }
+
+        byte[] out(int capacity) {
+            if (out.length < capacity) out = new byte[Math.max(capacity, out.length * 2)];
+            return out;
+        }
+    }
+
+    /** Escritor JSON mínimo sobre un {@code byte[]} que crece: strings, enteros, booleanos y listas de ellos. */
+    static final class Json {
+        byte[] buf;
+        int len;
+
+        Json(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        static boolean supports(Object v) {
+            if (v == null || v instanceof String || v instanceof Boolean
+                    || v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+                return true;
+            }
+            if (v instanceof Collection<?> c) {
+                for (Object o : c) {
+                    if (o instanceof Collection<?> || !supports(o)) return false;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        Json reset() {
+            len = 0;
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+
+        Json raw(int b) {
+            ensure(1);
+            buf[len++] = (byte) b;
+            return this;
+        }
+
+        Json raw(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, len, bytes.length);
+            len += bytes.length;
+            return this;
+        }
+
+        /** Solo para literales ASCII fijos. */
+        Json raw(String ascii) {
+            ensure(ascii.length());
+            for (int i = 0; i < ascii.length(); i++) buf[len++] = (byte) ascii.charAt(i);
+            return this;
+        }
+
+        Json value(Object v) {
+            if (v == null) return raw("null");
+            if (v instanceof String s) return string(s);
+            if (v instanceof Boolean bool) return raw(bool ? "true" : "false");
+            if (v instanceof Number n) return number(n.longValue());
+            raw('[');
+            boolean first = true;
+            for (Object o : (Collection<?>) v) {
+                if (!first) raw(',');
+                value(o);
+                first = false;
+            }
+            return raw(']');
+        }
+
+        Json number(long v) {
+            if (v == Long.MIN_VALUE) return raw(Long.toString(v));
+            if (v < 0) { raw('-'); v = -v; }
+            ensure(19);
+            int start = len;
+            do {
+                buf[len++] = (byte) ('0' + (v % 10));
+                v /= 10;
+            } while (v != 0);
+            for (int i = start, j = len - 1; i < j; i++, j--) {
+                byte t = buf[i]; buf[i] = buf[j]; buf[j] = t;
+            }
+            return this;
+        }
+
+        /** String JSON en UTF-8 con los escapes obligatorios (comillas, barra y controles). */
+        Json string(String s) {
+            ensure(s.length() * 3 + 2);
+            buf[len++] = '"';
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    ensure(2 + (s.length() - i) * 3);
+                    buf[len++] = '\\';
+                    buf[len++] = (byte) c;
+                } else if (c < 0x20) {
+                    ensure(6 + (s.length() - i) * 3);
+                    buf[len++] = '\\';
+                    buf[len++] = 'u';
+                    buf[len++] = '0';
+                    buf[len++] = '0';
+                    buf[len++] = HEX[c >> 4];
+                    buf[len++] = HEX[c & 0xF];
+                } else if (c < 0x80) {
+                    buf[len++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[len++] = (byte) (0xC0 | (c >> 6));
+                    buf[len++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[len++] = (byte) (0xF0 | (cp >> 18));
+                    buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[len++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buf[len++] = '?';                                  // surrogate suelto: igual que String.getBytes
+                } else {
+                    buf[len++] = (byte) (0xE0 | (c >> 12));
+                    buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[len++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            buf[len++] = '"';
+            return this;
+        }
+
+        private void ensure(int extra) {
+            if (len + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(len + extra, buf.length * 2));
+            }
+        }
+    }
+}
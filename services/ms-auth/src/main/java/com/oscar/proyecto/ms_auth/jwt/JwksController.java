@@ -0,0 +1,28 @@
+package com.oscar.proyecto.ms_auth.jwt;
+
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+@RestController
+public class JwksController {
+
+    private final JwtService jwt;
+
+    public JwksController(JwtService jwt) {
+        this.jwt = jwt;
+    }
+
+    @Operation(summary = "Claves públicas de firma (JWKS) para que los servicios verifiquen los access tokens por kid.")
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(jwt.getJwks());
+    }
+}
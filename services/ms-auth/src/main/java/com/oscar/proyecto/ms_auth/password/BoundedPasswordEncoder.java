@@ -0,0 +1,113 @@
+package com.oscar.proyecto.ms_auth.password;
+
+import com.oscar.proyecto.ms_auth.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta el {@link PasswordEncoder} real en un pool propio de {@code threads} hilos con una cola de
+ * {@code queueCapacity} tareas. El hilo de la petición espera el resultado sin ocupar CPU, así que una ráfaga
+ * de logins no deja sin hilos a Tomcat ni a {@code /actuator/health}.
+ * <p>
+ * Con la cola llena se rechaza al momento con {@link PasswordHashingBusyException} (429 + {@code Retry-After})
+ * en vez de encolar peticiones que acabarían venciendo en el cliente.
+ * <p>
+ * Métricas: {@code auth.password.hash.queue} (tareas en cola), {@code auth.password.hash.wait} (espera en cola),
+ * {@code auth.password.hash.duration} (hash, con la etiqueta {@code op}) y {@code auth.password.hash.rejected}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor pool;
+    private final int retryAfterSeconds;
+    private final Timer wait;
+    private final Timer encodeTime;
+    private final Timer matchesTime;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                  int retryAfterSeconds, MeterRegistry meters) {
+        if (threads < 1) throw new IllegalArgumentException("password hashing threads must be positive");
+        if (queueCapacity < 1) throw new IllegalArgumentException("password hashing queue capacity must be positive");
+        this.delegate = delegate;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        meters.gauge("auth.password.hash.queue", pool, p -> p.getQueue().size());
+        this.wait = meters.timer("auth.password.hash.wait");
+        this.encodeTime = meters.timer("auth.password.hash.duration", "op", "encode");
+        this.matchesTime = meters.timer("auth.password.hash.duration", "op", "matches");
+        this.rejected = meters.counter("auth.password.hash.rejected");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTime, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTime, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /** No calcula ningún hash: se resuelve en el hilo llamador. */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private <T> T run(Timer hashTime, Callable<T> hash) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                long start = System.nanoTime();
+                wait.record(start - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return hash.call();
+                } finally {
+                    hashTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException(retryAfterSeconds);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.oscar.proyecto.ms_auth.password;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.ClassUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * {@link DelegatingPasswordEncoder} con los hashes nuevos en {@code algorithm} ({@code bcrypt}, {@code pbkdf2} o
+ * {@code argon2}) y su coste calibrado al arrancar para que un hash tarde unos {@code targetMillis} en esta
+ * máquina. Verifica cualquiera de los tres, y los hashes BCrypt sin prefijo {@code {id}} de antes.
+ * <p>
+ * {@link PasswordEncoder#upgradeEncoding} es {@code true} para los de otro algoritmo, sin prefijo o con menos coste
+ * que el actual: {@code UserService.authenticate} los rehace tras un login correcto.
+ * <p>
+ * Coste: strength de BCrypt (10 a 16), iteraciones de PBKDF2-HMAC-SHA256 (310 000 como mínimo) o pasadas de
+ * Argon2id con 19 MiB (2 a 10). Los mínimos son los de OWASP y se aplican aunque la máquina sea lenta.
+ * Argon2 necesita BouncyCastle ({@code org.bouncycastle:bcprov-jdk18on}) en el classpath.
+ */
+public final class CalibratedPasswordEncoders {
+
+    private static final Logger log = LoggerFactory.getLogger(CalibratedPasswordEncoders.class);
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String PBKDF2 = "pbkdf2";
+    public static final String ARGON2 = "argon2";
+
+    private static final int BCRYPT_MIN = 10, BCRYPT_MAX = 16;
+    private static final int PBKDF2_MIN = 310_000, PBKDF2_MAX = 10_000_000, PBKDF2_PROBE = 100_000;
+    private static final int ARGON2_MIN = 2, ARGON2_MAX = 10, ARGON2_MEMORY_KIB = 19 * 1024;
+
+    /**
+     * @param cost coste fijo; {@code 0} lo calibra midiendo unos pocos hashes
+     */
+    public static DelegatingPasswordEncoder create(String algorithm, int cost, long targetMillis) {
+        boolean argon2 = ClassUtils.isPresent("org.bouncycastle.crypto.params.Argon2Parameters",
+                CalibratedPasswordEncoders.class.getClassLoader());
+        if (ARGON2.equals(algorithm) && !argon2) {
+            throw new IllegalStateException("app.password.algorithm=argon2 requires BouncyCastle on the classpath");
+        }
+
+        int chosen = switch (algorithm) {
+            case BCRYPT -> cost > 0 ? cost : calibrateBcrypt(targetMillis);
+            case PBKDF2 -> cost > 0 ? cost : calibratePbkdf2(targetMillis);
+            case ARGON2 -> cost > 0 ? cost : calibrateArgon2(targetMillis);
+            default -> throw new IllegalStateException("Unknown app.password.algorithm: " + algorithm);
+        };
+        log.info("Hash de contraseñas: {} con coste {} ({})", algorithm, chosen, cost > 0 ? "fijo" : "calibrado");
+
+        // Solo el del algoritmo actual lleva el coste elegido; los demás solo verifican (el coste va en el hash)
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, new BCryptPasswordEncoder(BCRYPT.equals(algorithm) ? chosen : BCRYPT_MIN));
+        encoders.put(PBKDF2, new Pbkdf2Sha256PasswordEncoder(PBKDF2.equals(algorithm) ? chosen : PBKDF2_MIN));
+        if (argon2) encoders.put(ARGON2, argon2(ARGON2.equals(algorithm) ? chosen : ARGON2_MIN));
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(algorithm, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT)); // hashes anteriores, sin {id}
+        return delegating;
+    }
+
+    /** El tiempo se duplica con cada punto de strength. */
+    private static int calibrateBcrypt(long targetMillis) {
+        double probe = millisPerHash(s -> new BCryptPasswordEncoder(s), BCRYPT_MIN);
+        int steps = (int) Math.round(Math.log(targetMillis / probe) / Math.log(2));
+        return clamp(BCRYPT_MIN + steps, BCRYPT_MIN, BCRYPT_MAX);
+    }
+
+    /** El tiempo crece linealmente con las iteraciones; se redondea a decenas de millar. */
+    private static int calibratePbkdf2(long targetMillis) {
+        double probe = millisPerHash(Pbkdf2Sha256PasswordEncoder::new, PBKDF2_PROBE);
+        long iterations = Math.round(PBKDF2_PROBE * targetMillis / probe / 10_000) * 10_000;
+        return (int) Math.max(PBKDF2_MIN, Math.min(iterations, PBKDF2_MAX));
+    }
+
+    private static int calibrateArgon2(long targetMillis) {
+        double probe = millisPerHash(CalibratedPasswordEncoders::argon2, ARGON2_MIN);
+        return clamp((int) Math.round(ARGON2_MIN * targetMillis / probe), ARGON2_MIN, ARGON2_MAX);
+    }
+
+    private static Argon2PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(16, 32, 1, ARGON2_MEMORY_KIB, iterations);
+    }
+
+    /** Mediana de tres hashes tras uno de calentamiento. */
+    private static double millisPerHash(IntFunction<PasswordEncoder> encoder, int cost) {
+        PasswordEncoder e = encoder.apply(cost);
+        e.encode("calibration");
+        double[] samples = new double[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            e.encode("calibration");
+            samples[i] = Math.max((System.nanoTime() - start) / 1e6, 0.01);
+        }
+        Arrays.sort(samples);
+        return samples[1];
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    private CalibratedPasswordEncoders() {}
+}
@@ -2,6 +2,7 @@ package com.oscar.proyecto.ms_auth.password;
 
 import com.oscar.proyecto.ms_auth.mail.MailSenderPort;
 import com.oscar.proyecto.ms_auth.token.RefreshTokenService;
+import com.oscar.proyecto.ms_auth.token.TokenCodec;
 import com.oscar.proyecto.ms_auth.user.User;
 import com.oscar.proyecto.ms_auth.user.UserService;
 import org.springframework.beans.factory.annotation.Value;
@@ -53,8 +54,8 @@ public class PasswordResetService {
         User user = opt.get();
 
         // Generar token opaco en claro (para el link) y almacenar SOLO el hash
-        String raw = TokenUtils.newBase64UrlToken();
-        String hash = TokenUtils.sha256Base64Url(raw);
+        String raw = TokenCodec.randomToken(32);
+        String hash = TokenCodec.sha256Url(raw);
 
         PasswordResetToken prt = new PasswordResetToken();
         prt.setUserId(user.getId());
@@ -81,7 +82,7 @@ public class PasswordResetService {
      */
     @Transactional
     public void reset(String rawToken, String newPassword) {
-        String hash = TokenUtils.sha256Base64Url(rawToken);
+        String hash = TokenCodec.sha256Url(rawToken);
         PasswordResetToken prt = tokens.findByTokenHash(hash)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "TOKEN_INVALID"));
 
@@ -0,0 +1,83 @@
+package com.oscar.proyecto.ms_auth.password;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * PBKDF2-HMAC-SHA256 con el número de iteraciones dentro del hash ({@code <iteraciones>$<sal>$<hash>}).
+ * El {@code Pbkdf2PasswordEncoder} de Spring no lo guarda y verifica con las iteraciones configuradas, así que
+ * recalibrar dejaría de validar los hashes anteriores; aquí se verifica con las del hash y
+ * {@link #upgradeEncoding} pide rehacerlo si son menos que las actuales.
+ */
+class Pbkdf2Sha256PasswordEncoder implements PasswordEncoder {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    Pbkdf2Sha256PasswordEncoder(int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("PBKDF2 iterations must be positive");
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return iterations + "$" + b64.encodeToString(salt) + "$"
+                + b64.encodeToString(derive(rawPassword, salt, iterations));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Parts parts = Parts.parse(encodedPassword);
+        if (parts == null) return false;
+        return MessageDigest.isEqual(parts.hash, derive(rawPassword, parts.salt, parts.iterations));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        Parts parts = Parts.parse(encodedPassword);
+        return parts == null || parts.iterations < iterations;
+    }
+
+    private static byte[] derive(CharSequence raw, byte[] salt, int iterations) {
+        char[] chars = raw.toString().toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot compute PBKDF2", e);
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    private record Parts(int iterations, byte[] salt, byte[] hash) {
+        /** {@code null} si no es un hash válido, incluidos los que {@link PBEKeySpec} rechazaría (sin iteraciones o sin sal). */
+        static Parts parse(String encoded) {
+            if (encoded == null) return null;
+            String[] p = encoded.split("\\$");
+            if (p.length != 3) return null;
+            try {
+                Parts parts = new Parts(Integer.parseInt(p[0]),
+                        Base64.getDecoder().decode(p[1]), Base64.getDecoder().decode(p[2]));
+                return parts.iterations < 1 || parts.salt.length == 0 || parts.hash.length == 0 ? null : parts;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
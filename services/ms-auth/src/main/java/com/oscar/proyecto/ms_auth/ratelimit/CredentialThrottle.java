@@ -0,0 +1,93 @@
+package com.oscar.proyecto.ms_auth.ratelimit;
+
+import com.oscar.proyecto.ms_auth.exception.RateLimitedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Límites contra fuerza bruta de los endpoints públicos con credenciales o envío de emails: un
+ * {@link TokenBucketLimiter} por IP y otro por cuenta (username o email, sin distinguir mayúsculas) para cada
+ * {@link Endpoint}. Los controladores llaman a {@link #check} antes de ir a BD, calcular un hash o enviar nada.
+ * <p>
+ * En el login la cuenta solo se carga con las credenciales incorrectas ({@link #failed}): {@link #check} mira si
+ * le quedan intentos sin gastarlos, así que los logins correctos (de su dueño o de muchos clientes con la misma
+ * cuenta) no la agotan y para bloquearla hay que fallar la contraseña.
+ * <p>
+ * Configuración en {@code app.rate-limit.<endpoint>.<ip|account>.burst/per-minute}; los limitadores se llaman
+ * {@code <endpoint>-ip} y {@code <endpoint>-account} en las métricas.
+ */
+@Component
+public class CredentialThrottle {
+
+    public enum Endpoint {
+        LOGIN("login", true, 20, 30, 10, 10),
+        FORGOT_PASSWORD("forgot-password", false, 5, 5, 3, 1),
+        VERIFY_EMAIL("verify-email", false, 5, 5, 3, 1);
+
+        final String key;
+        /** La cuenta se carga en {@link #failed} y no en {@link #check}. */
+        final boolean accountOnFailure;
+        final int ipBurst, ipPerMinute, accountBurst, accountPerMinute;
+
+        Endpoint(String key, boolean accountOnFailure, int ipBurst, int ipPerMinute, int accountBurst,
+                 int accountPerMinute) {
+            this.key = key;
+            this.accountOnFailure = accountOnFailure;
+            this.ipBurst = ipBurst;
+            this.ipPerMinute = ipPerMinute;
+            this.accountBurst = accountBurst;
+            this.accountPerMinute = accountPerMinute;
+        }
+    }
+
+    private final Map<Endpoint, TokenBucketLimiter> byIp = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, TokenBucketLimiter> byAccount = new EnumMap<>(Endpoint.class);
+
+    public CredentialThrottle(MeterRegistry meters, Environment env) {
+        int maxKeys = env.getProperty("app.rate-limit.max-keys", Integer.class, 100_000);
+        for (Endpoint e : Endpoint.values()) {
+            byIp.put(e, limiter(meters, env, e.key + "-ip", e.key + ".ip", e.ipBurst, e.ipPerMinute, maxKeys));
+            byAccount.put(e, limiter(meters, env, e.key + "-account", e.key + ".account",
+                    e.accountBurst, e.accountPerMinute, maxKeys));
+        }
+    }
+
+    /**
+     * Consume una petición de la IP y, si se permite, de la cuenta (en el login solo comprueba que le queden
+     * intentos). Lanza {@link RateLimitedException} si alguna está agotada.
+     */
+    public void check(Endpoint endpoint, HttpServletRequest request, String account) {
+        long retryAfter = byIp.get(endpoint).tryAcquireSeconds(request.getRemoteAddr());
+        if (retryAfter == 0 && account != null && !account.isBlank()) {
+            TokenBucketLimiter limiter = byAccount.get(endpoint);
+            String key = accountKey(account);
+            retryAfter = endpoint.accountOnFailure ? limiter.peekSeconds(key) : limiter.tryAcquireSeconds(key);
+        }
+        if (retryAfter > 0) throw new RateLimitedException(retryAfter);
+    }
+
+    /** Carga un intento fallido a la cuenta en los endpoints que solo cuentan fallos (el login). */
+    public void failed(Endpoint endpoint, String account) {
+        if (!endpoint.accountOnFailure || account == null || account.isBlank()) return;
+        byAccount.get(endpoint).tryAcquire(accountKey(account));
+    }
+
+    private static String accountKey(String account) {
+        return account.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static TokenBucketLimiter limiter(MeterRegistry meters, Environment env, String name, String property,
+                                              int burst, int perMinute, int maxKeys) {
+        String prefix = "app.rate-limit." + property;
+        return new TokenBucketLimiter(name,
+                env.getProperty(prefix + ".burst", Integer.class, burst),
+                env.getProperty(prefix + ".per-minute", Integer.class, perMinute),
+                maxKeys, meters);
+    }
+}
@@ -0,0 +1,21 @@
+package com.oscar.proyecto.ms_auth.ratelimit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Limitadores de peticiones de los endpoints públicos ({@code app.rate-limit.*}). */
+@Configuration(proxyBeanMethods = false)
+public class RateLimitConfig {
+
+    /** {@code GET /auth/availability} por IP. */
+    @Bean
+    public TokenBucketLimiter availabilityLimiter(
+            MeterRegistry meters,
+            @Value("${app.rate-limit.availability.burst:20}") int burst,
+            @Value("${app.rate-limit.availability.per-minute:60}") int perMinute,
+            @Value("${app.rate-limit.max-keys:100000}") int maxKeys) {
+        return new TokenBucketLimiter("availability", burst, perMinute, maxKeys, meters);
+    }
+}
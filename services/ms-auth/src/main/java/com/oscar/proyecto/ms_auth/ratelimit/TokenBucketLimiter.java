@@ -0,0 +1,156 @@
+package com.oscar.proyecto.ms_auth.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket por clave (IP, username...) de {@code burst} peticiones que se recargan a {@code perMinute} por
+ * minuto, sin bloqueos: es GCRA, así que cada clave es un único {@link AtomicLong} (el instante teórico de la
+ * siguiente petición) que se actualiza con CAS.
+ * <p>
+ * Las claves se reparten en franjas ({@link ConcurrentHashMap} cada una, tantas como el doble de CPUs). Una clave
+ * cuyo cubo ya está lleno equivale a no tenerla, así que cada franja se barre como mucho una vez por
+ * {@code sweepEvery} y borra esas entradas: la memoria depende de las claves activas, no de las vistas.
+ * <p>
+ * Con {@code maxKeys} claves activas, las nuevas de una franja llena comparten un cubo de desbordamiento de la
+ * franja en vez de crear el suyo: inventar claves (usernames, por ejemplo) no agota la memoria ni desactiva el
+ * límite, solo lo comparte entre las claves que sobran.
+ * <p>
+ * Métricas con la etiqueta {@code limiter}: {@code auth.ratelimit.rejected} y {@code auth.ratelimit.keys}.
+ */
+public final class TokenBucketLimiter {
+
+    private final String name;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long sweepEveryNanos;
+    private final int keysPerStripe;
+    private final LongSupplier clock;
+    private final Stripe[] stripes;
+    private final int mask;
+    private final Counter rejected;
+
+    public TokenBucketLimiter(String name, int burst, int perMinute, int maxKeys, MeterRegistry meters) {
+        this(name, burst, perMinute, maxKeys, meters, System::nanoTime);
+    }
+
+    TokenBucketLimiter(String name, int burst, int perMinute, int maxKeys, MeterRegistry meters,
+                       LongSupplier clock) {
+        if (burst < 1) throw new IllegalArgumentException("rate limit burst must be positive");
+        if (perMinute < 1) throw new IllegalArgumentException("rate limit per-minute must be positive");
+        this.name = name;
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        // Tras tolerancia + intervalo sin peticiones cualquier cubo está lleno
+        this.sweepEveryNanos = Math.max(toleranceNanos + intervalNanos, TimeUnit.SECONDS.toNanos(1));
+        this.clock = clock;
+
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        this.stripes = new Stripe[Math.min(n, 64)];
+        this.mask = stripes.length - 1;
+        this.keysPerStripe = Math.max(1, maxKeys / stripes.length);
+        long now = clock.getAsLong();
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe(now + sweepEveryNanos);
+
+        this.rejected = meters.counter("auth.ratelimit.rejected", "limiter", name);
+        meters.gauge("auth.ratelimit.keys", Tags.of("limiter", name), this, TokenBucketLimiter::size);
+    }
+
+    /**
+     * Consume una petición de {@code key}. Devuelve 0 si se permite o, si no, los nanosegundos que faltan para que
+     * se permita la siguiente.
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong();
+        Stripe s = stripes[spread(key.hashCode()) & mask];
+        if (now - s.nextSweep > 0) s.sweep(now);
+
+        AtomicLong tat = s.buckets.get(key);
+        if (tat == null) {
+            tat = s.buckets.size() < keysPerStripe
+                    ? s.buckets.computeIfAbsent(key, k -> new AtomicLong(now))
+                    : s.overflow;
+        }
+        while (true) {
+            long current = tat.get();
+            long base = Math.max(current, now);
+            long wait = base - toleranceNanos - now;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (tat.compareAndSet(current, base + intervalNanos)) return 0;
+        }
+    }
+
+    /** {@link #tryAcquire} redondeado a segundos para {@code Retry-After}; 0 si se permite. */
+    public long tryAcquireSeconds(String key) {
+        return toSeconds(tryAcquire(key));
+    }
+
+    /**
+     * Como {@link #tryAcquireSeconds} pero sin consumir: 0 si se permitiría una petición de {@code key}. Para
+     * limitadores que solo se cargan con {@link #tryAcquire} cuando la petición sale mal.
+     */
+    public long peekSeconds(String key) {
+        long now = clock.getAsLong();
+        Stripe s = stripes[spread(key.hashCode()) & mask];
+        AtomicLong tat = s.buckets.get(key);
+        if (tat == null) {
+            if (s.buckets.size() < keysPerStripe) return 0;
+            tat = s.overflow;
+        }
+        long wait = Math.max(tat.get(), now) - toleranceNanos - now;
+        if (wait <= 0) return 0;
+        rejected.increment();
+        return toSeconds(wait);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** Claves con cubo propio (sin barrer aún). */
+    public int size() {
+        int n = 0;
+        for (Stripe s : stripes) n += s.buckets.size();
+        return n;
+    }
+
+    private static long toSeconds(long waitNanos) {
+        return waitNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999);
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private final class Stripe {
+        final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        final AtomicLong overflow;
+        volatile long nextSweep;
+
+        Stripe(long nextSweep) {
+            this.nextSweep = nextSweep;
+            this.overflow = new AtomicLong(nextSweep - sweepEveryNanos);
+        }
+
+        /**
+         * Borra los cubos llenos. Si otro hilo consume de uno a la vez, esa petición cuenta sobre la entrada
+         * borrada y se pierde: como mucho una petición de más para una clave que llevaba tiempo parada.
+         */
+        void sweep(long now) {
+            synchronized (this) {
+                if (now - nextSweep <= 0) return;
+                nextSweep = now + sweepEveryNanos;
+            }
+            buckets.values().removeIf(tat -> tat.get() - now <= 0);
+        }
+    }
+}
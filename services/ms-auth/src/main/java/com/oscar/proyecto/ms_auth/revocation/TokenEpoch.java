@@ -0,0 +1,41 @@
+package com.oscar.proyecto.ms_auth.revocation;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * "Tokens válidos desde" por usuario: cualquier access token con {@code iat} anterior a
+ * {@code validAfter} queda revocado en los servicios que consumen el feed de cambios.
+ */
+@Entity
+@Table(name = "access_token_epochs", indexes = {
+        @Index(name = "idx_ate_updated_at", columnList = "updated_at")
+})
+public class TokenEpoch {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // Segundos truncados: se compara con el iat del JWT, que no tiene más precisión
+    @Column(name = "valid_after", nullable = false)
+    private Instant validAfter;
+
+    // Cursor del feed incremental
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    protected TokenEpoch() { }
+
+    public TokenEpoch(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() { return userId; }
+
+    public Instant getValidAfter() { return validAfter; }
+    public void setValidAfter(Instant validAfter) { this.validAfter = validAfter; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
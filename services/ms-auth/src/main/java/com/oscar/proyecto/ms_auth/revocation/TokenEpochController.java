@@ -0,0 +1,26 @@
+package com.oscar.proyecto.ms_auth.revocation;
+
+import io.swagger.v3.oas.annotations.Operation;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class TokenEpochController {
+
+    private final TokenEpochService epochs;
+
+    public TokenEpochController(TokenEpochService epochs) {
+        this.epochs = epochs;
+    }
+
+    @Operation(summary = "Feed incremental de revocaciones (usuario → tokens válidos desde) para los servicios internos.")
+    @GetMapping("/internal/token-epochs")
+    public ResponseEntity<TokenEpochService.Feed> changes(@RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(epochs.changesSince(since));
+    }
+}
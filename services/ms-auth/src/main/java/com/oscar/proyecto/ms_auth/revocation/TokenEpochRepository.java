@@ -0,0 +1,33 @@
+package com.oscar.proyecto.ms_auth.revocation;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface TokenEpochRepository extends JpaRepository<TokenEpoch, Long> {
+
+    /** Cambios desde {@code from} que aún pueden revocar algún token vivo ({@code validAfter > horizon}). */
+    @Query("select e from TokenEpoch e where e.updatedAt >= :from and e.validAfter > :horizon order by e.updatedAt asc")
+    List<TokenEpoch> findChangedSince(@Param("from") Instant from, @Param("horizon") Instant horizon);
+
+    /**
+     * Sube el epoch de varios usuarios en una sentencia (PostgreSQL): crea el que falta y en el que existe
+     * nunca retrocede {@code valid_after}. Sin lectura previa no hay carrera entre dos revocaciones del mismo
+     * usuario; los ids van ordenados para que dos lotes que se solapan bloqueen las filas en el mismo orden.
+     */
+    @Modifying
+    @Query(value = """
+            insert into access_token_epochs (user_id, valid_after, updated_at)
+            select id, :validAfter, :now from unnest(cast(:userIds as bigint[])) as id order by id
+            on conflict (user_id) do update
+            set valid_after = greatest(access_token_epochs.valid_after, excluded.valid_after),
+                updated_at = excluded.updated_at
+            """, nativeQuery = true)
+    int upsertAll(@Param("userIds") Long[] userIds,
+                  @Param("validAfter") Instant validAfter,
+                  @Param("now") Instant now);
+}
@@ -0,0 +1,90 @@
+package com.oscar.proyecto.ms_auth.revocation;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Revocación de access tokens por usuario. ms-auth solo guarda el epoch; cada servicio lo
+ * replica en memoria desde {@code GET /internal/token-epochs} y rechaza los tokens anteriores.
+ */
+@Service
+public class TokenEpochService {
+
+    private final TokenEpochRepository repository;
+    // Pasado este tiempo ningún token anterior al epoch sigue vivo: el epoch deja de ser útil
+    private final long retainSeconds;
+    // Margen para filas cuyo updatedAt es anterior al cursor pero se confirmaron después de leerlo
+    private final Duration overlap;
+    // INSERT ... ON CONFLICT es de PostgreSQL; el resto (H2 en tests) lee y guarda cada epoch por JPA
+    private final boolean upsert;
+
+    public TokenEpochService(TokenEpochRepository repository,
+                             @Value("${app.jwt.expiration-minutes}") long expirationMinutes,
+                             @Value("${app.revocation.feed-overlap-seconds:10}") long overlapSeconds,
+                             @Value("${spring.datasource.url:}") String datasourceUrl) {
+        this.repository = repository;
+        this.retainSeconds = expirationMinutes * 60 + 60; // + tolerancia de reloj
+        this.overlap = Duration.ofSeconds(overlapSeconds);
+        this.upsert = datasourceUrl.startsWith("jdbc:postgresql:");
+    }
+
+    public record Change(long uid, long after) {}
+
+    /** Página del feed: {@code cursor} (ms) se devuelve tal cual en la siguiente llamada. */
+    public record Feed(long cursor, long retainSeconds, List<Change> epochs) {}
+
+    /**
+     * Invalida todos los access tokens emitidos hasta ahora para el usuario.
+     * <p>
+     * El epoch se trunca al segundo: un token emitido en el mismo segundo, justo antes de revocar,
+     * sigue siendo válido. Redondear hacia arriba invalidaría también el primer login posterior.
+     */
+    @Transactional
+    public void revokeAccessTokens(long userId) {
+        revokeAccessTokens(List.of(userId));
+    }
+
+    /** {@link #revokeAccessTokens(long)} para varios usuarios en una sola sentencia. */
+    @Transactional
+    public void revokeAccessTokens(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return;
+        Instant now = Instant.now();
+        Instant validAfter = now.truncatedTo(ChronoUnit.SECONDS);
+        if (upsert) {
+            repository.upsertAll(userIds.stream().distinct().toArray(Long[]::new), validAfter, now);
+            return;
+        }
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            TokenEpoch epoch = repository.findById(userId).orElseGet(() -> new TokenEpoch(userId));
+            if (epoch.getValidAfter() == null || validAfter.isAfter(epoch.getValidAfter())) {
+                epoch.setValidAfter(validAfter);
+            }
+            epoch.setUpdatedAt(now);
+            repository.save(epoch);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Feed changesSince(long cursorMillis) {
+        Instant now = Instant.now();
+        Instant from = Instant.ofEpochMilli(Math.max(0, cursorMillis - overlap.toMillis()));
+        List<TokenEpoch> rows = repository.findChangedSince(from, now.minusSeconds(retainSeconds));
+
+        long cursor = Math.max(0, cursorMillis);
+        List<Change> changes = new ArrayList<>(rows.size());
+        for (TokenEpoch row : rows) {
+            changes.add(new Change(row.getUserId(), row.getValidAfter().getEpochSecond()));
+            cursor = Math.max(cursor, row.getUpdatedAt().toEpochMilli());
+        }
+        return new Feed(cursor, retainSeconds, changes);
+    }
+}
@@ -0,0 +1,6 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import java.time.Instant;
+
+/** Sesión (refresh token vigente) tal como se lista: sin hash ni entidad detrás. */
+public record ActiveSession(long id, Instant createdAt, Instant expiresAt) {}
@@ -0,0 +1,153 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Refresh tokens en {@code refresh_tokens} con {@link RefreshTokenRepository} y el contador de sesiones en
+ * {@code refresh_session_counts}. Se ejecuta dentro de la transacción de {@link RefreshTokenService}.
+ * <p>
+ * Con PostgreSQL la rotación es una sola sentencia ({@link RefreshTokenRepository#rotateInPlace});
+ * con otra BD (H2 en tests), la secuencia JPA.
+ */
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    private final RefreshTokenRepository repository;
+    private final RefreshSessionCountRepository sessionCounts;
+    private final UserRepository users;
+    private final boolean singleStatementRotation;
+
+    public JpaRefreshTokenStore(RefreshTokenRepository repository,
+                                RefreshSessionCountRepository sessionCounts,
+                                UserRepository users,
+                                boolean singleStatementRotation) {
+        this.repository = repository;
+        this.sessionCounts = sessionCounts;
+        this.users = users;
+        this.singleStatementRotation = singleStatementRotation;
+    }
+
+    @Override
+    public void issue(RefreshTokenService.UserRef user, String hash, String plain,
+                      Instant expiresAt, int sessionCap) {
+        int cap = effectiveCap(sessionCap);
+        boolean reserved = reserveSession(user.id(), cap);
+
+        RefreshToken rt = new RefreshToken();
+        rt.setUser(users.getReferenceById(user.id())); // solo la FK: sin SELECT del usuario
+        rt.setToken(plain);       // null salvo app.jwt.persist-plaintext
+        rt.setTokenHash(hash);    // validación real
+        rt.setExpiresAt(expiresAt);
+        repository.save(rt);
+
+        if (!reserved) enforceUserSessionCap(user.id(), cap);
+    }
+
+    @Override
+    public Optional<StoredToken> find(String hash, Instant from, Instant to) {
+        return repository.findByTokenHashFetchUser(hash, from, to).map(rt -> new StoredToken(
+                rt.getUser().getId(), rt.getUser().getUsername(), rt.isRevoked(), rt.getExpiresAt()));
+    }
+
+    @Override
+    public Optional<RefreshTokenService.UserRef> rotate(String usedHash, Instant usedFrom, Instant usedTo,
+                                                        String nextHash, String nextPlain,
+                                                        Instant now, Instant expiresAt, int sessionCap) {
+        if (singleStatementRotation) {
+            List<Object[]> rows = repository.rotateInPlace(usedHash, usedFrom, usedTo, nextHash, nextPlain,
+                    now, expiresAt, Math.max(sessionCap, 0));
+            // Sin fila: no existe, caducó, ya estaba revocado o lo rotó antes otra petición
+            if (rows.isEmpty()) return Optional.empty();
+            Object[] user = rows.get(0);
+            return Optional.of(new RefreshTokenService.UserRef(((Number) user[0]).longValue(), (String) user[1]));
+        }
+
+        Optional<RefreshToken> found = repository.findByTokenHashFetchUser(usedHash, usedFrom, usedTo);
+        if (found.isEmpty()) return Optional.empty();
+        RefreshToken current = found.get();
+        if (current.isRevoked() || current.getExpiresAt().isBefore(now)) return Optional.empty();
+
+        current.setRevoked(true);
+        repository.save(current);
+
+        User owner = current.getUser();
+        var user = new RefreshTokenService.UserRef(owner.getId(), owner.getUsername());
+        issue(user, nextHash, nextPlain, expiresAt, sessionCap);
+        return Optional.of(user);
+    }
+
+    @Override
+    public void delete(String hash, Instant from, Instant to) {
+        repository.findByTokenHashInWindow(hash, from, to).ifPresent(rt -> {
+            repository.delete(rt);
+            sessionCounts.add(rt.getUser().getId(), -1);
+        });
+    }
+
+    @Override
+    public int revokeAllOfUser(long userId) {
+        return repository.revokeAllOfUser(userId);
+    }
+
+    @Override
+    public int revokeAllOfUsers(Collection<Long> userIds) {
+        return repository.revokeAllOfUsers(userIds);
+    }
+
+    @Override
+    public int revokeAllIssuedBefore(Instant before) {
+        return repository.revokeAllIssuedBefore(before);
+    }
+
+    @Override
+    public List<ActiveSession> activeSessions(long userId, Instant now, long after, int limit) {
+        return repository.findActiveSessions(userId, now, after, Limit.of(limit));
+    }
+
+    /**
+     * Reserva hueco para una sesión nueva antes de insertarla. En el camino habitual es un único
+     * {@code UPDATE} condicional sobre el contador del usuario, que además lo deja bloqueado hasta el commit.
+     * Si no hay hueco (o el usuario aún no tiene contador) bloquea igualmente el contador y devuelve
+     * {@code false}: tras insertar hay que llamar a {@link #enforceUserSessionCap}.
+     * <p>
+     * El bloqueo va antes del {@code INSERT} del token: la FK a {@code users} toma un {@code KEY SHARE}
+     * sobre el usuario y bloquearlo después podría interbloquear dos logins concurrentes.
+     */
+    private boolean reserveSession(long userId, int cap) {
+        if (sessionCounts.incrementBelowCap(userId, cap) == 1) return true;
+
+        if (sessionCounts.add(userId, 0) == 0) {
+            sessionCounts.lockUser(userId);
+            if (sessionCounts.add(userId, 0) == 0) {
+                sessionCounts.insert(userId, 0); // el valor real se calcula al recortar
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Con el contador ya bloqueado: elimina las sesiones más antiguas que sobran y fija el contador a las
+     * filas reales. Solo se llega aquí en el tope, así que el recuento recorre como mucho {@code max + 1}
+     * entradas de índice, y de paso corrige cualquier desvío del contador.
+     */
+    private void enforceUserSessionCap(long userId, int cap) {
+        long sessions = repository.countByUserId(userId);
+        long extras = sessions - cap;
+        if (extras > 0) {
+            List<Long> oldestIds = repository.findOldestIds(userId, Limit.of((int) extras));
+            repository.deleteAllByIdInBatch(oldestIds);
+            sessions -= oldestIds.size();
+        }
+        sessionCounts.set(userId, (int) sessions);
+    }
+
+    private static int effectiveCap(int sessionCap) {
+        return sessionCap > 0 ? sessionCap : Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,440 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Refresh tokens en un fichero local mapeado en memoria ({@code app.refresh.store=mapped}), para despliegues
+ * de un solo nodo: crear, rotar y revocar no hacen ningún round trip a la base de datos.
+ * <p>
+ * El fichero es una tabla hash de direccionamiento abierto (sondeo lineal) con ranuras de tamaño fijo,
+ * indexada por el SHA-256 del token. Cada ranura guarda el hash, id, usuario, creación, caducidad y
+ * username. Los borrados desplazan hacia atrás las entradas siguientes de la cadena de sondeo, así que
+ * no hay lápidas ni hace falta compactar. Al abrir se recorre el fichero y se reconstruyen en memoria los
+ * índices por usuario (tope de sesiones, listado) y por caducidad.
+ * <p>
+ * Expulsión por caducidad: cada escritura retira primero las entradas ya caducadas, y si la tabla llega
+ * al 75&nbsp;% de ocupación se expulsa la que antes caduca. Como la rotación borra el token usado en vez
+ * de marcarlo revocado, reutilizarlo da "no existe", igual que en la base de datos.
+ * <p>
+ * El contenido sobrevive a reinicios del proceso (las páginas mapeadas son de la caché del sistema
+ * operativo y se vuelcan al cerrar); ante un corte de la máquina pueden perderse las últimas escrituras.
+ * Si una parada deja una entrada duplicada o fuera de su cadena, la tabla se reconstruye al abrir.
+ */
+public class MappedRefreshTokenStore implements RefreshTokenStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedRefreshTokenStore.class);
+
+    private static final int MAGIC = 0x52544b53; // "RTKS"
+    private static final int VERSION = 1;
+    private static final int MAX_CAPACITY = 1 << 22;
+
+    // Cabecera
+    private static final int HEADER = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_SLOT = 12;
+    private static final int H_NEXT_ID = 16;
+
+    // Ranura
+    static final int SLOT = 288;
+    private static final int S_STATE = 0;      // byte: FREE o USED, se escribe el último
+    private static final int S_NAME_LEN = 2;   // short
+    private static final int S_KEY = 8;        // 32 bytes: SHA-256 del token
+    private static final int S_ID = 40;
+    private static final int S_USER = 48;
+    private static final int S_CREATED = 56;   // epoch ms
+    private static final int S_EXPIRES = 64;   // epoch ms
+    private static final int S_NAME = 72;      // username en UTF-8
+    private static final int MAX_NAME = SLOT - S_NAME;
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+
+    private static final Comparator<Entry> EXPIRY_ORDER =
+            Comparator.comparingLong((Entry e) -> e.expiresAt).thenComparingLong(e -> e.id);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final int mask;
+    private final int maxLive;
+    private final byte[] scratch = new byte[SLOT];
+    private long nextId;
+
+    // Índices en memoria, reconstruidos al abrir
+    private final Entry[] bySlot;
+    private final Map<Long, TreeMap<Long, Entry>> byUser = new HashMap<>();
+    private final TreeSet<Entry> byExpiry = new TreeSet<>(EXPIRY_ORDER);
+
+    public MappedRefreshTokenStore(Path path, int requestedCapacity) {
+        this.path = path;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            boolean fresh = channel.size() == 0;
+            int cap = fresh ? tableSize(requestedCapacity) : readCapacity();
+            if (!fresh && cap != tableSize(requestedCapacity)) {
+                log.info("MappedRefreshTokenStore: {} conserva su capacidad de {} entradas", path, cap);
+            }
+            this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) cap * SLOT);
+            if (fresh) {
+                map.putInt(H_MAGIC, MAGIC);
+                map.putInt(H_VERSION, VERSION);
+                map.putInt(H_CAPACITY, cap);
+                map.putInt(H_SLOT, SLOT);
+                map.putLong(H_NEXT_ID, 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open refresh token store " + path, e);
+        }
+        this.capacity = map.getInt(H_CAPACITY);
+        this.mask = capacity - 1;
+        this.maxLive = capacity - capacity / 4;
+        this.nextId = map.getLong(H_NEXT_ID);
+        this.bySlot = new Entry[capacity];
+        load();
+    }
+
+    @Override
+    public synchronized void issue(RefreshTokenService.UserRef user, String hash, String plain,
+                                   Instant expiresAt, int sessionCap) {
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+        insert(Key.of(hash), user.id(), name(user.username()), now, expiresAt.toEpochMilli());
+        trim(user.id(), sessionCap);
+    }
+
+    @Override
+    public synchronized Optional<StoredToken> find(String hash, Instant from, Instant to) {
+        int slot = lookup(Key.of(hash));
+        if (slot < 0 || !inWindow(bySlot[slot], from, to)) return Optional.empty();
+        Entry e = bySlot[slot];
+        return Optional.of(new StoredToken(e.userId, new String(readName(slot), StandardCharsets.UTF_8),
+                false, Instant.ofEpochMilli(e.expiresAt)));
+    }
+
+    @Override
+    public synchronized Optional<RefreshTokenService.UserRef> rotate(String usedHash, Instant usedFrom, Instant usedTo,
+                                                                     String nextHash, String nextPlain,
+                                                                     Instant now, Instant expiresAt, int sessionCap) {
+        long nowMillis = now.toEpochMilli();
+        int slot = lookup(Key.of(usedHash));
+        if (slot < 0) return Optional.empty();
+        Entry used = bySlot[slot];
+        if (used.expiresAt <= nowMillis || !inWindow(used, usedFrom, usedTo)) return Optional.empty();
+
+        byte[] name = readName(slot);
+        remove(slot);
+        evictExpired(nowMillis);
+        insert(Key.of(nextHash), used.userId, name, nowMillis, expiresAt.toEpochMilli());
+        trim(used.userId, sessionCap);
+        return Optional.of(new RefreshTokenService.UserRef(used.userId, new String(name, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public synchronized void delete(String hash, Instant from, Instant to) {
+        int slot = lookup(Key.of(hash));
+        if (slot >= 0 && inWindow(bySlot[slot], from, to)) remove(slot);
+    }
+
+    @Override
+    public synchronized int revokeAllOfUser(long userId) {
+        TreeMap<Long, Entry> sessions = byUser.get(userId);
+        if (sessions == null) return 0;
+        List<Entry> all = new ArrayList<>(sessions.values());
+        all.forEach(e -> remove(e.slot)); // remove() mantiene e.slot al desplazar entradas
+        return all.size();
+    }
+
+    @Override
+    public synchronized int revokeAllOfUsers(Collection<Long> userIds) {
+        int revoked = 0;
+        for (long userId : userIds) revoked += revokeAllOfUser(userId);
+        return revoked;
+    }
+
+    @Override
+    public synchronized int revokeAllIssuedBefore(Instant before) {
+        long limit = before.toEpochMilli();
+        List<Entry> old = byExpiry.stream().filter(e -> e.createdAt < limit).toList();
+        old.forEach(e -> remove(e.slot));
+        return old.size();
+    }
+
+    @Override
+    public synchronized List<ActiveSession> activeSessions(long userId, Instant now, long after, int limit) {
+        TreeMap<Long, Entry> sessions = byUser.get(userId);
+        if (sessions == null) return List.of();
+        long nowMillis = now.toEpochMilli();
+        List<ActiveSession> page = new ArrayList<>(Math.min(limit, sessions.size()));
+        for (Entry e : sessions.tailMap(after, false).values()) {
+            if (page.size() == limit) break;
+            if (e.expiresAt > nowMillis) {
+                page.add(new ActiveSession(e.id, Instant.ofEpochMilli(e.createdAt), Instant.ofEpochMilli(e.expiresAt)));
+            }
+        }
+        return page;
+    }
+
+    /** Entradas guardadas (incluidas las caducadas que aún no se han retirado). */
+    public synchronized int size() {
+        return byExpiry.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        map.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close refresh token store " + path, e);
+        }
+    }
+
+    // --- tabla hash ---
+
+    private void insert(Key key, long userId, byte[] name, long createdAt, long expiresAt) {
+        if (byExpiry.size() >= maxLive) {
+            log.debug("MappedRefreshTokenStore: tabla llena, se expulsa el refresh que antes caduca");
+            remove(byExpiry.first().slot);
+        }
+        int slot = key.home(mask);
+        while (map.get(offset(slot) + S_STATE) == USED) slot = (slot + 1) & mask;
+
+        long id = nextId++;
+        map.putLong(H_NEXT_ID, nextId);
+        int o = offset(slot);
+        map.putShort(o + S_NAME_LEN, (short) name.length);
+        map.putLong(o + S_KEY, key.a);
+        map.putLong(o + S_KEY + 8, key.b);
+        map.putLong(o + S_KEY + 16, key.c);
+        map.putLong(o + S_KEY + 24, key.d);
+        map.putLong(o + S_ID, id);
+        map.putLong(o + S_USER, userId);
+        map.putLong(o + S_CREATED, createdAt);
+        map.putLong(o + S_EXPIRES, expiresAt);
+        map.put(o + S_NAME, name);
+        map.put(o + S_STATE, USED); // el último: una ranura a medio escribir sigue libre
+        index(new Entry(id, userId, createdAt, expiresAt, slot));
+    }
+
+    private int lookup(Key key) {
+        int slot = key.home(mask);
+        for (int probes = 0; probes < capacity; probes++, slot = (slot + 1) & mask) {
+            int o = offset(slot);
+            if (map.get(o + S_STATE) != USED) return -1;
+            if (map.getLong(o + S_KEY) == key.a && map.getLong(o + S_KEY + 8) == key.b
+                    && map.getLong(o + S_KEY + 16) == key.c && map.getLong(o + S_KEY + 24) == key.d) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Borrado con desplazamiento hacia atrás: cada entrada posterior de la cadena que pueda ocupar el hueco
+     * (su posición ideal no está entre el hueco y ella) se mueve a él, y el hueco avanza hasta una ranura libre.
+     */
+    private void remove(int slot) {
+        unindex(bySlot[slot]);
+        int hole = slot;
+        int j = slot;
+        while (true) {
+            j = (j + 1) & mask;
+            if (map.get(offset(j) + S_STATE) != USED) break;
+            int home = (int) map.getLong(offset(j) + S_KEY) & mask;
+            boolean stays = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (stays) continue;
+
+            map.get(offset(j), scratch);
+            map.put(offset(hole), scratch);
+            Entry moved = bySlot[j];
+            moved.slot = hole;
+            bySlot[hole] = moved;
+            bySlot[j] = null;
+            hole = j;
+        }
+        map.put(offset(hole) + S_STATE, FREE);
+    }
+
+    private void evictExpired(long now) {
+        while (!byExpiry.isEmpty() && byExpiry.first().expiresAt <= now) {
+            remove(byExpiry.first().slot);
+        }
+    }
+
+    private void trim(long userId, int sessionCap) {
+        if (sessionCap <= 0) return;
+        TreeMap<Long, Entry> sessions = byUser.get(userId);
+        // Los ids crecen con la emisión: la primera entrada es la sesión más antigua
+        while (sessions != null && sessions.size() > sessionCap) {
+            remove(sessions.firstEntry().getValue().slot);
+        }
+    }
+
+    // --- índices en memoria ---
+
+    private void index(Entry e) {
+        bySlot[e.slot] = e;
+        byUser.computeIfAbsent(e.userId, id -> new TreeMap<>()).put(e.id, e);
+        byExpiry.add(e);
+    }
+
+    private void unindex(Entry e) {
+        bySlot[e.slot] = null;
+        TreeMap<Long, Entry> sessions = byUser.get(e.userId);
+        sessions.remove(e.id);
+        if (sessions.isEmpty()) byUser.remove(e.userId);
+        byExpiry.remove(e);
+    }
+
+    private void load() {
+        boolean consistent = true;
+        for (int slot = 0; slot < capacity; slot++) {
+            if (map.get(offset(slot) + S_STATE) != USED) continue;
+            index(readEntry(slot));
+        }
+        for (int slot = 0; slot < capacity && consistent; slot++) {
+            if (bySlot[slot] != null && lookup(readKey(slot)) != slot) consistent = false;
+        }
+        if (!consistent) rebuild();
+        log.info("MappedRefreshTokenStore: {} abierto con {} refresh tokens (capacidad {})",
+                path, byExpiry.size(), capacity);
+    }
+
+    /** Vuelve a colocar todas las entradas desde su posición ideal, descartando claves duplicadas. */
+    private void rebuild() {
+        List<byte[]> slots = new ArrayList<>(byExpiry.size());
+        Set<Key> seen = new HashSet<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            if (bySlot[slot] == null) continue;
+            if (seen.add(readKey(slot))) {
+                byte[] copy = new byte[SLOT];
+                map.get(offset(slot), copy);
+                slots.add(copy);
+            }
+            map.put(offset(slot) + S_STATE, FREE);
+        }
+        Arrays.fill(bySlot, null);
+        byUser.clear();
+        byExpiry.clear();
+
+        for (byte[] copy : slots) {
+            int slot = (int) ByteBuffer.wrap(copy).getLong(S_KEY) & mask;
+            while (map.get(offset(slot) + S_STATE) == USED) slot = (slot + 1) & mask;
+            map.put(offset(slot), copy);
+            index(readEntry(slot));
+        }
+        log.warn("MappedRefreshTokenStore: {} reconstruido tras una parada a mitad de escritura ({} entradas)",
+                path, slots.size());
+    }
+
+    private Entry readEntry(int slot) {
+        int o = offset(slot);
+        return new Entry(map.getLong(o + S_ID), map.getLong(o + S_USER),
+                map.getLong(o + S_CREATED), map.getLong(o + S_EXPIRES), slot);
+    }
+
+    private Key readKey(int slot) {
+        int o = offset(slot) + S_KEY;
+        return new Key(map.getLong(o), map.getLong(o + 8), map.getLong(o + 16), map.getLong(o + 24));
+    }
+
+    private byte[] readName(int slot) {
+        int o = offset(slot);
+        byte[] name = new byte[map.getShort(o + S_NAME_LEN)];
+        map.get(o + S_NAME, name);
+        return name;
+    }
+
+    private int readCapacity() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        channel.read(header, 0);
+        if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != VERSION || header.getInt(H_SLOT) != SLOT) {
+            throw new IllegalStateException("Not a refresh token store file: " + path);
+        }
+        return header.getInt(H_CAPACITY);
+    }
+
+    private static int offset(int slot) {
+        return HEADER + slot * SLOT;
+    }
+
+    private static boolean inWindow(Entry e, Instant from, Instant to) {
+        return e.expiresAt >= from.toEpochMilli() && e.expiresAt < to.toEpochMilli();
+    }
+
+    private static byte[] name(String username) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME) throw new IllegalArgumentException("Username too long for the refresh token store");
+        return name;
+    }
+
+    /** Potencia de dos para que la posición ideal sea {@code hash & mask}. */
+    static int tableSize(int requested) {
+        if (requested < 16 || requested > MAX_CAPACITY) {
+            throw new IllegalArgumentException("app.refresh.mapped.capacity must be between 16 and " + MAX_CAPACITY);
+        }
+        return Integer.highestOneBit(requested - 1) << 1;
+    }
+
+    /** SHA-256 del token en cuatro longs; el primero, ya uniforme, da la posición ideal. */
+    private record Key(long a, long b, long c, long d) {
+        static Key of(String hash) {
+            byte[] raw = Base64.getUrlDecoder().decode(hash);
+            if (raw.length != 32) throw new IllegalArgumentException("Invalid token hash");
+            ByteBuffer b = ByteBuffer.wrap(raw);
+            return new Key(b.getLong(), b.getLong(), b.getLong(), b.getLong());
+        }
+
+        int home(int mask) {
+            return (int) a & mask;
+        }
+    }
+
+    private static final class Entry {
+        final long id;
+        final long userId;
+        final long createdAt;
+        final long expiresAt;
+        int slot;
+
+        Entry(long id, long userId, long createdAt, long expiresAt, int slot) {
+            this.id = id;
+            this.userId = userId;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import jakarta.persistence.*;
+
+/**
+ * Número de refresh tokens guardados por usuario, mantenido de forma incremental para aplicar
+ * {@code app.jwt.max-sessions-per-user} sin contar ni listar sus tokens en cada login. La fila
+ * sirve además de cerrojo por usuario: los logins concurrentes de un mismo usuario se serializan en ella.
+ */
+@Entity
+@Table(name = "refresh_session_counts")
+public class RefreshSessionCount {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private int sessions;
+
+    protected RefreshSessionCount() { }
+
+    public Long getUserId() { return userId; }
+
+    public int getSessions() { return sessions; }
+}
@@ -0,0 +1,37 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.user.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface RefreshSessionCountRepository extends JpaRepository<RefreshSessionCount, Long> {
+
+    /** Suma una sesión solo si queda hueco; 0 filas = en el tope o sin contador. */
+    @Modifying
+    @Query("update RefreshSessionCount c set c.sessions = c.sessions + 1 where c.userId = :userId and c.sessions < :cap")
+    int incrementBelowCap(@Param("userId") long userId, @Param("cap") int cap);
+
+    /** Con {@code delta = 0} solo bloquea la fila hasta el commit. */
+    @Modifying
+    @Query("update RefreshSessionCount c set c.sessions = c.sessions + :delta where c.userId = :userId")
+    int add(@Param("userId") long userId, @Param("delta") int delta);
+
+    @Modifying
+    @Query("update RefreshSessionCount c set c.sessions = :sessions where c.userId = :userId")
+    int set(@Param("userId") long userId, @Param("sessions") int sessions);
+
+    @Modifying
+    @Query(value = "insert into refresh_session_counts (user_id, sessions) values (:userId, :sessions)", nativeQuery = true)
+    int insert(@Param("userId") long userId, @Param("sessions") int sessions);
+
+    /** Serializa la creación del contador de un usuario (su primera sesión tras desplegar este cambio). */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.id = :userId")
+    Optional<User> lockUser(@Param("userId") long userId);
+}
@@ -12,6 +12,8 @@ import java.time.Instant;
                 @Index(name = "idx_rt_token", columnList = "token", unique = true),
                 @Index(name = "idx_rt_token_hash", columnList = "token_hash", unique = true),
                 @Index(name = "idx_rt_user", columnList = "user_id"),
+                // Sesiones más antiguas de un usuario sin leer la tabla (recorte del tope de sesiones)
+                @Index(name = "idx_rt_user_created", columnList = "user_id, createdAt, id"),
                 @Index(name = "idx_rt_expires", columnList = "expiresAt"),
                 @Index(name = "idx_rt_revoked", columnList = "revoked")
         })
@@ -27,8 +29,9 @@ public class RefreshToken {
     @Column(name = "token", nullable = true, unique = false, length = 200)
     private String token;
 
-    // Hash base64url(SHA-256(token)) – campo de validación real
-    @Column(name = "token_hash", unique = true, length = 64, nullable = false)
+    // Hash base64url(SHA-256(token)) – campo de validación real. La unicidad la declara idx_rt_token_hash:
+    // un unique aquí sería una segunda restricción que ddl-auto=update intentaría añadir a la tabla particionada
+    @Column(name = "token_hash", length = 64, nullable = false)
     private String tokenHash;
 
     @Column(nullable = false)
@@ -1,32 +1,111 @@
 package com.oscar.proyecto.ms_auth.token;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rellena {@code token_hash} de los refresh tokens antiguos que solo guardaban el plaintext.
+ * <p>
+ * Se lanza en el executor de tareas de la aplicación al quedar lista, así que no retrasa el arranque.
+ * Recorre solo las filas con {@code token_hash IS NULL}, por {@code id} ascendente y en lotes de
+ * {@code app.refresh.backfill-batch-size}, cada uno en su propia transacción: nunca carga la tabla en memoria.
+ * Como la consulta ya excluye lo rellenado, si la instancia se para a mitad la siguiente continúa donde quedó.
+ * <p>
+ * El gauge {@code auth.refresh.hash_backfill.remaining} expone las filas pendientes.
+ */
 @Component
 public class RefreshTokenHashBackfill {
 
-    private final RefreshTokenRepository repo;
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenHashBackfill.class);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final TaskExecutor executor;
+    private final int batchSize;
+    private final AtomicLong remaining = new AtomicLong();
 
-    public RefreshTokenHashBackfill(RefreshTokenRepository repo) {
-        this.repo = repo;
+    public RefreshTokenHashBackfill(JdbcTemplate jdbc,
+                                    PlatformTransactionManager transactionManager,
+                                    @Qualifier("applicationTaskExecutor") TaskExecutor executor,
+                                    MeterRegistry meters,
+                                    @Value("${app.refresh.backfill-batch-size:500}") int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("app.refresh.backfill-batch-size must be positive");
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.batchSize = batchSize;
+        meters.gauge("auth.refresh.hash_backfill.remaining", remaining);
     }
 
     @EventListener(ApplicationReadyEvent.class)
-    @Transactional
-    public void backfill() {
-        var all = repo.findAll();
-        boolean changed = false;
-        for (var rt : all) {
-            if (rt.getTokenHash() == null && rt.getToken() != null) {
-                rt.setTokenHash(RefreshTokenService.sha256Url(rt.getToken()));
-                changed = true;
+    public void onReady() {
+        executor.execute(this::backfill);
+    }
+
+    /** Devuelve el número de tokens rellenados. */
+    public long backfill() {
+        try {
+            remaining.set(jdbc.queryForObject(
+                    "select count(*) from refresh_tokens where token_hash is null and token is not null", Long.class));
+            if (remaining.get() == 0) return 0;
+
+            log.info("RefreshTokenHashBackfill: {} refresh tokens sin hash", remaining.get());
+            long start = System.nanoTime();
+            long done = 0;
+            long after = 0;
+            while (true) {
+                long from = after;
+                Batch batch = tx.execute(status -> hashBatch(from));
+                done += batch.updated;
+                remaining.set(Math.max(remaining.get() - batch.updated, 0));
+                if (batch.selected < batchSize) break;
+                after = batch.lastId;
+                log.debug("RefreshTokenHashBackfill: {} rellenados, hasta id {}", done, after);
             }
+            remaining.set(0);
+            log.info("RefreshTokenHashBackfill: {} refresh tokens rellenados en {} ms",
+                    done, (System.nanoTime() - start) / 1_000_000);
+            return done;
+        } catch (RuntimeException e) {
+            // En segundo plano nadie recoge la excepción: se registra y el siguiente arranque lo reintenta
+            log.error("RefreshTokenHashBackfill: interrumpido", e);
+            return 0;
         }
-        if (changed) {
-            repo.saveAll(all);
+    }
+
+    private Batch hashBatch(long after) {
+        List<Object[]> rows = jdbc.query(
+                "select id, token from refresh_tokens where token_hash is null and token is not null and id > ?"
+                        + " order by id limit ? for update",
+                (rs, i) -> new Object[] { rs.getLong(1), rs.getString(2) },
+                after, batchSize);
+        if (rows.isEmpty()) return new Batch(0, 0, after);
+
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            args.add(new Object[] { TokenCodec.sha256Url((String) row[1]), row[0] });
         }
+        int updated = 0;
+        for (int n : jdbc.batchUpdate("update refresh_tokens set token_hash = ? where id = ? and token_hash is null", args)) {
+            // Algunos drivers devuelven SUCCESS_NO_INFO (-2) en lotes: cuenta como fila actualizada
+            updated += n == 0 ? 0 : 1;
+        }
+        return new Batch(rows.size(), updated, (Long) rows.get(rows.size() - 1)[0]);
     }
+
+    private record Batch(int selected, int updated, long lastId) {}
 }
@@ -0,0 +1,220 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Modo particionado de {@code refresh_tokens} (solo PostgreSQL, {@code app.refresh.partitioning.enabled}).
+ * <p>
+ * La tabla se particiona por rango de {@code expires_at}, una partición por día UTC
+ * ({@code refresh_tokens_pYYYYMMDD}). Cada hora se crean por adelantado las de los próximos
+ * {@code refresh-expiration-days + 1} días y se eliminan enteras las que ya solo contienen tokens caducados,
+ * en lugar de borrarlos fila a fila: sin bloat en la tabla ni en sus índices.
+ * <p>
+ * Diferencias con la tabla normal:
+ * <ul>
+ *   <li>La clave primaria es {@code (id, expires_at)}; los ids salen de una secuencia que continúa
+ *       donde se quedó la identidad de la tabla original.</li>
+ *   <li>{@code token_hash} tiene un índice no único (PostgreSQL no admite únicos globales sin la clave de
+ *       partición); la unicidad la da el SHA-256 de 512 bits aleatorios.</li>
+ *   <li>Solo {@code token_hash}, {@code user_id}, {@code (user_id, created_at, id)} y {@code token}
+ *       se indexan; {@code expires_at} es la propia clave de partición y {@code revoked} no se consulta.
+ *       Los índices que {@code ddl-auto=update} vuelve a crear se eliminan en cada arranque.</li>
+ * </ul>
+ * Los tokens nuevos llevan su día de caducidad delante ({@link RefreshTokenService}), así que una búsqueda
+ * por hash toca una sola partición.
+ * <p>
+ * La primera vez que arranca con el modo activo convierte la tabla existente: crea la particionada,
+ * copia los tokens vigentes, borra la antigua y recalcula los contadores de sesiones, todo en una
+ * transacción. Un cerrojo consultivo evita que dos instancias hagan el mantenimiento a la vez.
+ */
+@Component
+public class RefreshTokenPartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenPartitions.class);
+
+    /** Clave del cerrojo consultivo (pg_try_advisory_xact_lock) del mantenimiento de particiones. */
+    static final long MAINTENANCE_LOCK = 0x7274_7061_7274L; // "rtpart"
+
+    private static final String TABLE = "refresh_tokens";
+    private static final String PREFIX = TABLE + "_p";
+    // Secuencia propia en vez de identidad: las tablas particionadas no admiten identidad hasta PostgreSQL 17
+    private static final String SEQUENCE = TABLE + "_part_id_seq";
+    // Índices de la entidad que sobran en la tabla particionada: expires_at es la clave de partición
+    private static final List<String> UNUSED_INDEXES = List.of("idx_rt_expires", "idx_rt_revoked");
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final int daysAhead;
+
+    public RefreshTokenPartitions(JdbcTemplate jdbc,
+                                  @Value("${app.refresh.partitioning.enabled:false}") boolean enabled,
+                                  @Value("${app.jwt.refresh-expiration-days:7}") int refreshDays) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+        // La partición del día de caducidad de un token recién emitido y una de margen
+        this.daysAhead = refreshDays + 1;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void onStartup() {
+        if (enabled) maintain(true);
+    }
+
+    @Scheduled(cron = "0 5 * * * *")
+    @Transactional
+    public void scheduled() {
+        if (enabled) maintain(false);
+    }
+
+    private void maintain(boolean convert) {
+        if (!Boolean.TRUE.equals(jdbc.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK))) {
+            log.debug("RefreshTokenPartitions: otra instancia está haciendo el mantenimiento");
+            return;
+        }
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (convert) {
+            if (!isPartitioned()) {
+                convert(today);
+            } else {
+                dropUnusedIndexes();
+            }
+        }
+
+        for (int i = 0; i <= daysAhead; i++) {
+            createPartition(today.plusDays(i), TABLE);
+        }
+        dropExpired(today);
+    }
+
+    private boolean isPartitioned() {
+        List<String> kind = jdbc.queryForList(
+                "select c.relkind::text from pg_class c where c.oid = to_regclass(?)", String.class, TABLE);
+        return !kind.isEmpty() && "p".equals(kind.get(0));
+    }
+
+    private void convert(LocalDate today) {
+        boolean exists = jdbc.queryForObject("select to_regclass(?) is not null", Boolean.class, TABLE);
+        String staging = TABLE + "_partitioned";
+
+        jdbc.execute("create sequence if not exists " + SEQUENCE);
+        jdbc.execute("""
+                create table %s (
+                    id bigint not null default nextval('%s'),
+                    user_id bigint not null,
+                    token varchar(200),
+                    token_hash varchar(64) not null,
+                    expires_at timestamp(6) with time zone not null,
+                    revoked boolean not null,
+                    created_at timestamp(6) with time zone not null,
+                    constraint rt_part_pkey primary key (id, expires_at),
+                    constraint fk_rt_user foreign key (user_id) references users (id)
+                ) partition by range (expires_at)""".formatted(staging, SEQUENCE));
+
+        long copied = 0;
+        if (exists) {
+            jdbc.execute("lock table " + TABLE + " in access exclusive mode");
+            // Particiones para todos los tokens vigentes, aunque caduquen más allá de daysAhead
+            LocalDate last = jdbc.queryForObject(
+                    "select (coalesce(max(expires_at), now()) at time zone 'UTC')::date from " + TABLE, LocalDate.class);
+            for (LocalDate d = today; !d.isAfter(last); d = d.plusDays(1)) {
+                createPartition(d, staging);
+            }
+            copied = jdbc.update("""
+                    insert into %s (id, user_id, token, token_hash, expires_at, revoked, created_at)
+                    select id, user_id, token, token_hash, expires_at, revoked, created_at
+                    from %s where expires_at >= ?""".formatted(staging, TABLE),
+                    Timestamp.from(today.atStartOfDay(ZoneOffset.UTC).toInstant()));
+            jdbc.execute("drop table " + TABLE);
+        }
+
+        // Renombrar las particiones junto con la tabla padre
+        for (String name : partitionsOf(staging)) {
+            jdbc.execute("alter table %s rename to %s".formatted(name, name.replace(staging + "_p", PREFIX)));
+        }
+        jdbc.execute("alter table %s rename to %s".formatted(staging, TABLE));
+        jdbc.execute("alter sequence %s owned by %s.id".formatted(SEQUENCE, TABLE));
+        jdbc.execute("select setval('%s', coalesce((select max(id) from %s), 0) + 1, false)".formatted(SEQUENCE, TABLE));
+
+        // Índices en la tabla padre: se crean también en cada partición, actual y futura
+        jdbc.execute("create index idx_rt_token_hash on " + TABLE + " (token_hash)");
+        jdbc.execute("create index idx_rt_user on " + TABLE + " (user_id)");
+        jdbc.execute("create index idx_rt_user_created on " + TABLE + " (user_id, created_at, id)");
+        jdbc.execute("create index idx_rt_token on " + TABLE + " (token)");
+
+        // Los tokens caducados no se copian: los contadores se recalculan con lo que queda
+        jdbc.update("""
+                update refresh_session_counts c
+                set sessions = (select count(*) from refresh_tokens t where t.user_id = c.user_id)""");
+
+        log.info("RefreshTokenPartitions: {} convertida a tabla particionada por día ({} tokens vigentes copiados)",
+                TABLE, copied);
+    }
+
+    /**
+     * Con {@code ddl-auto=update} Hibernate vuelve a crear en cada arranque los índices de la entidad que la
+     * tabla particionada no lleva (en la padre y en todas las particiones): se quitan otra vez.
+     */
+    private void dropUnusedIndexes() {
+        for (String index : UNUSED_INDEXES) {
+            if (Boolean.TRUE.equals(jdbc.queryForObject("select to_regclass(?) is not null", Boolean.class, index))) {
+                jdbc.execute("drop index " + index);
+                log.info("RefreshTokenPartitions: eliminado el índice {} recreado por el esquema de Hibernate", index);
+            }
+        }
+    }
+
+    private void createPartition(LocalDate day, String parent) {
+        jdbc.execute("""
+                create table if not exists %s_p%s partition of %s
+                for values from ('%s') to ('%s')""".formatted(
+                parent, DAY.format(day), parent,
+                day.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant()));
+    }
+
+    /** Elimina las particiones de días anteriores a hoy: todos sus tokens caducaron ya. */
+    private void dropExpired(LocalDate today) {
+        for (String name : partitionsOf(TABLE)) {
+            LocalDate day;
+            try {
+                day = LocalDate.parse(name.substring(PREFIX.length()), DAY);
+            } catch (RuntimeException e) {
+                continue; // no es una partición diaria de este componente
+            }
+            if (!day.isBefore(today)) continue;
+
+            // Igual que la limpieza fila a fila: los tokens eliminados se descuentan de los contadores
+            jdbc.update("""
+                    update refresh_session_counts c set sessions = greatest(c.sessions - x.n, 0)
+                    from (select user_id, count(*)::int n from %s group by user_id) x
+                    where c.user_id = x.user_id""".formatted(name));
+            jdbc.execute("drop table " + name);
+            log.info("RefreshTokenPartitions: eliminada la partición caducada {}", name);
+        }
+    }
+
+    private List<String> partitionsOf(String parent) {
+        return jdbc.queryForList("""
+                select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = to_regclass(?) order by c.relname""", String.class, parent);
+    }
+}
@@ -1,10 +1,14 @@
 package com.oscar.proyecto.ms_auth.token;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,18 +20,92 @@ public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long
     // Nuevos: búsquedas por HASH
     Optional<RefreshToken> findByTokenHash(String tokenHash);
 
-    @Query("select rt from RefreshToken rt join fetch rt.user where rt.tokenHash = :tokenHash")
-    Optional<RefreshToken> findByTokenHashFetchUser(@Param("tokenHash") String tokenHash);
+    // Con el rango de expiresAt, en la tabla particionada solo se consulta la partición del token
+    @Query("select rt from RefreshToken rt join fetch rt.user where rt.tokenHash = :tokenHash"
+            + " and rt.expiresAt >= :from and rt.expiresAt < :to")
+    Optional<RefreshToken> findByTokenHashFetchUser(@Param("tokenHash") String tokenHash,
+                                                    @Param("from") Instant from, @Param("to") Instant to);
 
-    long deleteByExpiresAtBefore(Instant instant);
-    long deleteByRevokedTrueAndExpiresAtBefore(Instant instant);
+    @Query("select rt from RefreshToken rt where rt.tokenHash = :tokenHash and rt.expiresAt >= :from and rt.expiresAt < :to")
+    Optional<RefreshToken> findByTokenHashInWindow(@Param("tokenHash") String tokenHash,
+                                                   @Param("from") Instant from, @Param("to") Instant to);
 
-    @Query("select rt.id from RefreshToken rt where rt.user.id = :userId order by rt.createdAt asc")
-    List<Long> findIdsByUserOldestFirst(@Param("userId") long userId);
+    /** Las {@code limit} sesiones más antiguas, resueltas sobre {@code idx_rt_user_created}. */
+    @Query("select rt.id from RefreshToken rt where rt.user.id = :userId order by rt.createdAt asc, rt.id asc")
+    List<Long> findOldestIds(@Param("userId") long userId, Limit limit);
 
     void deleteAllByIdInBatch(Iterable<Long> ids);
 
+    // Operaciones masivas: una sola sentencia, sin cargar entidades
+    @Modifying
+    @Query("update RefreshToken rt set rt.revoked = true where rt.user.id = :userId and rt.revoked = false")
+    int revokeAllOfUser(@Param("userId") long userId);
+
+    @Modifying
+    @Query("update RefreshToken rt set rt.revoked = true where rt.user.id in :userIds and rt.revoked = false")
+    int revokeAllOfUsers(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query("update RefreshToken rt set rt.revoked = true where rt.createdAt < :before and rt.revoked = false")
+    int revokeAllIssuedBefore(@Param("before") Instant before);
+
+    /** Sesiones vigentes del usuario con {@code id > after}, en orden de id (paginación keyset). */
+    @Query("select new com.oscar.proyecto.ms_auth.token.ActiveSession(rt.id, rt.createdAt, rt.expiresAt)"
+            + " from RefreshToken rt where rt.user.id = :userId and rt.revoked = false and rt.expiresAt > :now"
+            + " and rt.id > :after order by rt.id")
+    List<ActiveSession> findActiveSessions(@Param("userId") long userId, @Param("now") Instant now,
+                                           @Param("after") long after, Limit limit);
+
     long countByUserId(long userId);
 
     List<RefreshToken> findAllByUserId(long userId);
+
+    /**
+     * Rotación en una sola sentencia (PostgreSQL): bloquea el token usado si sigue vigente, inserta el nuevo,
+     * recorta las sesiones del usuario a {@code cap} (0 = sin límite) y ajusta su contador de sesiones con las
+     * filas realmente borradas. Como en la rotación por JPA, el usado cuenta como sesión hasta el recorte: de
+     * las filas que ya había (él incluido) se conservan las {@code cap - 1} más recientes, que con la nueva
+     * suman {@code cap}. El usado se revoca solo si el recorte no lo ha borrado, para no modificar la misma
+     * fila dos veces en la sentencia; los CTE ven la misma instantánea, así que el recorte no ve la nueva.
+     * Si otra petición rotó antes el mismo token, el {@code FOR UPDATE} espera a su commit, ya no encuentra
+     * la fila vigente y no devuelve nada.
+     *
+     * @return {@code [userId, username]} del usuario, o vacío si el token no existe, caducó o ya estaba revocado
+     */
+    @Transactional
+    @Query(value = """
+            with used as (
+                select id, user_id from refresh_tokens
+                where token_hash = :usedHash and revoked = false and expires_at > :now
+                  and expires_at >= :usedFrom and expires_at < :usedTo
+                for update
+            ), issued as (
+                insert into refresh_tokens (user_id, token, token_hash, expires_at, revoked, created_at)
+                select user_id, cast(:nextPlain as varchar), :nextHash, :expiresAt, false, :now from used
+                returning user_id
+            ), trimmed as (
+                delete from refresh_tokens
+                where :cap > 0 and id in (
+                    select rt.id from refresh_tokens rt
+                    join used on rt.user_id = used.user_id
+                    order by rt.created_at desc, rt.id desc
+                    offset greatest(:cap - 1, 0))
+                returning id
+            ), revoked as (
+                update refresh_tokens set revoked = true
+                where id in (select id from used) and id not in (select id from trimmed)
+            ), counted as (
+                update refresh_session_counts set sessions = sessions + 1 - (select count(*) from trimmed)
+                where user_id = (select user_id from used)
+            )
+            select u.id, u.username from issued join users u on u.id = issued.user_id
+            """, nativeQuery = true)
+    List<Object[]> rotateInPlace(@Param("usedHash") String usedHash,
+                                 @Param("usedFrom") Instant usedFrom,
+                                 @Param("usedTo") Instant usedTo,
+                                 @Param("nextHash") String nextHash,
+                                 @Param("nextPlain") String nextPlain,
+                                 @Param("now") Instant now,
+                                 @Param("expiresAt") Instant expiresAt,
+                                 @Param("cap") int cap);
 }
@@ -1,38 +1,43 @@
 package com.oscar.proyecto.ms_auth.token;
 
+import com.oscar.proyecto.ms_auth.revocation.TokenEpochService;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Transactional
 public class RefreshTokenService {
 
-    private final RefreshTokenRepository repository;
+    private final RefreshTokenStore store;
+    private final TokenEpochService tokenEpochs;
     private final int refreshDays;
     private final int maxSessionsPerUser;
     private final boolean persistPlaintext; // <-- flag compat
-    private final SecureRandom secureRandom = new SecureRandom();
+    private final boolean partitioned;
 
     public RefreshTokenService(
-            RefreshTokenRepository repository,
+            RefreshTokenStore store,
+            TokenEpochService tokenEpochs,
             @Value("${app.jwt.refresh-expiration-days:7}") int refreshDays,
             @Value("${app.jwt.max-sessions-per-user:5}") int maxSessionsPerUser,
-            @Value("${app.jwt.persist-plaintext:false}") boolean persistPlaintext) {
-        this.repository = repository;
+            @Value("${app.jwt.persist-plaintext:false}") boolean persistPlaintext,
+            @Value("${app.refresh.partitioning.enabled:false}") boolean partitioned) {
+        this.store = store;
+        this.tokenEpochs = tokenEpochs;
         this.refreshDays = refreshDays;
         this.maxSessionsPerUser = maxSessionsPerUser;
         this.persistPlaintext = persistPlaintext;
+        this.partitioned = partitioned;
     }
 
     /** DTO ligero para evitar LazyInitialization fuera del servicio */
@@ -44,116 +49,120 @@ public class RefreshTokenService {
     /** Resultado de rotación: usuario + nuevo refresh (plaintext + ttl) */
     public record RotationResult(UserRef user, IssuedRefresh newRefresh) {}
 
-    /** Crea refresh y aplica cap por usuario. */
-    public IssuedRefresh create(com.oscar.proyecto.ms_auth.user.User user) {
-        String plain = generateOpaqueToken();
-        String hash = sha256Url(plain);
-
-        RefreshToken rt = new RefreshToken();
-        rt.setUser(user);
-        if (persistPlaintext) { // compat opcional
-            rt.setToken(plain);
+    /**
+     * Rango de {@code expires_at} en el que buscar un token: el día de caducidad que lleva delante
+     * (modo particionado, ver {@link RefreshTokenPartitions}) o cualquiera para los tokens sin prefijo.
+     */
+    record ExpiryWindow(Instant from, Instant to) {
+        static final ExpiryWindow ANY = new ExpiryWindow(Instant.EPOCH, Instant.parse("9999-01-01T00:00:00Z"));
+
+        static ExpiryWindow of(String plain) {
+            int dot = plain.indexOf('.');
+            if (dot < 1 || dot > 6) return ANY;
+            try {
+                Instant from = Instant.ofEpochSecond(Long.parseLong(plain, 0, dot, 36) * SECONDS_PER_DAY);
+                return new ExpiryWindow(from, from.plusSeconds(SECONDS_PER_DAY));
+            } catch (NumberFormatException e) {
+                return ANY;
+            }
         }
-        rt.setTokenHash(hash);    // validación real
-        rt.setExpiresAt(Instant.now().plus(Duration.ofDays(refreshDays)));
-        repository.save(rt);
+    }
 
-        enforceUserSessionCap(user.getId());
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int BULK_CHUNK = 1000;
 
+    /** Crea refresh y aplica cap por usuario. */
+    public IssuedRefresh create(UserRef user) {
+        Instant expiresAt = Instant.now().plus(Duration.ofDays(refreshDays));
+        String plain = newPlainToken(expiresAt);
+        store.issue(user, TokenCodec.sha256Url(plain), persistPlaintext ? plain : null,
+                expiresAt, maxSessionsPerUser);
         return new IssuedRefresh(plain, getRefreshExpirationSeconds());
     }
 
-    /** Validación segura por HASH + fetch join (para /auth/refresh, /logout-all). */
+    /** Validación segura por HASH (para /auth/refresh, /logout-all). */
     public UserRef validateAndGetUserRef(String tokenPlain) {
-        String hash = sha256Url(tokenPlain);
-        RefreshToken rt = repository.findByTokenHashFetchUser(hash)
+        ExpiryWindow window = ExpiryWindow.of(tokenPlain);
+        RefreshTokenStore.StoredToken rt = store.find(TokenCodec.sha256Url(tokenPlain), window.from(), window.to())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token"));
 
-        if (rt.isRevoked() || rt.getExpiresAt().isBefore(Instant.now())) {
+        if (rt.revoked() || rt.expiresAt().isBefore(Instant.now())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Expired or revoked refresh token");
         }
-        var u = rt.getUser();
-        return new UserRef(u.getId(), u.getUsername());
+        return new UserRef(rt.userId(), rt.username());
     }
 
-    /** Rotar: revoca el usado (por HASH) y emite uno nuevo. */
+    /**
+     * Rotar: revoca el usado (por HASH) y emite uno nuevo. Con el almacén JPA y PostgreSQL es un único
+     * round trip ({@link RefreshTokenRepository#rotateInPlace}).
+     */
     public RotationResult rotate(String usedRefreshPlain) {
-        String usedHash = sha256Url(usedRefreshPlain);
-        RefreshToken current = repository.findByTokenHashFetchUser(usedHash)
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(Duration.ofDays(refreshDays));
+        String nextPlain = newPlainToken(expiresAt);
+        ExpiryWindow used = ExpiryWindow.of(usedRefreshPlain);
+
+        // Vacío: no existe, caducó, ya estaba revocado o lo rotó antes otra petición
+        UserRef user = store.rotate(TokenCodec.sha256Url(usedRefreshPlain), used.from(), used.to(),
+                        TokenCodec.sha256Url(nextPlain), persistPlaintext ? nextPlain : null,
+                        now, expiresAt, maxSessionsPerUser)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token"));
-
-        if (current.isRevoked() || current.getExpiresAt().isBefore(Instant.now())) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Expired or revoked refresh token");
-        }
-
-        current.setRevoked(true);
-        repository.save(current);
-
-        String nextPlain = generateOpaqueToken();
-        String nextHash = sha256Url(nextPlain);
-
-        RefreshToken next = new RefreshToken();
-        next.setUser(current.getUser());
-        if (persistPlaintext) { // compat opcional
-            next.setToken(nextPlain);
-        }
-        next.setTokenHash(nextHash);   // validación real
-        next.setExpiresAt(Instant.now().plus(Duration.ofDays(refreshDays)));
-        repository.save(next);
-
-        enforceUserSessionCap(current.getUser().getId());
-
-        return new RotationResult(new UserRef(current.getUser().getId(), current.getUser().getUsername()),
-                new IssuedRefresh(nextPlain, getRefreshExpirationSeconds()));
+        return new RotationResult(user, new IssuedRefresh(nextPlain, getRefreshExpirationSeconds()));
     }
 
     /** Revoca un refresh recibido desde cliente (por HASH). */
     public void revoke(String tokenPlain) {
-        String hash = sha256Url(tokenPlain);
-        repository.findByTokenHash(hash).ifPresent(repository::delete);
+        ExpiryWindow window = ExpiryWindow.of(tokenPlain);
+        store.delete(TokenCodec.sha256Url(tokenPlain), window.from(), window.to());
     }
 
-    /** Cierra sesión en todos los dispositivos del usuario. */
-    public void revokeAllByUserId(long userId) {
-        List<RefreshToken> tokens = repository.findAllByUserId(userId);
-        if (!tokens.isEmpty()) {
-            tokens.forEach(rt -> rt.setRevoked(true));
-            repository.saveAll(tokens);
-        }
+    /** Cierra sesión en todos los dispositivos del usuario: refresh tokens y access tokens ya emitidos. */
+    public int revokeAllByUserId(long userId) {
+        int revoked = store.revokeAllOfUser(userId);
+        tokenEpochs.revokeAccessTokens(userId);
+        return revoked;
     }
 
-    public long getRefreshExpirationSeconds() {
-        return Duration.ofDays(refreshDays).toSeconds();
+    /** {@link #revokeAllByUserId} para varios usuarios a la vez (p. ej. reiniciar una clase). */
+    public int revokeAllByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return 0;
+        Set<Long> distinct = new LinkedHashSet<>(userIds);
+        int revoked = 0;
+        List<Long> ids = List.copyOf(distinct);
+        // Troceado para no acercarse al límite de parámetros por sentencia del driver
+        for (int i = 0; i < ids.size(); i += BULK_CHUNK) {
+            revoked += store.revokeAllOfUsers(ids.subList(i, Math.min(i + BULK_CHUNK, ids.size())));
+        }
+        tokenEpochs.revokeAccessTokens(distinct);
+        return revoked;
     }
 
-    private String generateOpaqueToken() {
-        byte[] bytes = new byte[64]; // 512 bits
-        secureRandom.nextBytes(bytes);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    /**
+     * Revoca todos los refresh emitidos antes de {@code before}, de cualquier usuario. Los access tokens ya
+     * emitidos no se tocan: los epochs de revocación son por usuario y caducan solos en {@code expiration-minutes}.
+     */
+    public int revokeAllIssuedBefore(Instant before) {
+        return store.revokeAllIssuedBefore(before);
     }
 
-    /** Utilidad compartida: SHA-256 y Base64 URL-safe sin padding (~43-44 chars). */
-    static String sha256Url(String input) { // visibilidad de paquete para reuso en backfill
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
-        } catch (Exception e) {
-            throw new IllegalStateException("Cannot compute SHA-256", e);
-        }
+    /** Página de sesiones vigentes del usuario a partir del cursor {@code after} (id de la última devuelta). */
+    public List<ActiveSession> activeSessions(long userId, long after, int limit) {
+        return store.activeSessions(userId, Instant.now(), after, limit);
     }
 
-    /** Elimina los refresh tokens más antiguos cuando el usuario supera el máximo permitido. */
-    private void enforceUserSessionCap(long userId) {
-        if (maxSessionsPerUser <= 0) return;
-
-        long count = repository.countByUserId(userId);
-        if (count <= maxSessionsPerUser) return;
+    public long getRefreshExpirationSeconds() {
+        return Duration.ofDays(refreshDays).toSeconds();
+    }
 
-        int extras = (int) (count - maxSessionsPerUser);
-        List<Long> oldestIds = repository.findIdsByUserOldestFirst(userId);
-        if (oldestIds.size() >= extras) {
-            repository.deleteAllByIdInBatch(oldestIds.subList(0, extras));
-        }
+    /**
+     * Plaintext de un refresh nuevo. En modo particionado lleva delante su día de caducidad en base36
+     * ({@code "k2x.<aleatorio>"}): la búsqueda por hash se acota a esa partición en vez de probar todas.
+     * El punto no forma parte del alfabeto base64url, así que no hay ambigüedad con los tokens sin prefijo.
+     */
+    private String newPlainToken(Instant expiresAt) {
+        String random = TokenCodec.randomToken(64); // 512 bits
+        return partitioned
+                ? Long.toString(Math.floorDiv(expiresAt.getEpochSecond(), SECONDS_PER_DAY), 36) + "." + random
+                : random;
     }
 }
@@ -0,0 +1,53 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dónde viven los refresh tokens. {@link RefreshTokenService} genera los tokens y calcula sus hashes;
+ * el almacén solo guarda, busca y revoca por hash y aplica el tope de sesiones por usuario.
+ * <p>
+ * Implementaciones ({@code app.refresh.store}): {@link JpaRefreshTokenStore} ({@code jpa}, por defecto) y
+ * {@link MappedRefreshTokenStore} ({@code mapped}, fichero local para despliegues de un solo nodo).
+ * <p>
+ * Las búsquedas reciben el rango {@code [from, to)} de {@code expiresAt} en el que puede estar el token
+ * ({@link RefreshTokenService.ExpiryWindow}); fuera de ese rango el token no existe.
+ */
+public interface RefreshTokenStore extends AutoCloseable {
+
+    /** Lo que el servicio necesita de un refresh guardado. */
+    record StoredToken(long userId, String username, boolean revoked, Instant expiresAt) {}
+
+    /**
+     * Guarda un refresh nuevo; si el usuario pasa de {@code sessionCap} sesiones (0 = sin límite) salen
+     * las más antiguas.
+     */
+    void issue(RefreshTokenService.UserRef user, String hash, String plain, Instant expiresAt, int sessionCap);
+
+    Optional<StoredToken> find(String hash, Instant from, Instant to);
+
+    /**
+     * Revoca el refresh usado y guarda el siguiente del mismo usuario, aplicando el tope de sesiones.
+     * Vacío si el usado no existe, caducó o ya estaba revocado (incluido rotarlo dos veces a la vez).
+     */
+    Optional<RefreshTokenService.UserRef> rotate(String usedHash, Instant usedFrom, Instant usedTo,
+                                                 String nextHash, String nextPlain,
+                                                 Instant now, Instant expiresAt, int sessionCap);
+
+    /** Elimina un refresh (logout); no hace nada si no existe. */
+    void delete(String hash, Instant from, Instant to);
+
+    int revokeAllOfUser(long userId);
+
+    int revokeAllOfUsers(Collection<Long> userIds);
+
+    int revokeAllIssuedBefore(Instant before);
+
+    /** Sesiones vigentes del usuario con {@code id > after}, en orden de id. */
+    List<ActiveSession> activeSessions(long userId, Instant now, long after, int limit);
+
+    @Override
+    default void close() {}
+}
@@ -0,0 +1,34 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration(proxyBeanMethods = false)
+public class RefreshTokenStoreConfig {
+
+    /**
+     * Almacén de refresh tokens según {@code app.refresh.store}. Se elige en el método y no con
+     * {@code @ConditionalOnProperty}: con AOT las condiciones quedan fijadas al construir la imagen.
+     */
+    @Bean
+    public RefreshTokenStore refreshTokenStore(
+            RefreshTokenRepository repository,
+            RefreshSessionCountRepository sessionCounts,
+            UserRepository users,
+            @Value("${app.refresh.store:jpa}") String store,
+            @Value("${app.refresh.mapped.path:data/refresh-tokens.db}") String path,
+            @Value("${app.refresh.mapped.capacity:65536}") int capacity,
+            @Value("${spring.datasource.url:}") String datasourceUrl) {
+        return switch (store) {
+            // Los CTE con UPDATE/INSERT/DELETE ... RETURNING son de PostgreSQL; el resto (H2 en tests) usa JPA
+            case "jpa" -> new JpaRefreshTokenStore(repository, sessionCounts, users,
+                    datasourceUrl.startsWith("jdbc:postgresql:"));
+            case "mapped" -> new MappedRefreshTokenStore(Path.of(path), capacity);
+            default -> throw new IllegalStateException("Unknown app.refresh.store: " + store);
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.authz.AuthorizationService;
+import com.oscar.proyecto.ms_auth.exception.ForbiddenOperationException;
+import com.oscar.proyecto.ms_auth.user.UserService;
+import com.oscar.shared.security.Permission;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Sesiones (refresh tokens) del usuario autenticado y operaciones masivas de administración.
+ * Las de {@code /admin} requieren el permiso {@link Permission#USERS_ADMIN}.
+ */
+@RestController
+public class SessionController {
+
+    private static final int MAX_PAGE = 100;
+
+    private final RefreshTokenService refreshTokens;
+    private final UserService users;
+
+    public SessionController(RefreshTokenService refreshTokens, UserService users) {
+        this.refreshTokens = refreshTokens;
+        this.users = users;
+    }
+
+    @Operation(
+            summary = "Sesiones vigentes del usuario autenticado",
+            description = "Paginación keyset: `after` es el `nextAfter` de la página anterior (0 para la primera)."
+    )
+    @GetMapping("/sessions")
+    public SessionPage mySessions(@RequestParam(name = "after", defaultValue = "0") long after,
+                                  @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) throw new ForbiddenOperationException();
+        return page(users.requireByUsername(auth.getName()).getId(), after, limit);
+    }
+
+    @Operation(summary = "Sesiones vigentes de un usuario")
+    @GetMapping("/admin/users/{id}/sessions")
+    public SessionPage userSessions(@PathVariable("id") Long id,
+                                    @RequestParam(name = "after", defaultValue = "0") long after,
+                                    @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        AuthorizationService.requireAdmin();
+        return page(users.requireById(id).getId(), after, limit);
+    }
+
+    @Operation(
+            summary = "Cerrar todas las sesiones de un usuario (revoca también sus access tokens)",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Número de refresh tokens revocados"),
+                    @ApiResponse(responseCode = "404", description = "USER_NOT_FOUND")
+            }
+    )
+    @DeleteMapping("/admin/users/{id}/sessions")
+    public RevokedResponse revokeUser(@PathVariable("id") Long id) {
+        AuthorizationService.requireAdmin();
+        return new RevokedResponse(refreshTokens.revokeAllByUserId(users.requireById(id).getId()));
+    }
+
+    @Operation(summary = "Cerrar todas las sesiones de varios usuarios (revoca también sus access tokens)")
+    @PostMapping("/admin/sessions/revoke-users")
+    public RevokedResponse revokeUsers(@Valid @RequestBody RevokeUsersRequest body) {
+        AuthorizationService.requireAdmin();
+        return new RevokedResponse(refreshTokens.revokeAllByUserIds(body.userIds()));
+    }
+
+    @Operation(summary = "Revocar los refresh tokens emitidos antes de un instante (los access tokens caducan solos)")
+    @PostMapping("/admin/sessions/revoke-before")
+    public RevokedResponse revokeBefore(@Valid @RequestBody RevokeBeforeRequest body) {
+        AuthorizationService.requireAdmin();
+        return new RevokedResponse(refreshTokens.revokeAllIssuedBefore(body.before()));
+    }
+
+    private SessionPage page(long userId, long after, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE));
+        List<ActiveSession> sessions = refreshTokens.activeSessions(userId, after, size);
+        Long next = sessions.size() < size ? null : sessions.get(sessions.size() - 1).id();
+        return new SessionPage(sessions, next);
+    }
+
+    /** {@code nextAfter} es {@code null} en la última página. */
+    public record SessionPage(List<ActiveSession> sessions, Long nextAfter) {}
+
+    public record RevokedResponse(int revoked) {}
+
+    public record RevokeUsersRequest(@NotEmpty @Size(max = 10_000) List<@NotNull Long> userIds) {}
+
+    public record RevokeBeforeRequest(@NotNull Instant before) {}
+}
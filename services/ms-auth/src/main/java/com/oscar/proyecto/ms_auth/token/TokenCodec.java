@@ -0,0 +1,169 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Tokens opacos y sus hashes para refresh, reset de contraseña y verificación de email: base64url sin relleno
+ * de bytes aleatorios y SHA-256 en base64url (43 caracteres), que es lo que se guarda en BD.
+ * <p>
+ * El estado (un {@code MessageDigest}, un DRBG y los buffers) se reparte en franjas, tantas como el doble de
+ * CPUs: cada hilo usa siempre la misma y no hay un {@code SecureRandom} único por el que pasen todos los
+ * logins. Son franjas y no {@code ThreadLocal} para que con hilos virtuales (uno por petición) no se cree y
+ * siembre un DRBG en cada petición. Los bloqueos duran lo que un hash, así que fijar el hilo portador no importa.
+ * <p>
+ * Salvo el {@code String} del resultado, no reserva memoria: la entrada se codifica en un buffer de la franja
+ * y el digest se escribe en otro. {@link #sha256Url(CharSequence, byte[], int)} escribe además el resultado en
+ * un array del llamador.
+ */
+public final class TokenCodec {
+
+    /** Longitud de {@link #sha256Url}: 32 bytes en base64url sin relleno. */
+    public static final int HASH_LENGTH = 43;
+
+    private static final int MAX_POOLED_RANDOM = 64;
+    private static final byte[] B64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private static final Stripe[] STRIPES;
+    private static final int MASK;
+
+    static {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        STRIPES = new Stripe[Math.min(n, 64)];
+        for (int i = 0; i < STRIPES.length; i++) STRIPES[i] = new Stripe();
+        MASK = STRIPES.length - 1;
+    }
+
+    /** Token opaco de {@code bytes} bytes aleatorios en base64url sin relleno. */
+    public static String randomToken(int bytes) {
+        Stripe s = stripe();
+        synchronized (s) {
+            byte[] random = s.random(bytes);
+            s.drbg.nextBytes(random);
+            int len = encode(random, random.length, s.out(b64Length(random.length)), 0);
+            return new String(s.out, 0, len, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /** SHA-256 de {@code input} (UTF-8) en base64url sin relleno. */
+    public static String sha256Url(CharSequence input) {
+        Stripe s = stripe();
+        synchronized (s) {
+            int len = s.hash(input, s.out(HASH_LENGTH), 0);
+            return new String(s.out, 0, len, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Como {@link #sha256Url(CharSequence)} pero escribe los {@link #HASH_LENGTH} caracteres ASCII en
+     * {@code dst} a partir de {@code off}, sin reservar memoria. Devuelve el final.
+     */
+    public static int sha256Url(CharSequence input, byte[] dst, int off) {
+        Stripe s = stripe();
+        synchronized (s) {
+            return s.hash(input, dst, off);
+        }
+    }
+
+    private static Stripe stripe() {
+        int h = System.identityHashCode(Thread.currentThread());
+        return STRIPES[(h ^ (h >>> 16)) & MASK];
+    }
+
+    private static int b64Length(int n) {
+        return (n / 3) * 4 + (n % 3 == 0 ? 0 : n % 3 + 1);
+    }
+
+    /** base64url sin relleno de {@code src[0, len)} en {@code dst} a partir de {@code off}; devuelve el final. */
+    private static int encode(byte[] src, int len, byte[] dst, int off) {
+        int i = 0;
+        for (; i + 2 < len; i += 3) {
+            int v = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[off++] = B64URL[v >>> 18];
+            dst[off++] = B64URL[(v >>> 12) & 0x3F];
+            dst[off++] = B64URL[(v >>> 6) & 0x3F];
+            dst[off++] = B64URL[v & 0x3F];
+        }
+        if (len - i == 1) {
+            int v = (src[i] & 0xFF) << 16;
+            dst[off++] = B64URL[v >>> 18];
+            dst[off++] = B64URL[(v >>> 12) & 0x3F];
+        } else if (len - i == 2) {
+            int v = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            dst[off++] = B64URL[v >>> 18];
+            dst[off++] = B64URL[(v >>> 12) & 0x3F];
+            dst[off++] = B64URL[(v >>> 6) & 0x3F];
+        }
+        return off;
+    }
+
+    /** Estado de una franja; solo se toca con su monitor tomado. */
+    private static final class Stripe {
+        final MessageDigest sha256;
+        final SecureRandom drbg;
+        final byte[] digest = new byte[32];
+        final byte[][] randoms = new byte[MAX_POOLED_RANDOM + 1][];
+        byte[] in = new byte[128];
+        byte[] out = new byte[128];
+
+        Stripe() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+            SecureRandom random;
+            try {
+                random = SecureRandom.getInstance("DRBG"); // se siembra solo del sistema en el primer uso
+            } catch (NoSuchAlgorithmException e) {
+                random = new SecureRandom();
+            }
+            drbg = random;
+        }
+
+        byte[] random(int n) {
+            if (n > MAX_POOLED_RANDOM) return new byte[n];
+            byte[] b = randoms[n];
+            return b != null ? b : (randoms[n] = new byte[n]);
+        }
+
+        byte[] out(int n) {
+            if (out.length < n) out = new byte[n];
+            return out;
+        }
+
+        int hash(CharSequence input, byte[] dst, int off) {
+            int len = utf8(input);
+            sha256.update(in, 0, len);
+            try {
+                sha256.digest(digest, 0, digest.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Cannot compute SHA-256", e);
+            }
+            return encode(digest, digest.length, dst, off);
+        }
+
+        /** UTF-8 de {@code s} en {@link #in}; los tokens son ASCII, lo demás pasa por el codificador estándar. */
+        private int utf8(CharSequence s) {
+            int n = s.length();
+            if (in.length < n) in = new byte[Math.max(n, in.length * 2)];
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    byte[] bytes = s.toString().getBytes(StandardCharsets.UTF_8);
+                    if (in.length < bytes.length) in = new byte[bytes.length];
+                    System.arraycopy(bytes, 0, in, 0, bytes.length);
+                    return bytes.length;
+                }
+                in[i] = (byte) c;
+            }
+            return n;
+        }
+    }
+
+    private TokenCodec() {}
+}
@@ -0,0 +1,61 @@
+package com.oscar.proyecto.ms_auth.user;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.oscar.proyecto.ms_auth.exception.RateLimitedException;
+import com.oscar.proyecto.ms_auth.ratelimit.TokenBucketLimiter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Comprobación en vivo del formulario de registro, sin pagar el hash de {@code /auth/register}.
+ * Pública y limitada por IP ({@code app.rate-limit.availability.*}).
+ */
+@RestController
+@RequestMapping("/auth")
+public class AvailabilityController {
+
+    private final AvailabilityIndex index;
+    private final TokenBucketLimiter limiter;
+
+    public AvailabilityController(AvailabilityIndex index,
+                                  @Qualifier("availabilityLimiter") TokenBucketLimiter limiter) {
+        this.index = index;
+        this.limiter = limiter;
+    }
+
+    @Operation(
+            summary = "Comprobar si un username o email está libre",
+            description = "Solo se devuelven los campos consultados: `true` = libre.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Disponibilidad de cada campo consultado"),
+                    @ApiResponse(responseCode = "400", description = "Sin username ni email"),
+                    @ApiResponse(responseCode = "429", description = "RATE_LIMITED (con Retry-After)")
+            }
+    )
+    @GetMapping("/availability")
+    public AvailabilityResponse availability(@RequestParam(name = "username", required = false) String username,
+                                             @RequestParam(name = "email", required = false) String email,
+                                             HttpServletRequest request) {
+        boolean hasUsername = username != null && !username.isBlank();
+        boolean hasEmail = email != null && !email.isBlank();
+        if (!hasUsername && !hasEmail) throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+
+        long retryAfter = limiter.tryAcquireSeconds(request.getRemoteAddr());
+        if (retryAfter > 0) throw new RateLimitedException(retryAfter);
+
+        return new AvailabilityResponse(
+                hasUsername ? !index.usernameTaken(username) : null,
+                hasEmail ? !index.emailTaken(email) : null);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record AvailabilityResponse(Boolean username, Boolean email) {}
+}
@@ -0,0 +1,171 @@
+package com.oscar.proyecto.ms_auth.user;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice en memoria de usernames y emails ocupados para {@code GET /auth/availability}: un {@link BloomFilter}
+ * por campo, construido desde {@code users} al arrancar y actualizado con cada {@link UserRegisteredEvent} tras el
+ * commit (así una reconstrucción en curso, que solo ve filas confirmadas, no se lo salta).
+ * <p>
+ * Un negativo del filtro ("libre") se responde sin ir a BD; un positivo puede ser falso y se confirma con
+ * {@code uk_users_username} o {@code uk_users_email_lower}. Hasta que termina la primera carga todo va a BD.
+ * <p>
+ * Los registros de otras réplicas se leen cada {@code app.availability.refresh-ms} ({@code id} mayor que el último
+ * visto). Cuando los elementos superan la capacidad se reconstruye con el doble. El índice es solo una pista:
+ * si algo se escapa (usuarios de otra réplica entre dos lecturas), el registro sigue fallando con
+ * {@code USERNAME_EXISTS}/{@code EMAIL_EXISTS} como antes.
+ * <p>
+ * Los emails se indexan en minúsculas: el registro los guarda así y rechaza las variantes de un email existente
+ * ({@link UserService#register}), así que una variante se da por ocupada. Métrica: {@code auth.availability.lookups} con {@code field} y
+ * {@code source} ({@code index} o {@code db}).
+ */
+@Component
+public class AvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    private static final String SELECT = "select id, username, email from users";
+
+    private final JdbcTemplate jdbc;
+    private final UserRepository users;
+    private final double fpp;
+    private final long minCapacity;
+    private final Counter usernameIndex, usernameDb, emailIndex, emailDb;
+
+    private final Object swapLock = new Object();
+    private volatile Filters filters;
+    /** Altas durante una reconstrucción, para repetirlas en los filtros nuevos; con {@code swapLock}. */
+    private Queue<String[]> pending;
+
+    public AvailabilityIndex(JdbcTemplate jdbc, UserRepository users, MeterRegistry meters,
+                             @Value("${app.availability.false-positive-rate:0.01}") double fpp,
+                             @Value("${app.availability.min-capacity:100000}") long minCapacity) {
+        this.jdbc = jdbc;
+        this.users = users;
+        this.fpp = fpp;
+        this.minCapacity = minCapacity;
+        this.usernameIndex = meters.counter("auth.availability.lookups", "field", "username", "source", "index");
+        this.usernameDb = meters.counter("auth.availability.lookups", "field", "username", "source", "db");
+        this.emailIndex = meters.counter("auth.availability.lookups", "field", "email", "source", "index");
+        this.emailDb = meters.counter("auth.availability.lookups", "field", "email", "source", "db");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            Long count = jdbc.queryForObject("select count(*) from users", Long.class);
+            rebuild(Math.max(minCapacity, 2 * (count == null ? 0 : count)));
+        } catch (RuntimeException e) {
+            // Sin índice se responde igual, consultando la BD
+            log.warn("AvailabilityIndex: no se pudo cargar: {}", e.getMessage());
+        }
+    }
+
+    /** Lee los usuarios creados desde la última carga (en esta u otra réplica). */
+    @Scheduled(fixedDelayString = "${app.availability.refresh-ms:30000}",
+            initialDelayString = "${app.availability.refresh-ms:30000}")
+    public synchronized void refresh() {
+        Filters f = filters;
+        if (f == null) return;
+        jdbc.query(SELECT + " where id > ? order by id", rs -> {
+            f.add(rs.getString(2), rs.getString(3));
+            f.maxId.accumulateAndGet(rs.getLong(1), Math::max);
+        }, f.maxId.get());
+        if (f.size.get() > f.capacity) rebuild(2 * f.capacity);
+    }
+
+    /** {@code true} si {@code username} está ocupado. */
+    public boolean usernameTaken(String username) {
+        Filters f = filters;
+        if (f != null && !f.usernames.mightContain(username)) {
+            usernameIndex.increment();
+            return false;
+        }
+        usernameDb.increment();
+        return users.existsByUsername(username);
+    }
+
+    /** {@code true} si {@code email} está ocupado, sin distinguir mayúsculas. */
+    public boolean emailTaken(String email) {
+        Filters f = filters;
+        if (f != null && !f.emails.mightContain(email.toLowerCase(Locale.ROOT))) {
+            emailIndex.increment();
+            return false;
+        }
+        emailDb.increment();
+        return users.existsEmailIgnoreCase(email);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistered(UserRegisteredEvent event) {
+        add(event.username(), event.email());
+    }
+
+    void add(String username, String email) {
+        synchronized (swapLock) {
+            if (filters != null) filters.add(username, email);
+            if (pending != null) pending.add(new String[]{username, email});
+        }
+    }
+
+    private synchronized void rebuild(long capacity) {
+        Queue<String[]> added = new ArrayDeque<>();
+        synchronized (swapLock) {
+            pending = added;
+        }
+        Filters f = new Filters(capacity, fpp);
+        try {
+            jdbc.query(SELECT, rs -> {
+                f.add(rs.getString(2), rs.getString(3));
+                f.maxId.accumulateAndGet(rs.getLong(1), Math::max);
+            });
+        } catch (RuntimeException e) {
+            synchronized (swapLock) {
+                pending = null;
+            }
+            throw e;
+        }
+        synchronized (swapLock) {
+            for (String[] u : added) f.add(u[0], u[1]);
+            filters = f;
+            pending = null;
+        }
+        log.info("AvailabilityIndex: {} usuarios, capacidad {} ({} KiB)",
+                f.size.get(), capacity, 2 * f.usernames.bytes() / 1024);
+    }
+
+    private static final class Filters {
+        final BloomFilter usernames;
+        final BloomFilter emails;
+        final long capacity;
+        final AtomicLong size = new AtomicLong();
+        final AtomicLong maxId = new AtomicLong();
+
+        Filters(long capacity, double fpp) {
+            this.usernames = new BloomFilter(capacity, fpp);
+            this.emails = new BloomFilter(capacity, fpp);
+            this.capacity = capacity;
+        }
+
+        void add(String username, String email) {
+            usernames.add(username);
+            emails.add(email.toLowerCase(Locale.ROOT));
+            size.incrementAndGet();
+        }
+    }
+}
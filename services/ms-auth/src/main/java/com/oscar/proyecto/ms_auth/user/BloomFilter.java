@@ -0,0 +1,71 @@
+package com.oscar.proyecto.ms_auth.user;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Filtro de Bloom de cadenas para {@link AvailabilityIndex}: {@code false} en {@link #mightContain} es seguro,
+ * {@code true} puede ser un falso positivo (con probabilidad {@code fpp} hasta {@code capacity} elementos).
+ * <p>
+ * Bits en un {@code long[]} que se marcan con OR atómico, así que {@link #add} y {@link #mightContain} no
+ * bloquean. Las {@code k} posiciones salen de dos hashes de 64 bits (Kirsch-Mitzenmacher).
+ */
+final class BloomFilter {
+
+    private static final VarHandle BITS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] bits;
+    private final long size;
+    private final int hashes;
+
+    BloomFilter(long capacity, double fpp) {
+        if (capacity < 1) throw new IllegalArgumentException("bloom filter capacity must be positive");
+        if (fpp <= 0 || fpp >= 1) throw new IllegalArgumentException("bloom filter fpp must be in (0, 1)");
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-capacity * Math.log(fpp) / (ln2 * ln2));
+        this.bits = new long[(int) Math.min((m + 63) >>> 6, Integer.MAX_VALUE - 8)];
+        this.size = (long) bits.length << 6;
+        this.hashes = Math.max(1, (int) Math.round((double) size / capacity * ln2));
+    }
+
+    void add(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, size);
+            BITS.getAndBitwiseOr(bits, (int) (bit >>> 6), 1L << bit);
+        }
+    }
+
+    boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, size);
+            if (((long) BITS.getOpaque(bits, (int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Tamaño en bytes del array de bits. */
+    long bytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    /** FNV-1a de los caracteres UTF-16 y el finalizador de MurmurHash3. */
+    private static long hash(String value) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
@@ -0,0 +1,4 @@
+package com.oscar.proyecto.ms_auth.user;
+
+/** Lo que necesita el login de un usuario, sin cargar la entidad ni sus roles. */
+public record LoginUser(long id, String username, String passwordHash, boolean enabled) {}
@@ -1,7 +1,10 @@
 package com.oscar.proyecto.ms_auth.user;
 
+import com.oscar.proyecto.ms_auth.authz.Role;
 import jakarta.persistence.*;
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
 @Table(name = "users", uniqueConstraints = {
@@ -29,6 +32,12 @@ public class User {
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
 
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "user_roles",
+            joinColumns = @JoinColumn(name = "user_id"),
+            inverseJoinColumns = @JoinColumn(name = "role_id"))
+    private Set<Role> roles = new HashSet<>();
+
     // ----- Lifecycle -----
     @PrePersist
     protected void onCreate() {
@@ -55,4 +64,6 @@ public class User {
 
     public Instant getCreatedAt() { return createdAt; }
     public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Set<Role> getRoles() { return roles; }
 }
@@ -0,0 +1,63 @@
+package com.oscar.proyecto.ms_auth.user;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Índice único {@code uk_users_email_lower} sobre {@code lower(email)}: el login por email
+ * ({@link UserRepository#findLogin}) lo usa y el registro no admite dos emails que solo difieran en mayúsculas,
+ * tampoco frente a los guardados antes de normalizarlos ({@link UserService#register}). Hibernate no genera
+ * índices de expresiones, así que se crea al arrancar (solo PostgreSQL) con {@code CONCURRENTLY} para no
+ * bloquear las escrituras en {@code users}, y sustituye al antiguo {@code idx_users_email_lower}, que no era único.
+ * <p>
+ * Si ya hay emails repetidos en mayúsculas el índice único no se puede crear: se deja el no único para el login
+ * (que elige el usuario más antiguo) y se avisa en el log para resolverlos a mano.
+ */
+@Component
+public class UserEmailIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(UserEmailIndex.class);
+
+    private final JdbcTemplate jdbc;
+    private final boolean postgres;
+
+    public UserEmailIndex(JdbcTemplate jdbc, @Value("${spring.datasource.url:}") String datasourceUrl) {
+        this.jdbc = jdbc;
+        this.postgres = datasourceUrl.startsWith("jdbc:postgresql:");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (!postgres) return;
+        try {
+            dropIfInvalid();
+            jdbc.execute("create unique index concurrently if not exists uk_users_email_lower on users (lower(email))");
+            jdbc.execute("drop index concurrently if exists idx_users_email_lower");
+        } catch (RuntimeException e) {
+            log.warn("UserEmailIndex: no se pudo crear uk_users_email_lower (¿emails repetidos en mayúsculas?): {}",
+                    e.getMessage());
+            try {
+                dropIfInvalid();
+                jdbc.execute("create index concurrently if not exists idx_users_email_lower on users (lower(email))");
+            } catch (RuntimeException e2) {
+                // Sin el índice el login por email funciona igual, solo que con un recorrido secuencial
+                log.warn("UserEmailIndex: no se pudo crear idx_users_email_lower: {}", e2.getMessage());
+            }
+        }
+    }
+
+    /** Un {@code CREATE INDEX CONCURRENTLY} fallido deja el índice inválido y {@code if not exists} lo daría por bueno. */
+    private void dropIfInvalid() {
+        Boolean invalid = jdbc.query(
+                "select not i.indisvalid from pg_index i where i.indexrelid = to_regclass('uk_users_email_lower')",
+                rs -> rs.next() ? rs.getBoolean(1) : Boolean.FALSE);
+        if (Boolean.TRUE.equals(invalid)) {
+            jdbc.execute("drop index concurrently if exists uk_users_email_lower");
+        }
+    }
+}
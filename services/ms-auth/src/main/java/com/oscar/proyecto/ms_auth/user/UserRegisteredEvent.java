@@ -0,0 +1,4 @@
+package com.oscar.proyecto.ms_auth.user;
+
+/** Publicado por {@link UserService#register}; los oyentes transaccionales lo reciben tras el commit. */
+public record UserRegisteredEvent(String username, String email) {}
@@ -1,6 +1,13 @@
 package com.oscar.proyecto.ms_auth.user;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -9,4 +16,25 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
     Optional<User> findByEmail(String email);
     Optional<User> findByEmailIgnoreCase(String email);
+
+    /**
+     * Login por username o email (sin distinguir mayúsculas) en una sola consulta, sobre
+     * {@code uk_users_username} y {@code uk_users_email_lower}. Si coinciden dos usuarios gana el username y,
+     * entre emails antiguos que solo difieren en mayúsculas, el usuario más antiguo.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.oscar.proyecto.ms_auth.user.LoginUser(u.id, u.username, u.passwordHash, u.enabled)"
+            + " from User u where u.username = :login or lower(u.email) = lower(:login)"
+            + " order by case when u.username = :login then 0 else 1 end, u.id")
+    List<LoginUser> findLogin(@Param("login") String login, Limit limit);
+
+    /** Sobre {@code uk_users_email_lower}, como {@link #findLogin}. */
+    @Query("select count(u) > 0 from User u where lower(u.email) = lower(:email)")
+    boolean existsEmailIgnoreCase(@Param("email") String email);
+
+    /** Transacción propia: el login la llama sin ninguna abierta ({@link UserService#authenticate}). */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.passwordHash = :hash where u.id = :id")
+    int updatePasswordHash(@Param("id") long id, @Param("hash") String hash);
 }
@@ -1,47 +1,87 @@
 package com.oscar.proyecto.ms_auth.user;
 
 import com.oscar.proyecto.ms_auth.exception.*;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
 public class UserService {
     private final UserRepository userRepo;
     private final PasswordEncoder encoder;
+    private final ApplicationEventPublisher events;
 
-    public UserService(UserRepository repo, PasswordEncoder encoder) {
+    public UserService(UserRepository repo, PasswordEncoder encoder, ApplicationEventPublisher events) {
         this.userRepo = repo;
         this.encoder = encoder;
+        this.events = events;
     }
 
-    @Transactional
+    /**
+     * Un único {@code INSERT}: los duplicados los detectan {@code uk_users_username}/{@code uk_users_email}
+     * (sin carrera entre comprobar y guardar) y se traducen a las excepciones de siempre.
+     * El email se guarda en minúsculas, igual que lo busca el login, así que dos variantes del mismo email
+     * chocan en {@code uk_users_email}; con PostgreSQL, {@code uk_users_email_lower} cubre además los emails
+     * antiguos guardados con mayúsculas ({@link UserEmailIndex}).
+     * Publica {@link UserRegisteredEvent} para {@link AvailabilityIndex}.
+     * <p>
+     * Sin transacción propia: el hash se calcula antes (esperando, si hace falta, al pool de hashing) y el
+     * {@code INSERT} va en la transacción corta de {@code saveAndFlush}. Así una cola de hashes no retiene
+     * conexiones de Hikari y, si el pool está lleno, se responde 429 en vez de esperar por una conexión.
+     */
     public User register(String username, String email, String rawPassword) {
-        if (userRepo.existsByUsername(username)) throw new UsernameAlreadyExistsException();
-        // Si tienes existsByEmailIgnoreCase, úsalo; si no, el de siempre:
-        if (userRepo.existsByEmail(email)) throw new EmailAlreadyExistsException();
-
+        String hash = encoder.encode(rawPassword);
+        email = email.toLowerCase(Locale.ROOT);
         User u = new User();
         u.setUsername(username);
         u.setEmail(email);
-        u.setPasswordHash(encoder.encode(rawPassword));
-        return userRepo.save(u);
+        u.setPasswordHash(hash);
+        User saved;
+        try {
+            saved = userRepo.saveAndFlush(u);
+        } catch (DataIntegrityViolationException e) {
+            String constraint = violatedConstraint(e);
+            if (constraint.contains("uk_users_username")) throw new UsernameAlreadyExistsException();
+            // uk_users_email y uk_users_email_lower
+            if (constraint.contains("uk_users_email")) throw new EmailAlreadyExistsException();
+            throw e;
+        }
+        events.publishEvent(new UserRegisteredEvent(username, email));
+        return saved;
     }
 
-    @Transactional(readOnly = true)
-    public User authenticate(String usernameOrEmail, String rawPassword) {
-        var user = userRepo.findByUsername(usernameOrEmail)
-                .or(() -> userRepo.findByEmail(usernameOrEmail))
+    /**
+     * Tras un login correcto rehace el hash si es de otro algoritmo o de menos coste que el configurado
+     * ({@code app.password.*}). Si el pool de hashing está lleno se deja para el siguiente login.
+     * <p>
+     * Sin transacción propia, por lo mismo que {@link #register}: la consulta y la actualización del hash
+     * llevan cada una la suya ({@link UserRepository}) y la comprobación de la contraseña va entre ambas sin
+     * conexión.
+     */
+    public LoginUser authenticate(String usernameOrEmail, String rawPassword) {
+        var user = userRepo.findLogin(usernameOrEmail, Limit.of(1)).stream().findFirst()
                 .orElseThrow(InvalidCredentialsException::new);
 
-        if (!encoder.matches(rawPassword, user.getPasswordHash())) {
+        if (!encoder.matches(rawPassword, user.passwordHash())) {
             throw new InvalidCredentialsException();
         }
-        if (!user.isEnabled()) {
+        if (!user.enabled()) {
             throw new EmailNotVerifiedException(); // ⬅️ aquí el cambio
         }
+        if (encoder.upgradeEncoding(user.passwordHash())) {
+            try {
+                userRepo.updatePasswordHash(user.id(), encoder.encode(rawPassword));
+            } catch (PasswordHashingBusyException ignored) {
+                // el login ya es válido; no se rechaza por no poder actualizar el hash
+            }
+        }
 
         return user;
     }
@@ -51,6 +91,11 @@ public class UserService {
         return userRepo.findById(id).orElseThrow(UserNotFoundException::new);
     }
 
+    @Transactional(readOnly = true)
+    public User requireByUsername(String username) {
+        return userRepo.findByUsername(username).orElseThrow(UserNotFoundException::new);
+    }
+
     @Transactional
     public void changePassword(Long id, String currentPassword, String newPassword) {
         var user = requireById(id);
@@ -74,4 +119,14 @@ public class UserService {
         user.setPasswordHash(encoder.encode(rawPassword));
         userRepo.save(user);
     }
+
+    /** Nombre de la restricción violada (en minúsculas) o, si el driver no lo da, el mensaje. */
+    private static String violatedConstraint(DataIntegrityViolationException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConstraintViolationException cve && cve.getConstraintName() != null) {
+                return cve.getConstraintName().toLowerCase();
+            }
+        }
+        return String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase();
+    }
 }
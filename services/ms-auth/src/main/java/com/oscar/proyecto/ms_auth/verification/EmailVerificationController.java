@@ -1,8 +1,10 @@
 package com.oscar.proyecto.ms_auth.verification;
 
+import com.oscar.proyecto.ms_auth.ratelimit.CredentialThrottle;
 import com.oscar.proyecto.ms_auth.user.UserService;
 import com.oscar.proyecto.ms_auth.verification.EmailVerificationService;
 import io.swagger.v3.oas.annotations.Operation;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.http.ResponseEntity;
@@ -14,15 +16,20 @@ public class EmailVerificationController {
 
     private final EmailVerificationService verification;
     private final UserService users;
+    private final CredentialThrottle throttle;
 
-    public EmailVerificationController(EmailVerificationService verification, UserService users) {
+    public EmailVerificationController(EmailVerificationService verification, UserService users,
+                                       CredentialThrottle throttle) {
         this.verification = verification;
         this.users = users;
+        this.throttle = throttle;
     }
 
-    @Operation(summary = "Solicitar o reenviar verificación (si el usuario existe y no está verificado). Responde 204 siempre.")
+    @Operation(summary = "Solicitar o reenviar verificación (si el usuario existe y no está verificado). "
+            + "Responde 204 salvo 429 RATE_LIMITED por IP o email.")
     @PostMapping("/verify-email/request")
-    public ResponseEntity<Void> request(@RequestBody VerifyEmailRequest body) {
+    public ResponseEntity<Void> request(@RequestBody VerifyEmailRequest body, HttpServletRequest http) {
+        throttle.check(CredentialThrottle.Endpoint.VERIFY_EMAIL, http, body.email());
         users.findByEmailIgnoreCase(body.email()).ifPresent(u -> {
             if (!u.isEnabled()) verification.send(u);
         });
@@ -1,6 +1,7 @@
 package com.oscar.proyecto.ms_auth.verification;
 
 import com.oscar.proyecto.ms_auth.mail.MailSenderPort;
+import com.oscar.proyecto.ms_auth.token.TokenCodec;
 import com.oscar.proyecto.ms_auth.user.User;
 import com.oscar.proyecto.ms_auth.user.UserRepository;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,12 +10,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.SecureRandom;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Base64;
 
 @Service
 public class EmailVerificationService {
@@ -22,7 +19,6 @@ public class EmailVerificationService {
     private final EmailVerificationTokenRepository tokens;
     private final UserRepository users;
     private final MailSenderPort mail;
-    private final SecureRandom rnd = new SecureRandom();
 
     private final Duration ttl;
     private final String backendVerifyUrl;
@@ -54,8 +50,8 @@ public class EmailVerificationService {
         tokens.deleteByUser_IdAndUsedAtIsNull(u.getId());
 
         // genera token (plaintext) y guarda solo su hash
-        String plain = randomToken();
-        String hash = sha256(plain);
+        String plain = TokenCodec.randomToken(32); // 256 bits
+        String hash = TokenCodec.sha256Url(plain);
 
         var t = new EmailVerificationToken();
         t.setUser(u);
@@ -86,7 +82,7 @@ public class EmailVerificationService {
      */
     @Transactional
     public void confirm(String plainToken) {
-        String hash = sha256(plainToken);
+        String hash = TokenCodec.sha256Url(plainToken);
         var t = tokens.findByTokenHash(hash)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST));
 
@@ -110,7 +106,7 @@ public class EmailVerificationService {
      */
     @Transactional
     public String confirmAndGetRedirectUrl(String plainToken) {
-        String hash = sha256(plainToken);
+        String hash = TokenCodec.sha256Url(plainToken);
         var opt = tokens.findByTokenHash(hash);
 
         if (opt.isEmpty()) {
@@ -144,22 +140,6 @@ public class EmailVerificationService {
 
     // ===== helpers =====
 
-    private String randomToken() {
-        byte[] b = new byte[32]; // 256 bits
-        rnd.nextBytes(b);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(b);
-    }
-
-    private String sha256(String s) {
-        try {
-            var md = MessageDigest.getInstance("SHA-256");
-            byte[] d = md.digest(s.getBytes(StandardCharsets.UTF_8));
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(d);
-        } catch (Exception e) {
-            throw new IllegalStateException(e);
-        }
-    }
-
     private String buildVerifyLink(String plainToken) {
         if (!backendVerifyUrl.isBlank()) {
             return backendVerifyUrl + "?token=" + plainToken;
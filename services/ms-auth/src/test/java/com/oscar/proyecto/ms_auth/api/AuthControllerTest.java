@@ -4,11 +4,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.oscar.proyecto.ms_auth.api.dto.LoginRequest;
 import com.oscar.proyecto.ms_auth.api.dto.RefreshTokenRequest;
 import com.oscar.proyecto.ms_auth.api.dto.RegisterRequest;
+import com.oscar.proyecto.ms_auth.authz.AuthorizationService;
 import com.oscar.proyecto.ms_auth.exception.GlobalExceptionHandler;
 import com.oscar.proyecto.ms_auth.exception.InvalidCredentialsException;
 import com.oscar.proyecto.ms_auth.jwt.JwtService;
 import com.oscar.proyecto.ms_auth.password.PasswordResetService;   // <-- NUEVO
+import com.oscar.proyecto.ms_auth.ratelimit.CredentialThrottle;
 import com.oscar.proyecto.ms_auth.token.RefreshTokenService;
+import com.oscar.proyecto.ms_auth.user.LoginUser;
 import com.oscar.proyecto.ms_auth.user.User;
 import com.oscar.proyecto.ms_auth.user.UserService;
 import org.junit.jupiter.api.DisplayName;
@@ -44,21 +47,20 @@ class AuthControllerTest {
     @MockitoBean JwtService jwtService;
     @MockitoBean RefreshTokenService refreshTokenService;
     @MockitoBean PasswordResetService passwordResetService; // <-- NUEVO mock requerido por el constructor
+    @MockitoBean AuthorizationService authorizationService;
+    @MockitoBean CredentialThrottle throttle;
 
     @Test
     @DisplayName("POST /auth/login → 200 con token")
     void login_ok() throws Exception {
-        var user = new User();
-        user.setId(1L);
-        user.setUsername("alice");
-        user.setEmail("alice@mail.com");
+        var user = new LoginUser(1L, "alice", "HASHED", true);
 
         var issued = new RefreshTokenService.IssuedRefresh("opaque-refresh", 604800L);
 
         Mockito.when(userService.authenticate("alice", "Secret123")).thenReturn(user);
         Mockito.when(jwtService.generate(eq("alice"), anyMap())).thenReturn("jwt.token.value");
         Mockito.when(jwtService.getExpirationSeconds()).thenReturn(900L);
-        Mockito.when(refreshTokenService.create(user)).thenReturn(issued);
+        Mockito.when(refreshTokenService.create(new RefreshTokenService.UserRef(1L, "alice"))).thenReturn(issued);
         Mockito.when(refreshTokenService.getRefreshExpirationSeconds()).thenReturn(604800L);
 
         var req = new LoginRequest("alice", "Secret123");
@@ -143,6 +145,7 @@ class AuthControllerTest {
         var rotation = new RefreshTokenService.RotationResult(userRef, newIssued);
 
         Mockito.when(refreshTokenService.rotate("old-refresh")).thenReturn(rotation);
+        Mockito.when(authorizationService.accessTokenClaims(1L)).thenReturn(Map.of("uid", 1L));
         Mockito.when(jwtService.generate("alice", Map.of("uid", 1L))).thenReturn("new.jwt.token");
         Mockito.when(jwtService.getExpirationSeconds()).thenReturn(900L);
         Mockito.when(refreshTokenService.getRefreshExpirationSeconds()).thenReturn(604800L);
@@ -0,0 +1,122 @@
+package com.oscar.proyecto.ms_auth.authz;
+
+import com.oscar.proyecto.ms_auth.exception.ForbiddenOperationException;
+import com.oscar.proyecto.ms_auth.exception.RoleNotFoundException;
+import com.oscar.proyecto.ms_auth.exception.UnknownPermissionException;
+import com.oscar.proyecto.ms_auth.revocation.TokenEpochService;
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import com.oscar.shared.security.Permission;
+import com.oscar.shared.security.PermissionBits;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class AuthorizationServiceTest {
+
+    RoleRepository roles = mock(RoleRepository.class);
+    UserRepository users = mock(UserRepository.class);
+    TokenEpochService tokenEpochs = mock(TokenEpochService.class);
+
+    AuthorizationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AuthorizationService(roles, users, tokenEpochs, new String[0]);
+    }
+
+    @Test
+    void claims_carry_permission_bitset() {
+        when(roles.findPermissionsOfUser(7L)).thenReturn(List.of(Permission.HR_READ, Permission.PRODUCTION_WRITE));
+
+        Map<String, Object> claims = service.accessTokenClaims(7L);
+
+        assertEquals(7L, claims.get("uid"));
+        long bits = PermissionBits.decode((String) claims.get("authz"));
+        assertEquals(Permission.HR_READ.mask() | Permission.PRODUCTION_WRITE.mask(), bits);
+        assertEquals(List.of(Permission.HR_READ.authority(), Permission.PRODUCTION_WRITE.authority()),
+                PermissionBits.authorities(bits));
+    }
+
+    @Test
+    void claims_without_permissions_omit_authz() {
+        when(roles.findPermissionsOfUser(7L)).thenReturn(List.of());
+
+        assertEquals(Map.of("uid", 7L), service.accessTokenClaims(7L));
+    }
+
+    @Test
+    void set_user_roles_revokes_access_tokens_only_on_change() {
+        Role hr = new Role("HR");
+        User user = new User();
+        user.setId(7L);
+        when(users.findById(7L)).thenReturn(Optional.of(user));
+        when(roles.findByNameIn(Set.of("HR"))).thenReturn(List.of(hr));
+
+        assertEquals(List.of("HR"), service.setUserRoles(7L, List.of("HR")));
+        service.setUserRoles(7L, List.of("HR"));
+
+        assertEquals(Set.of(hr), user.getRoles());
+        verify(tokenEpochs, times(1)).revokeAccessTokens(7L);
+    }
+
+    @Test
+    void set_user_roles_rejects_unknown_role() {
+        when(users.findById(7L)).thenReturn(Optional.of(new User()));
+        when(roles.findByNameIn(any())).thenReturn(List.of());
+
+        assertThrows(RoleNotFoundException.class, () -> service.setUserRoles(7L, List.of("NOPE")));
+        verify(tokenEpochs, never()).revokeAccessTokens(anyLong());
+    }
+
+    @Test
+    void update_role_permissions_revokes_members() {
+        Role hr = spy(new Role("HR"));
+        doReturn(3L).when(hr).getId();
+        when(roles.findByName("HR")).thenReturn(Optional.of(hr));
+        when(roles.findUserIdsByRoleId(3L)).thenReturn(List.of(7L, 8L));
+
+        var view = service.updateRolePermissions("HR", List.of("HR_READ", "HR_WRITE"));
+
+        assertEquals(List.of(Permission.HR_READ, Permission.HR_WRITE), view.permissions());
+        assertEquals(EnumSet.of(Permission.HR_READ, Permission.HR_WRITE), hr.getPermissions());
+        verify(tokenEpochs).revokeAccessTokens(List.of(7L, 8L));
+    }
+
+    @Test
+    void unknown_permission_is_rejected() {
+        when(roles.existsByName("X")).thenReturn(false);
+
+        assertThrows(UnknownPermissionException.class, () -> service.createRole("X", List.of("ROOT")));
+        verify(roles, never()).save(any());
+    }
+
+    @Test
+    void require_admin_checks_the_users_admin_permission() {
+        try {
+            assertThrows(ForbiddenOperationException.class, AuthorizationService::requireAdmin);
+
+            SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(
+                    "bob", null, List.of(Permission.HR_READ.authority())));
+            assertThrows(ForbiddenOperationException.class, AuthorizationService::requireAdmin);
+
+            SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(
+                    "root", null, List.of(Permission.USERS_ADMIN.authority())));
+            assertDoesNotThrow(AuthorizationService::requireAdmin);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
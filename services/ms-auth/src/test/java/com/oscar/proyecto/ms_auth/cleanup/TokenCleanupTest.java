@@ -0,0 +1,148 @@
+package com.oscar.proyecto.ms_auth.cleanup;
+
+import com.oscar.proyecto.ms_auth.password.PasswordResetToken;
+import com.oscar.proyecto.ms_auth.password.PasswordResetTokenRepository;
+import com.oscar.proyecto.ms_auth.token.RefreshSessionCount;
+import com.oscar.proyecto.ms_auth.token.RefreshSessionCountRepository;
+import com.oscar.proyecto.ms_auth.token.RefreshToken;
+import com.oscar.proyecto.ms_auth.token.RefreshTokenPartitions;
+import com.oscar.proyecto.ms_auth.token.RefreshTokenRepository;
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import com.oscar.proyecto.ms_auth.verification.EmailVerificationToken;
+import com.oscar.proyecto.ms_auth.verification.EmailVerificationTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * La limpieza borra solo los caducados de las tres tablas, en varios lotes, descuenta los refresh
+ * borrados de los contadores de sesiones y publica las métricas.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:token-cleanup;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.cleanup.batch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TokenCleanup.class, RefreshTokenPartitions.class, TokenCleanupTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // cada lote confirma su propia transacción
+class TokenCleanupTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean MeterRegistry meterRegistry() { return new SimpleMeterRegistry(); }
+    }
+
+    @Autowired TokenCleanup cleanup;
+    @Autowired MeterRegistry meters;
+    @Autowired UserRepository users;
+    @Autowired RefreshTokenRepository refreshTokens;
+    @Autowired RefreshSessionCountRepository sessionCounts;
+    @Autowired PasswordResetTokenRepository resetTokens;
+    @Autowired EmailVerificationTokenRepository verificationTokens;
+    @Autowired TransactionTemplate tx;
+
+    @Test
+    void removes_only_expired_tokens_in_batches() {
+        Instant past = Instant.now().minus(Duration.ofDays(1));
+        Instant future = Instant.now().plus(Duration.ofDays(1));
+        User alice = user("alice");
+        User bob = user("bob");
+
+        // 5 caducados intercalados con vigentes: varios lotes de 2 y un lote final incompleto
+        for (Instant expiresAt : new Instant[] { past, future, past, past, future, past }) refresh(alice, expiresAt);
+        refresh(bob, past);
+        refresh(bob, future);
+        counter(alice, 6);
+        counter(bob, 2);
+
+        reset(alice, past);
+        reset(alice, past);
+        reset(alice, past);
+        reset(bob, future);
+        verification(alice, past);
+        verification(bob, future);
+
+        cleanup.clean();
+
+        assertThat(refreshTokens.findAll()).allMatch(rt -> rt.getExpiresAt().isAfter(Instant.now()));
+        assertThat(refreshTokens.countByUserId(alice.getId())).isEqualTo(2);
+        assertThat(refreshTokens.countByUserId(bob.getId())).isEqualTo(1);
+        assertThat(sessionCounts.findById(alice.getId())).get()
+                .extracting(RefreshSessionCount::getSessions).isEqualTo(2);
+        assertThat(sessionCounts.findById(bob.getId())).get()
+                .extracting(RefreshSessionCount::getSessions).isEqualTo(1);
+        assertThat(resetTokens.findAll()).singleElement()
+                .extracting(PasswordResetToken::getUserId).isEqualTo(bob.getId());
+        assertThat(verificationTokens.count()).isEqualTo(1);
+
+        assertThat(deleted("refresh_tokens")).isEqualTo(5);
+        assertThat(deleted("password_reset_tokens")).isEqualTo(3);
+        assertThat(deleted("email_verification_tokens")).isEqualTo(1);
+        assertThat(meters.get("auth.token.cleanup.duration").tag("table", "refresh_tokens").timer().count())
+                .isEqualTo(1);
+
+        // Sin caducados pendientes la siguiente pasada no borra nada
+        cleanup.clean();
+        assertThat(deleted("refresh_tokens")).isEqualTo(5);
+        assertThat(refreshTokens.count()).isEqualTo(3);
+    }
+
+    private double deleted(String table) {
+        return meters.get("auth.token.cleanup.deleted").tag("table", table).counter().count();
+    }
+
+    private User user(String name) {
+        User u = new User();
+        u.setUsername(name);
+        u.setEmail(name + "@mail.com");
+        u.setPasswordHash("x");
+        u.setEnabled(true);
+        return users.save(u);
+    }
+
+    private void refresh(User user, Instant expiresAt) {
+        RefreshToken rt = new RefreshToken();
+        rt.setUser(user);
+        rt.setTokenHash(UUID.randomUUID().toString());
+        rt.setExpiresAt(expiresAt);
+        refreshTokens.save(rt);
+    }
+
+    private void counter(User user, int sessions) {
+        tx.executeWithoutResult(status -> sessionCounts.insert(user.getId(), sessions));
+    }
+
+    private void reset(User user, Instant expiresAt) {
+        PasswordResetToken t = new PasswordResetToken();
+        t.setUserId(user.getId());
+        t.setTokenHash(UUID.randomUUID().toString());
+        t.setExpiresAt(expiresAt);
+        t.setCreatedAt(Instant.now());
+        resetTokens.save(t);
+    }
+
+    private void verification(User user, Instant expiresAt) {
+        EmailVerificationToken t = new EmailVerificationToken();
+        t.setUser(user);
+        t.setTokenHash(UUID.randomUUID().toString());
+        t.setExpiresAt(expiresAt);
+        verificationTokens.save(t);
+    }
+}
@@ -30,6 +30,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *  - 200 con token válido (y el principal correcto)
  *  - 401 con token inválido
  *  - 200 en una ruta permitida (actuator/health)
+ *  - /internal/** solo con el secreto compartido (ni anónimo ni con un JWT de usuario)
  *  - logout revoca el refresh token y ya no permite /auth/refresh (401)
  *
  * Usa H2 en memoria para evitar dependencia de Postgres.
@@ -46,7 +47,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         "logging.level.org.springframework.security=ERROR",
         // issuer/keys para shared.security / JwtService
         "app.jwt.issuer=ms-auth",
-        "app.jwt.public-key-location=classpath:jwt/public.pem"
+        "app.jwt.public-key-location=classpath:jwt/public.pem",
+        "security.internal-token=test-internal-token"
 })
 @AutoConfigureMockMvc
 @Import(SecurityConfigTest.ProtectedController.class)
@@ -100,6 +102,21 @@ class SecurityConfigTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("GET /internal/token-epochs sin secreto → 401, con JWT de usuario → 403, con secreto → 200")
+    void revocation_feed_requires_the_internal_token() throws Exception {
+        mvc.perform(get("/internal/token-epochs"))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(get("/internal/token-epochs").header("X-Internal-Token", "wrong"))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(get("/internal/token-epochs")
+                        .header("Authorization", "Bearer " + jwtService.generate("alice", Map.of("uid", 1L))))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/internal/token-epochs").header("X-Internal-Token", "test-internal-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cursor").exists());
+    }
+
     @Test
     @DisplayName("POST /auth/logout revoca el refresh y /auth/refresh devuelve 401")
     void logout_revokes_refresh_token_and_refresh_returns_401() throws Exception {
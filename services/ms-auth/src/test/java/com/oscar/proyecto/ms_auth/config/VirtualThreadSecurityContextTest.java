@@ -0,0 +1,149 @@
+package com.oscar.proyecto.ms_auth.config;
+
+import com.oscar.shared.security.JwtTokenVerifier;
+import com.oscar.shared.security.MSJwtAuthFilter;
+import com.oscar.shared.security.MSSecurityConfig;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Verifica que el {@code SecurityContextHolder} funciona con {@code spring.threads.virtual.enabled=true}:
+ *  - el filtro JWT autentica y el controlador ve el principal dentro del mismo hilo virtual
+ *  - el contexto no se filtra a la siguiente petición atendida por otro hilo virtual
+ *  - el {@link TaskDecorator} de {@link MSSecurityConfig} lo propaga al trabajo asíncrono
+ *
+ * Solo se ejecuta con Java 21+ (hilos virtuales).
+ */
+class VirtualThreadSecurityContextTest {
+
+    KeyPair keys;
+    MSJwtAuthFilter filter;
+    SimpleAsyncTaskExecutor virtualThreads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads require Java 21");
+
+        KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+        gen.initialize(2048);
+        keys = gen.generateKeyPair();
+        filter = new MSJwtAuthFilter(new JwtTokenVerifier(keys.getPublic(), "ms-auth", null));
+
+        // Mismo executor que Spring Boot crea con spring.threads.virtual.enabled=true
+        virtualThreads = new SimpleAsyncTaskExecutor("vt-test-");
+        virtualThreads.setVirtualThreads(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filter_authenticates_request_on_virtual_thread() throws Exception {
+        String token = token("alice");
+
+        CompletableFuture<Object[]> seen = new CompletableFuture<>();
+        virtualThreads.execute(() -> {
+            try {
+                var req = new MockHttpServletRequest("GET", "/api/me");
+                req.addHeader("Authorization", "Bearer " + token);
+                filter.doFilter(req, new MockHttpServletResponse(), (rq, rs) -> {
+                    Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+                    seen.complete(new Object[]{isVirtual(Thread.currentThread()), auth == null ? null : auth.getName()});
+                });
+            } catch (Exception e) {
+                seen.completeExceptionally(e);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+
+        Object[] result = seen.get(10, TimeUnit.SECONDS);
+        assertEquals(true, result[0]);
+        assertEquals("alice", result[1]);
+    }
+
+    @Test
+    void context_does_not_leak_between_virtual_threads() throws Exception {
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        virtualThreads.execute(() -> {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken("alice", null, List.of()));
+            first.complete(null);
+        });
+        first.get(10, TimeUnit.SECONDS);
+
+        CompletableFuture<Authentication> second = new CompletableFuture<>();
+        virtualThreads.execute(() -> second.complete(SecurityContextHolder.getContext().getAuthentication()));
+
+        assertNull(second.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void task_decorator_propagates_context_to_async_virtual_thread() throws Exception {
+        TaskDecorator decorator = new MSSecurityConfig().securityContextTaskDecorator();
+        SimpleAsyncTaskExecutor async = new SimpleAsyncTaskExecutor("vt-async-");
+        async.setVirtualThreads(true);
+        async.setTaskDecorator(decorator);
+
+        AtomicReference<String> seenByAsync = new AtomicReference<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        virtualThreads.execute(() -> {
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken("bob", null, List.of()));
+            async.execute(() -> {
+                Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+                seenByAsync.set(auth == null ? null : auth.getName());
+                done.complete(null);
+            });
+            SecurityContextHolder.clearContext();
+        });
+
+        done.get(10, TimeUnit.SECONDS);
+        assertEquals("bob", seenByAsync.get());
+    }
+
+    // Thread.isVirtual() no existe al compilar para Java 17
+    private static boolean isVirtual(Thread t) {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(t);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private String token(String subject) {
+        Instant now = Instant.now();
+        return Jwts.builder()
+                .subject(subject)
+                .issuer("ms-auth")
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plusSeconds(60)))
+                .claim("roles", List.of("USER"))
+                .signWith(keys.getPrivate())
+                .compact();
+    }
+}
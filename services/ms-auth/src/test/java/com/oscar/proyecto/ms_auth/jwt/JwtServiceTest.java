@@ -0,0 +1,139 @@
+package com.oscar.proyecto.ms_auth.jwt;
+
+import com.oscar.shared.security.JwtAlgorithm;
+import com.oscar.shared.security.JwtKeySet;
+import com.oscar.shared.security.JwtTokenVerifier;
+import com.oscar.shared.security.Permission;
+import com.oscar.shared.security.PermissionBits;
+import com.oscar.shared.security.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los tokens del camino rápido ({@link AccessTokenMinter}) deben ser indistinguibles de los del
+ * builder de jjwt para cualquier verificador: mismo esquema de claims y cabecera, firma válida.
+ */
+class JwtServiceTest {
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void minted_token_is_verified_by_jjwt_and_shared_verifier(JwtAlgorithm algorithm) throws Exception {
+        KeyPair keys = keyPair(algorithm);
+        JwtService service = service(algorithm, keys);
+
+        String token = service.generate("alice", Map.of("uid", 42L));
+
+        Jws<Claims> jws = Jwts.parser().verifyWith(keys.getPublic()).build().parseSignedClaims(token);
+        assertEquals(algorithm.name(), jws.getHeader().getAlgorithm());
+        assertEquals("JWT", jws.getHeader().getType());
+        assertEquals(service.getKeyId(), jws.getHeader().getKeyId());
+
+        Claims claims = service.parseClaims(token);
+        assertNotNull(claims);
+        assertEquals("alice", claims.getSubject());
+        assertEquals("ms-auth", claims.getIssuer());
+        assertEquals(Set.of("api"), claims.getAudience());
+        assertEquals(42L, claims.get("uid", Long.class));
+        assertEquals(3600, (claims.getExpiration().getTime() - claims.getIssuedAt().getTime()) / 1000);
+        assertTrue(claims.getId().matches("[0-9a-f]{8}-[0-9a-f]{4}-4[0-9a-f]{3}-[89ab][0-9a-f]{3}-[0-9a-f]{12}"));
+
+        VerifiedTokenCache.Entry verified = new JwtTokenVerifier(new JwtKeySet(keys.getPublic()), "ms-auth", null)
+                .verify(token);
+        assertEquals("alice", verified.subject());
+        assertEquals(42L, verified.uid());
+    }
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void strings_and_lists_are_escaped_and_encoded(JwtAlgorithm algorithm) throws Exception {
+        KeyPair keys = keyPair(algorithm);
+        JwtService service = service(algorithm, keys);
+        String subject = "o\"scar\\ñ€😀\n";
+
+        String token = service.generate(subject, Map.of("uid", 7, "roles", List.of("USER", "HR"), "mfa", true));
+
+        Claims claims = service.parseClaims(token);
+        assertNotNull(claims);
+        assertEquals(subject, claims.getSubject());
+        assertEquals(List.of("USER", "HR"), claims.get("roles", List.class));
+        assertEquals(true, claims.get("mfa", Boolean.class));
+        assertEquals(2, new JwtTokenVerifier(keys.getPublic(), "ms-auth", null).verify(token).authorities().size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void authz_bitset_maps_to_shared_authorities(JwtAlgorithm algorithm) throws Exception {
+        KeyPair keys = keyPair(algorithm);
+        JwtService service = service(algorithm, keys);
+        long bits = Permission.USERS_ADMIN.mask() | Permission.HR_WRITE.mask();
+
+        String token = service.generate("alice", Map.of("uid", 1L, "authz", PermissionBits.encode(bits)));
+        // Sin caché: cada verificación vuelve a decodificar el claim
+        JwtTokenVerifier verifier = new JwtTokenVerifier(keys.getPublic(), "ms-auth", null);
+        VerifiedTokenCache.Entry first = verifier.verify(token);
+        VerifiedTokenCache.Entry second = verifier.verify(token);
+
+        assertEquals(List.of(Permission.USERS_ADMIN.authority(), Permission.HR_WRITE.authority()), first.authorities());
+        assertSame(first.authorities(), second.authorities());
+        assertSame(Permission.USERS_ADMIN.authority(), first.authorities().iterator().next());
+    }
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void unsupported_claims_fall_back_to_builder(JwtAlgorithm algorithm) throws Exception {
+        KeyPair keys = keyPair(algorithm);
+        JwtService service = service(algorithm, keys);
+
+        String nested = service.generate("alice", Map.of("profile", Map.of("team", "A")));
+        String override = service.generate("alice", Map.of("aud", "other"));
+
+        assertEquals(Map.of("team", "A"), service.parseClaims(nested).get("profile", Map.class));
+        assertNotNull(Jwts.parser().verifyWith(keys.getPublic()).build().parseSignedClaims(override));
+    }
+
+    private static JwtService service(JwtAlgorithm algorithm, KeyPair keys) {
+        return new JwtService(
+                pem("PRIVATE KEY", keys.getPrivate().getEncoded()),
+                pem("PUBLIC KEY", keys.getPublic().getEncoded()),
+                60, "ms-auth", "api", algorithm.name(), "", new String[0], new DefaultResourceLoader());
+    }
+
+    private static KeyPair keyPair(JwtAlgorithm algorithm) throws Exception {
+        return switch (algorithm) {
+            case RS256 -> {
+                KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+                gen.initialize(2048);
+                yield gen.generateKeyPair();
+            }
+            case ES256 -> {
+                KeyPairGenerator gen = KeyPairGenerator.getInstance("EC");
+                gen.initialize(new ECGenParameterSpec("secp256r1"));
+                yield gen.generateKeyPair();
+            }
+            case EdDSA -> KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        };
+    }
+
+    private static ByteArrayResource pem(String type, byte[] der) {
+        String pem = "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+        return new ByteArrayResource(pem.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,75 @@
+package com.oscar.proyecto.ms_auth.password;
+
+import com.oscar.proyecto.ms_auth.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @Test
+    void delegates_on_the_hashing_pool_and_records_metrics() {
+        PasswordEncoder delegate = new PasswordEncoder() {
+            @Override public String encode(CharSequence raw) {
+                return Thread.currentThread().getName() + ":" + raw;
+            }
+            @Override public boolean matches(CharSequence raw, String encoded) {
+                return encoded.endsWith(":" + raw);
+            }
+        };
+
+        try (var encoder = new BoundedPasswordEncoder(delegate, 2, 4, 3, meters)) {
+            String hash = encoder.encode("Secret123");
+            assertTrue(hash.startsWith("password-hash-"), hash);
+            assertTrue(encoder.matches("Secret123", hash));
+            assertFalse(encoder.matches("bad", hash));
+        }
+
+        assertEquals(1, meters.get("auth.password.hash.duration").tag("op", "encode").timer().count());
+        assertEquals(2, meters.get("auth.password.hash.duration").tag("op", "matches").timer().count());
+        assertEquals(3, meters.get("auth.password.hash.wait").timer().count());
+    }
+
+    @Test
+    void rejects_with_retry_after_when_the_queue_is_full() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = new PasswordEncoder() {
+            @Override public String encode(CharSequence raw) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "H";
+            }
+            @Override public boolean matches(CharSequence raw, String encoded) {
+                return true;
+            }
+        };
+
+        try (var encoder = new BoundedPasswordEncoder(slow, 1, 1, 5, meters)) {
+            var running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            var queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+            while (meters.get("auth.password.hash.queue").gauge().value() < 1) Thread.onSpinWait();
+
+            var ex = assertThrows(PasswordHashingBusyException.class, () -> encoder.matches("c", "H"));
+            assertEquals(5, ex.getRetryAfterSeconds());
+            assertEquals(1, meters.get("auth.password.hash.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("H", running.get(5, TimeUnit.SECONDS));
+            assertEquals("H", queued.get(5, TimeUnit.SECONDS));
+        }
+    }
+}
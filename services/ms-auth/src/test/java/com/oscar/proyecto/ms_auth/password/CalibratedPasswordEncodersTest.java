@@ -0,0 +1,79 @@
+package com.oscar.proyecto.ms_auth.password;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalibratedPasswordEncodersTest {
+
+    @Test
+    void legacy_unprefixed_bcrypt_still_matches_and_is_upgraded() {
+        String legacy = new BCryptPasswordEncoder(4).encode("Secret123");
+        PasswordEncoder encoder = CalibratedPasswordEncoders.create("bcrypt", 5, 0);
+
+        assertTrue(encoder.matches("Secret123", legacy));
+        assertFalse(encoder.matches("bad", legacy));
+        assertTrue(encoder.upgradeEncoding(legacy));
+
+        String current = encoder.encode("Secret123");
+        assertTrue(current.startsWith("{bcrypt}$2a$05$"), current);
+        assertFalse(encoder.upgradeEncoding(current));
+        assertTrue(CalibratedPasswordEncoders.create("bcrypt", 6, 0).upgradeEncoding(current));
+    }
+
+    @Test
+    void switching_algorithm_keeps_old_hashes_valid_and_marks_them_outdated() {
+        String bcrypt = CalibratedPasswordEncoders.create("bcrypt", 4, 0).encode("Secret123");
+        PasswordEncoder pbkdf2 = CalibratedPasswordEncoders.create("pbkdf2", 1_000, 0);
+
+        assertTrue(pbkdf2.matches("Secret123", bcrypt));
+        assertTrue(pbkdf2.upgradeEncoding(bcrypt));
+
+        String hash = pbkdf2.encode("Secret123");
+        assertTrue(hash.startsWith("{pbkdf2}1000$"), hash);
+        assertTrue(pbkdf2.matches("Secret123", hash));
+        assertFalse(pbkdf2.matches("bad", hash));
+        assertFalse(pbkdf2.upgradeEncoding(hash));
+
+        // Más iteraciones: el hash anterior sigue valiendo (lleva las suyas) pero se marca para rehacer
+        PasswordEncoder stronger = CalibratedPasswordEncoders.create("pbkdf2", 2_000, 0);
+        assertTrue(stronger.matches("Secret123", hash));
+        assertTrue(stronger.upgradeEncoding(hash));
+    }
+
+    @Test
+    void malformed_or_zero_iteration_pbkdf2_hashes_do_not_match() {
+        PasswordEncoder pbkdf2 = CalibratedPasswordEncoders.create("pbkdf2", 1_000, 0);
+        String valid = pbkdf2.encode("Secret123").substring("{pbkdf2}".length());
+        String[] parts = valid.split("\\$");
+
+        for (String bad : new String[] {
+                "0$" + parts[1] + "$" + parts[2],
+                "-1000$" + parts[1] + "$" + parts[2],
+                "x$" + parts[1] + "$" + parts[2],
+                "1000$$" + parts[2],
+                "1000$" + parts[1] + "$",
+                "1000$" + parts[1] + "$%%%",
+                parts[0] + "$" + parts[1],
+                "garbage"}) {
+            String encoded = "{pbkdf2}" + bad;
+            assertFalse(pbkdf2.matches("Secret123", encoded), encoded);
+            assertTrue(pbkdf2.upgradeEncoding(encoded), encoded);
+        }
+    }
+
+    @Test
+    void calibration_never_goes_below_the_minimum_cost() {
+        String hash = CalibratedPasswordEncoders.create("bcrypt", 0, 1).encode("Secret123");
+        assertTrue(hash.startsWith("{bcrypt}$2a$10$"), hash);
+    }
+
+    @Test
+    void unknown_or_unavailable_algorithms_fail_at_startup() {
+        assertThrows(IllegalStateException.class, () -> CalibratedPasswordEncoders.create("md5", 1, 0));
+        // Sin BouncyCastle en el classpath de tests
+        assertThrows(IllegalStateException.class, () -> CalibratedPasswordEncoders.create("argon2", 2, 0));
+    }
+}
@@ -0,0 +1,102 @@
+package com.oscar.proyecto.ms_auth.ratelimit;
+
+import com.oscar.proyecto.ms_auth.exception.RateLimitedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.catalina.filters.RemoteIpFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterConfig;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.oscar.proyecto.ms_auth.ratelimit.CredentialThrottle.Endpoint.FORGOT_PASSWORD;
+import static com.oscar.proyecto.ms_auth.ratelimit.CredentialThrottle.Endpoint.LOGIN;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CredentialThrottleTest {
+
+    final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    final CredentialThrottle throttle = new CredentialThrottle(meters, new MockEnvironment()
+            .withProperty("app.rate-limit.login.ip.burst", "4")
+            .withProperty("app.rate-limit.login.account.burst", "2"));
+
+    @Test
+    void limits_failed_logins_per_account_across_ips_ignoring_case() {
+        throttle.check(LOGIN, from("10.0.0.1"), "alice");
+        throttle.failed(LOGIN, "alice");
+        throttle.check(LOGIN, from("10.0.0.2"), " ALICE ");
+        throttle.failed(LOGIN, " ALICE ");
+
+        RateLimitedException ex = assertThrows(RateLimitedException.class,
+                () -> throttle.check(LOGIN, from("10.0.0.3"), "Alice"));
+        assertTrue(ex.getRetryAfterSeconds() >= 1);
+        throttle.check(LOGIN, from("10.0.0.3"), "bob");
+        assertEquals(1, meters.counter("auth.ratelimit.rejected", "limiter", "login-account").count());
+    }
+
+    @Test
+    void successful_logins_do_not_spend_the_account_bucket() {
+        for (int i = 0; i < 10; i++) throttle.check(LOGIN, from("10.0.0." + i), "alice");
+
+        assertEquals(0, meters.counter("auth.ratelimit.rejected", "limiter", "login-account").count());
+    }
+
+    @Test
+    void other_endpoints_charge_the_account_on_every_request() {
+        CredentialThrottle strict = new CredentialThrottle(meters, new MockEnvironment());
+        for (int i = 0; i < 3; i++) strict.check(FORGOT_PASSWORD, from("10.0.0." + i), "alice@mail.com");
+
+        assertThrows(RateLimitedException.class,
+                () -> strict.check(FORGOT_PASSWORD, from("10.0.0.9"), "alice@mail.com"));
+        strict.failed(FORGOT_PASSWORD, "bob@mail.com");
+        strict.check(FORGOT_PASSWORD, from("10.0.0.9"), "bob@mail.com");
+    }
+
+    @Test
+    void limits_each_ip_across_accounts_and_endpoints_independently() {
+        for (int i = 0; i < 4; i++) throttle.check(LOGIN, from("10.0.0.1"), "user" + i);
+        assertThrows(RateLimitedException.class, () -> throttle.check(LOGIN, from("10.0.0.1"), "user9"));
+
+        throttle.check(FORGOT_PASSWORD, from("10.0.0.1"), "user9@mail.com");
+        assertEquals(1, meters.counter("auth.ratelimit.rejected", "limiter", "login-ip").count());
+        // La IP bloqueada no ha consumido de la cuenta
+        throttle.check(LOGIN, from("10.0.0.2"), "user9");
+        throttle.check(LOGIN, from("10.0.0.2"), "user9");
+    }
+
+    @Test
+    void clients_behind_the_tunnel_get_their_own_ip_bucket() throws Exception {
+        // Lo mismo que hace Tomcat con forward-headers-strategy=native y el proxy de docker-compose.yml
+        RemoteIpFilter proxy = new RemoteIpFilter();
+        MockFilterConfig config = new MockFilterConfig();
+        config.addInitParameter("internalProxies", "172\\.30\\.0\\.10");
+        proxy.init(config);
+
+        for (int i = 0; i < 4; i++) throttle.check(LOGIN, forwarded(proxy, "172.30.0.10", "203.0.113.1"), "user" + i);
+        assertThrows(RateLimitedException.class,
+                () -> throttle.check(LOGIN, forwarded(proxy, "172.30.0.10", "203.0.113.1"), "user9"));
+        throttle.check(LOGIN, forwarded(proxy, "172.30.0.10", "203.0.113.2"), "user9");
+
+        // Fuera del túnel (puerto publicado) la cabecera no se cree: cuenta la IP de la conexión
+        HttpServletRequest direct = forwarded(proxy, "198.51.100.7", "203.0.113.3");
+        assertEquals("198.51.100.7", direct.getRemoteAddr());
+    }
+
+    /** La petición tal y como la ve la aplicación tras pasar por {@link RemoteIpFilter}. */
+    private static HttpServletRequest forwarded(RemoteIpFilter proxy, String peer, String client) throws Exception {
+        MockHttpServletRequest request = from(peer);
+        request.addHeader("X-Forwarded-For", client);
+        AtomicReference<HttpServletRequest> seen = new AtomicReference<>();
+        proxy.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set((HttpServletRequest) req));
+        return seen.get();
+    }
+
+    private static MockHttpServletRequest from(String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(ip);
+        return request;
+    }
+}
@@ -0,0 +1,76 @@
+package com.oscar.proyecto.ms_auth.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    final AtomicLong now = new AtomicLong(1_000);
+    final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    @Test
+    void allows_the_burst_then_refills_one_request_per_interval() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter("test", 3, 60, 1_000, meters, now::get);
+
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+        long wait = limiter.tryAcquire("1.2.3.4");
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait);
+        assertEquals(0, limiter.tryAcquire("5.6.7.8"), "las claves no se comparten");
+        assertEquals(1, limiter.tryAcquireSeconds("1.2.3.4"));
+
+        now.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+        assertTrue(limiter.tryAcquire("1.2.3.4") > 0);
+        assertEquals(3, meters.counter("auth.ratelimit.rejected", "limiter", "test").count());
+    }
+
+    @Test
+    void peeking_does_not_consume() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter("test", 2, 60, 1_000, meters, now::get);
+
+        for (int i = 0; i < 5; i++) assertEquals(0, limiter.peekSeconds("alice"));
+        assertEquals(0, limiter.size());
+
+        limiter.tryAcquire("alice");
+        limiter.tryAcquire("alice");
+        assertEquals(1, limiter.peekSeconds("alice"));
+        assertEquals(1, meters.counter("auth.ratelimit.rejected", "limiter", "test").count());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.peekSeconds("alice"));
+    }
+
+    @Test
+    void idle_keys_are_swept_and_new_keys_share_an_overflow_bucket_when_full() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter("test", 2, 60, 0, meters, now::get);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertEquals(1, limiter.size());
+
+        // Un cubo propio por franja: otra clave de la franja de "a" usa el de desbordamiento
+        String other = sameStripeAs("a");
+        assertEquals(0, limiter.tryAcquire(other));
+        assertEquals(0, limiter.tryAcquire(other));
+        assertTrue(limiter.tryAcquire(other) > 0);
+        assertEquals(1, limiter.size());
+
+        // "a" lleva su cubo lleno más de un barrido: se borra y la otra clave ocupa su hueco
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0, limiter.tryAcquire(other));
+        assertEquals(1, limiter.size());
+    }
+
+    private static String sameStripeAs(String key) {
+        int h = key.hashCode() ^ (key.hashCode() >>> 16);
+        for (int i = 0; ; i++) {
+            String candidate = "k" + i;
+            int c = candidate.hashCode() ^ (candidate.hashCode() >>> 16);
+            if ((c & 63) == (h & 63)) return candidate;
+        }
+    }
+}
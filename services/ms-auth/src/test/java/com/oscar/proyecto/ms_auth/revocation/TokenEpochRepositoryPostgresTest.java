@@ -0,0 +1,65 @@
+package com.oscar.proyecto.ms_auth.revocation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link TokenEpochRepository#upsertAll} contra PostgreSQL real: crea los epochs que faltan, sube los
+ * existentes y nunca los hace retroceder. Se salta si no hay Docker.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class TokenEpochRepositoryPostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired TokenEpochRepository epochs;
+    @Autowired TestEntityManager em;
+
+    @Test
+    void upsert_creates_missing_epochs_and_never_moves_them_backwards() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant future = now.plusSeconds(3600);
+        epoch(8L, future, now.minusSeconds(60));
+        epoch(9L, now.minusSeconds(60), now.minusSeconds(60));
+
+        assertThat(epochs.upsertAll(new Long[]{7L, 8L, 9L}, now, now)).isEqualTo(3);
+        em.clear();
+
+        assertThat(epochs.findById(7L)).get().extracting(TokenEpoch::getValidAfter).isEqualTo(now);
+        assertThat(epochs.findById(8L)).get().extracting(TokenEpoch::getValidAfter).isEqualTo(future);
+        assertThat(epochs.findById(9L)).get().extracting(TokenEpoch::getValidAfter).isEqualTo(now);
+        // Todos avanzan el cursor del feed, aunque el epoch no cambie
+        assertThat(epochs.findChangedSince(now, now.minusSeconds(1))).extracting(TokenEpoch::getUserId)
+                .containsExactlyInAnyOrder(7L, 8L, 9L);
+    }
+
+    private void epoch(long userId, Instant validAfter, Instant updatedAt) {
+        TokenEpoch e = new TokenEpoch(userId);
+        e.setValidAfter(validAfter);
+        e.setUpdatedAt(updatedAt);
+        epochs.saveAndFlush(e);
+    }
+}
@@ -0,0 +1,99 @@
+package com.oscar.proyecto.ms_auth.revocation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenEpochServiceTest {
+
+    TokenEpochRepository repo = mock(TokenEpochRepository.class);
+
+    TokenEpochService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TokenEpochService(repo, 60, 10, "jdbc:h2:mem:test");
+    }
+
+    // -------- revokeAccessTokens --------
+
+    @Test
+    void revoke_creates_epoch_truncated_to_seconds() {
+        when(repo.findById(7L)).thenReturn(Optional.empty());
+
+        Instant before = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        service.revokeAccessTokens(7L);
+
+        ArgumentCaptor<TokenEpoch> cap = ArgumentCaptor.forClass(TokenEpoch.class);
+        verify(repo).save(cap.capture());
+        assertEquals(7L, cap.getValue().getUserId());
+        assertEquals(0, cap.getValue().getValidAfter().getNano());
+        assertFalse(cap.getValue().getValidAfter().isBefore(before));
+        assertNotNull(cap.getValue().getUpdatedAt());
+    }
+
+    @Test
+    void revoke_never_moves_epoch_backwards() {
+        Instant future = Instant.now().plusSeconds(3600).truncatedTo(ChronoUnit.SECONDS);
+        TokenEpoch existing = new TokenEpoch(7L);
+        existing.setValidAfter(future);
+        when(repo.findById(7L)).thenReturn(Optional.of(existing));
+
+        service.revokeAccessTokens(7L);
+
+        assertEquals(future, existing.getValidAfter());
+        verify(repo).save(existing);
+    }
+
+    @Test
+    void postgres_revokes_many_users_in_one_upsert() {
+        service = new TokenEpochService(repo, 60, 10, "jdbc:postgresql://db/auth");
+
+        Instant before = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        service.revokeAccessTokens(List.of(7L, 8L, 7L));
+
+        ArgumentCaptor<Instant> validAfter = ArgumentCaptor.forClass(Instant.class);
+        verify(repo).upsertAll(aryEq(new Long[]{7L, 8L}), validAfter.capture(), any());
+        assertEquals(0, validAfter.getValue().getNano());
+        assertFalse(validAfter.getValue().isBefore(before));
+        verify(repo, never()).findById(any());
+        verify(repo, never()).save(any());
+    }
+
+    // -------- changesSince --------
+
+    @Test
+    void feed_advances_cursor_and_rereads_overlap() {
+        Instant updated = Instant.ofEpochMilli(1_700_000_000_000L);
+        TokenEpoch e = new TokenEpoch(7L);
+        e.setValidAfter(updated.truncatedTo(ChronoUnit.SECONDS));
+        e.setUpdatedAt(updated);
+        when(repo.findChangedSince(any(), any())).thenReturn(List.of(e));
+
+        TokenEpochService.Feed feed = service.changesSince(1_699_999_995_000L);
+
+        ArgumentCaptor<Instant> from = ArgumentCaptor.forClass(Instant.class);
+        verify(repo).findChangedSince(from.capture(), any());
+        assertEquals(Instant.ofEpochMilli(1_699_999_985_000L), from.getValue()); // cursor - 10 s
+        assertEquals(updated.toEpochMilli(), feed.cursor());
+        assertEquals(60 * 60 + 60, feed.retainSeconds());
+        assertEquals(List.of(new TokenEpochService.Change(7L, 1_700_000_000L)), feed.epochs());
+    }
+
+    @Test
+    void empty_feed_keeps_cursor() {
+        when(repo.findChangedSince(any(), any())).thenReturn(List.of());
+
+        assertEquals(1234L, service.changesSince(1234L).cursor());
+    }
+}
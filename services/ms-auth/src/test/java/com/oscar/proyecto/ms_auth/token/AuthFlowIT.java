@@ -2,6 +2,7 @@ package com.oscar.proyecto.ms_auth.token;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oscar.proyecto.ms_auth.cleanup.TokenCleanup;
 import com.oscar.proyecto.ms_auth.jwt.JwtService;
 import io.jsonwebtoken.Claims;
 import org.junit.jupiter.api.*;
@@ -49,7 +50,7 @@ class AuthFlowIT {
     @Autowired ObjectMapper om;
     @Autowired JwtService jwtService;
     @Autowired RefreshTokenRepository refreshRepo;
-    @Autowired RefreshTokenCleanup cleanup; // usamos el job directamente
+    @Autowired TokenCleanup cleanup; // usamos el job directamente
 
     private static String username;
     private static String email;
@@ -197,7 +198,7 @@ class AuthFlowIT {
         String rtPlain = om.readTree(loginRes.getResponse().getContentAsString()).get("refreshToken").asText();
 
         // 2) Buscamos la entidad por HASH y la revocamos
-        String rtHash = RefreshTokenService.sha256Url(rtPlain);
+        String rtHash = TokenCodec.sha256Url(rtPlain);
         var toRevoke = refreshRepo.findByTokenHash(rtHash).orElseThrow();
         toRevoke.setRevoked(true);
         refreshRepo.save(toRevoke);
@@ -273,7 +274,7 @@ class AuthFlowIT {
                 .andExpect(status().isUnauthorized());
 
         // 4) (extra) comprobar en BD: según tu servicio, el refresh puede estar BORRADO.
-        String hash = RefreshTokenService.sha256Url(rt);
+        String hash = TokenCodec.sha256Url(rt);
         var rtEntity = refreshRepo.findByTokenHash(hash).orElse(null);
         assertThat(rtEntity)
                 .as("Tras /logout el refresh debe estar inutilizable (normalmente eliminado en tu implementación)")
@@ -0,0 +1,135 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedRefreshTokenStoreTest {
+
+    private static final Instant FROM = RefreshTokenService.ExpiryWindow.ANY.from();
+    private static final Instant TO = RefreshTokenService.ExpiryWindow.ANY.to();
+
+    @TempDir Path dir;
+
+    @Test
+    void rotation_replaces_the_used_token_and_survives_reopening() {
+        Path file = dir.resolve("rt.db");
+        Instant expires = Instant.now().plus(Duration.ofDays(7));
+        var alice = user(1, "alice");
+
+        try (var store = new MappedRefreshTokenStore(file, 64)) {
+            store.issue(alice, hash("first"), null, expires, 5);
+
+            var ref = store.rotate(hash("first"), FROM, TO, hash("second"), null, Instant.now(), expires, 5);
+            assertEquals(new RefreshTokenService.UserRef(1, "alice"), ref.orElseThrow());
+            // Reutilizar el rotado no encuentra nada
+            assertTrue(store.rotate(hash("first"), FROM, TO, hash("third"), null, Instant.now(), expires, 5).isEmpty());
+        }
+
+        try (var store = new MappedRefreshTokenStore(file, 64)) {
+            assertTrue(store.find(hash("first"), FROM, TO).isEmpty());
+            var found = store.find(hash("second"), FROM, TO).orElseThrow();
+            assertEquals(1, found.userId());
+            assertEquals("alice", found.username());
+            assertEquals(expires.toEpochMilli(), found.expiresAt().toEpochMilli());
+            assertEquals(1, store.activeSessions(1, Instant.now(), 0, 10).size());
+
+            // Los ids siguen creciendo tras reabrir
+            long before = store.activeSessions(1, Instant.now(), 0, 10).get(0).id();
+            store.issue(alice, hash("fourth"), null, expires, 5);
+            assertTrue(store.activeSessions(1, Instant.now(), 0, 10).get(1).id() > before);
+        }
+    }
+
+    @Test
+    void session_cap_drops_the_oldest_and_bulk_revocations_apply() {
+        Instant expires = Instant.now().plus(Duration.ofDays(7));
+        try (var store = new MappedRefreshTokenStore(dir.resolve("rt.db"), 64)) {
+            for (int i = 0; i < 5; i++) store.issue(user(1, "alice"), hash("a" + i), null, expires, 3);
+            store.issue(user(2, "bob"), hash("b"), null, expires, 3);
+
+            assertTrue(store.find(hash("a0"), FROM, TO).isEmpty());
+            assertTrue(store.find(hash("a1"), FROM, TO).isEmpty());
+            assertTrue(store.find(hash("a4"), FROM, TO).isPresent());
+            List<ActiveSession> page = store.activeSessions(1, Instant.now(), 0, 2);
+            assertEquals(2, page.size());
+            assertEquals(1, store.activeSessions(1, Instant.now(), page.get(1).id(), 2).size());
+
+            assertEquals(3, store.revokeAllOfUser(1));
+            assertEquals(0, store.revokeAllIssuedBefore(Instant.now().minusSeconds(60)));
+            assertEquals(1, store.revokeAllIssuedBefore(Instant.now().plusSeconds(60)));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void full_table_evicts_the_soonest_to_expire() {
+        try (var store = new MappedRefreshTokenStore(dir.resolve("rt.db"), 16)) { // 12 entradas como mucho
+            Instant base = Instant.now().plus(Duration.ofDays(1));
+            for (int i = 0; i < 13; i++) {
+                store.issue(user(i, "u" + i), hash("t" + i), null, base.plusSeconds(i), 0);
+            }
+            assertEquals(12, store.size());
+            assertTrue(store.find(hash("t0"), FROM, TO).isEmpty());
+            assertTrue(store.find(hash("t12"), FROM, TO).isPresent());
+
+            // Los ya caducados salen con la siguiente escritura
+            store.issue(user(99, "late"), hash("expired"), null, Instant.now().minusSeconds(1), 0);
+            store.issue(user(99, "late"), hash("fresh"), null, base, 0);
+            assertTrue(store.find(hash("expired"), FROM, TO).isEmpty());
+        }
+    }
+
+    @Test
+    void random_deletes_keep_every_remaining_token_reachable() {
+        Instant expires = Instant.now().plus(Duration.ofDays(7));
+        Random random = new Random(42);
+        Map<String, Long> expected = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        Path file = dir.resolve("rt.db");
+
+        try (var store = new MappedRefreshTokenStore(file, 64)) {
+            for (int i = 0; i < 2_000; i++) {
+                if (keys.size() < 40 && (keys.isEmpty() || random.nextInt(3) > 0)) {
+                    String token = "k" + i;
+                    long userId = random.nextInt(1_000);
+                    store.issue(user(userId, "u" + userId), hash(token), null, expires, 0);
+                    expected.put(token, userId);
+                    keys.add(token);
+                } else {
+                    String token = keys.remove(random.nextInt(keys.size()));
+                    store.delete(hash(token), FROM, TO);
+                    expected.remove(token);
+                }
+            }
+            assertAllReachable(store, expected);
+        }
+        try (var store = new MappedRefreshTokenStore(file, 64)) {
+            assertAllReachable(store, expected);
+        }
+    }
+
+    private static void assertAllReachable(MappedRefreshTokenStore store, Map<String, Long> expected) {
+        assertEquals(expected.size(), store.size());
+        expected.forEach((token, userId) ->
+                assertEquals(userId, store.find(hash(token), FROM, TO).orElseThrow().userId(), token));
+    }
+
+    private static String hash(String plain) {
+        return TokenCodec.sha256Url(plain);
+    }
+
+    private static RefreshTokenService.UserRef user(long id, String username) {
+        return new RefreshTokenService.UserRef(id, username);
+    }
+}
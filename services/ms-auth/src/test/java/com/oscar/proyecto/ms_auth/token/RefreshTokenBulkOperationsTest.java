@@ -0,0 +1,96 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Revocaciones masivas en una sentencia y listado keyset de sesiones vigentes. */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+class RefreshTokenBulkOperationsTest {
+
+    @Autowired RefreshTokenRepository tokens;
+    @Autowired UserRepository users;
+    @Autowired TestEntityManager em;
+
+    User alice;
+    User bob;
+    User carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("alice");
+        bob = user("bob");
+        carol = user("carol");
+    }
+
+    @Test
+    void revokes_users_and_issued_before_in_bulk() {
+        Instant old = Instant.now().minus(Duration.ofDays(3));
+        token(alice, old);
+        token(alice, Instant.now());
+        token(bob, old);
+        token(carol, Instant.now());
+
+        assertThat(tokens.revokeAllOfUser(alice.getId())).isEqualTo(2);
+        assertThat(tokens.revokeAllOfUser(alice.getId())).as("ya revocados").isZero();
+        assertThat(tokens.revokeAllIssuedBefore(Instant.now().minus(Duration.ofDays(1)))).isEqualTo(1);
+        assertThat(tokens.revokeAllOfUsers(List.of(bob.getId(), carol.getId()))).isEqualTo(1);
+
+        em.clear();
+        assertThat(tokens.findAll()).allMatch(RefreshToken::isRevoked);
+    }
+
+    @Test
+    void lists_active_sessions_by_keyset() {
+        Instant now = Instant.now();
+        RefreshToken a1 = token(alice, now);
+        RefreshToken a2 = token(alice, now);
+        RefreshToken revoked = token(alice, now);
+        revoked.setRevoked(true);
+        RefreshToken expired = token(alice, now);
+        expired.setExpiresAt(now.minusSeconds(60));
+        RefreshToken a3 = token(alice, now);
+        token(bob, now);
+        em.flush();
+
+        List<ActiveSession> first = tokens.findActiveSessions(alice.getId(), now, 0, Limit.of(2));
+        assertThat(first).extracting(ActiveSession::id).containsExactly(a1.getId(), a2.getId());
+
+        List<ActiveSession> second = tokens.findActiveSessions(alice.getId(), now, first.get(1).id(), Limit.of(2));
+        assertThat(second).extracting(ActiveSession::id).containsExactly(a3.getId());
+        assertThat(second.get(0).expiresAt()).isAfter(now);
+    }
+
+    private User user(String name) {
+        User u = new User();
+        u.setUsername(name);
+        u.setEmail(name + "@mail.com");
+        u.setPasswordHash("x");
+        u.setEnabled(true);
+        return users.save(u);
+    }
+
+    private RefreshToken token(User user, Instant createdAt) {
+        RefreshToken rt = new RefreshToken();
+        rt.setUser(user);
+        rt.setTokenHash(UUID.randomUUID().toString());
+        rt.setExpiresAt(Instant.now().plus(Duration.ofDays(7)));
+        em.persistAndFlush(rt);
+        // createdAt no es actualizable por JPA: se retrocede directamente en la tabla
+        em.getEntityManager().createNativeQuery("update refresh_tokens set created_at = ?1 where id = ?2")
+                .setParameter(1, createdAt).setParameter(2, rt.getId()).executeUpdate();
+        return rt;
+    }
+}
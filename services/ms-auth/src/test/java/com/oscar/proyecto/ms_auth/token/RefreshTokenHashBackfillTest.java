@@ -0,0 +1,88 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * El backfill rellena por lotes solo los refresh sin hash, deja intactos los que ya lo tenían y
+ * el gauge de pendientes acaba a cero.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hash-backfill;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.refresh.backfill-batch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RefreshTokenHashBackfill.class, RefreshTokenHashBackfillTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // cada lote confirma su propia transacción
+class RefreshTokenHashBackfillTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean MeterRegistry meterRegistry() { return new SimpleMeterRegistry(); }
+        @Bean TaskExecutor applicationTaskExecutor() { return new SyncTaskExecutor(); }
+    }
+
+    @Autowired RefreshTokenHashBackfill backfill;
+    @Autowired MeterRegistry meters;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired UserRepository users;
+
+    @Test
+    void hashes_only_legacy_rows_in_batches() {
+        User user = new User();
+        user.setUsername("legacy");
+        user.setEmail("legacy@mail.com");
+        user.setPasswordHash("x");
+        user.setEnabled(true);
+        long userId = users.save(user).getId();
+
+        // Esquema antiguo: token en claro y token_hash admitiendo nulos
+        jdbc.execute("alter table refresh_tokens alter column token_hash set null");
+        for (int i = 0; i < 5; i++) insert(userId, "legacy-" + i, null);
+        insert(userId, "current", "already-hashed");
+
+        assertThat(backfill.backfill()).isEqualTo(5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(hashOf("legacy-" + i)).isEqualTo(TokenCodec.sha256Url("legacy-" + i));
+        }
+        assertThat(hashOf("current")).isEqualTo("already-hashed");
+        assertThat(meters.get("auth.refresh.hash_backfill.remaining").gauge().value()).isZero();
+
+        // Sin filas pendientes no hay nada que hacer
+        assertThat(backfill.backfill()).isZero();
+    }
+
+    private void insert(long userId, String token, String hash) {
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbc.update("""
+                insert into refresh_tokens (user_id, token, token_hash, expires_at, revoked, created_at)
+                values (?, ?, ?, ?, false, ?)""",
+                userId, token, hash, Timestamp.from(Instant.now().plus(1, ChronoUnit.DAYS)), now);
+    }
+
+    private String hashOf(String token) {
+        return jdbc.queryForObject("select token_hash from refresh_tokens where token = ?", String.class, token);
+    }
+}
@@ -0,0 +1,191 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.authz.Role;
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.tool.schema.Action;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link RefreshTokenPartitions} contra PostgreSQL real: conversión de la tabla existente, particiones por
+ * adelantado, borrado de las caducadas con su descuento en los contadores, rotación sobre la tabla
+ * particionada y rearranque con {@code ddl-auto=update}. Cada test deshace su DDL al terminar. Se salta si
+ * no hay Docker.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class RefreshTokenPartitionsPostgresTest {
+
+    private static final int REFRESH_DAYS = 7;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired RefreshTokenRepository tokens;
+    @Autowired RefreshSessionCountRepository sessionCounts;
+    @Autowired UserRepository users;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired DataSource dataSource;
+
+    RefreshTokenPartitions partitions;
+    LocalDate today;
+    long userId;
+
+    @BeforeEach
+    void setUp() {
+        partitions = new RefreshTokenPartitions(jdbc, true, REFRESH_DAYS);
+        today = LocalDate.now(ZoneOffset.UTC);
+        User u = new User();
+        u.setUsername("partitions");
+        u.setEmail("partitions@mail.com");
+        u.setPasswordHash("x");
+        u.setEnabled(true);
+        userId = users.saveAndFlush(u).getId();
+    }
+
+    @Test
+    void startup_converts_the_table_keeping_only_live_tokens() {
+        long live = insert("live", Instant.now().plus(Duration.ofDays(3)));
+        insert("expired", Instant.now().minus(Duration.ofDays(2)));
+        jdbc.update("insert into refresh_session_counts (user_id, sessions) values (?, 2)", userId);
+
+        partitions.onStartup();
+
+        assertThat(jdbc.queryForObject("select c.relkind::text from pg_class c where c.oid = to_regclass('refresh_tokens')",
+                String.class)).isEqualTo("p");
+        for (int i = 0; i <= REFRESH_DAYS + 1; i++) {
+            assertThat(exists(partition(today.plusDays(i)))).isTrue();
+        }
+        assertThat(jdbc.queryForList("select token_hash from refresh_tokens", String.class)).containsExactly("live");
+        assertThat(counter()).isEqualTo(1);
+
+        // Los ids siguen donde se quedó la tabla original
+        assertThat(insert("next", Instant.now().plus(Duration.ofDays(REFRESH_DAYS)))).isGreaterThan(live);
+    }
+
+    @Test
+    void maintenance_drops_expired_partitions_and_discounts_their_tokens() {
+        partitions.onStartup();
+        LocalDate yesterday = today.minusDays(1);
+        jdbc.execute("create table %s partition of refresh_tokens for values from ('%s') to ('%s')".formatted(
+                partition(yesterday), yesterday.atStartOfDay(ZoneOffset.UTC).toInstant(),
+                today.atStartOfDay(ZoneOffset.UTC).toInstant()));
+        insert("old", yesterday.atStartOfDay(ZoneOffset.UTC).toInstant().plus(Duration.ofHours(12)));
+        insert("live", Instant.now().plus(Duration.ofDays(1)));
+        jdbc.update("insert into refresh_session_counts (user_id, sessions) values (?, 2)", userId);
+
+        partitions.scheduled();
+
+        assertThat(exists(partition(yesterday))).isFalse();
+        assertThat(exists(partition(today))).isTrue();
+        assertThat(jdbc.queryForList("select token_hash from refresh_tokens", String.class)).containsExactly("live");
+        assertThat(counter()).isEqualTo(1);
+    }
+
+    @Test
+    void single_statement_rotation_works_on_the_partitioned_table() {
+        partitions.onStartup();
+        var store = new JpaRefreshTokenStore(tokens, sessionCounts, users, true);
+        var user = new RefreshTokenService.UserRef(userId, "partitions");
+        store.issue(user, "a", null, Instant.now().plus(Duration.ofDays(REFRESH_DAYS)), 1);
+        tokens.flush();
+
+        Instant now = Instant.now();
+        assertThat(store.rotate("a", now.minus(Duration.ofDays(1)), now.plus(Duration.ofDays(30)),
+                "b", null, now, now.plus(Duration.ofDays(REFRESH_DAYS)), 1)).contains(user);
+        assertThat(jdbc.queryForList("select token_hash from refresh_tokens", String.class)).containsExactly("b");
+        assertThat(counter()).isEqualTo(1);
+    }
+
+    @Test
+    void restart_with_schema_update_keeps_the_reduced_index_set() {
+        partitions.onStartup();
+
+        // Siguiente arranque con ddl-auto=update, sobre la conexión del test para deshacerlo al terminar
+        Map<String, Object> settings = Map.of(
+                AvailableSettings.JAKARTA_HBM2DDL_CONNECTION, DataSourceUtils.getConnection(dataSource),
+                AvailableSettings.JAKARTA_HBM2DDL_DATABASE_ACTION, Action.UPDATE,
+                AvailableSettings.HBM2DDL_HALT_ON_ERROR, true,
+                AvailableSettings.DIALECT, PostgreSQLDialect.class.getName(),
+                AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName(),
+                AvailableSettings.EXTRA_PHYSICAL_TABLE_TYPES, "PARTITIONED TABLE");
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder().applySettings(settings).build();
+        try {
+            Metadata metadata = new MetadataSources(registry)
+                    .addAnnotatedClasses(User.class, Role.class, RefreshToken.class)
+                    .buildMetadata();
+            SchemaManagementToolCoordinator.process(metadata, registry, settings, action -> {});
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+        partitions.onStartup();
+
+        assertThat(jdbc.queryForList("""
+                select indexrelid::regclass::text from pg_index
+                where indrelid = 'refresh_tokens'::regclass and not indisprimary order by 1""", String.class))
+                .containsExactly("idx_rt_token", "idx_rt_token_hash", "idx_rt_user", "idx_rt_user_created");
+        assertThat(jdbc.queryForList("""
+                select conname::text from pg_constraint
+                where conrelid = 'refresh_tokens'::regclass and contype = 'u'""", String.class)).isEmpty();
+    }
+
+    private long insert(String hash, Instant expiresAt) {
+        return jdbc.queryForObject("""
+                insert into refresh_tokens (user_id, token_hash, expires_at, revoked, created_at)
+                values (?, ?, ?, false, now()) returning id""",
+                Long.class, userId, hash, Timestamp.from(expiresAt));
+    }
+
+    private boolean exists(String table) {
+        return jdbc.queryForObject("select to_regclass(?) is not null", Boolean.class, table);
+    }
+
+    private static String partition(LocalDate day) {
+        return "refresh_tokens_p" + DateTimeFormatter.BASIC_ISO_DATE.format(day);
+    }
+
+    private int counter() {
+        return jdbc.queryForObject("select sessions from refresh_session_counts where user_id = ?",
+                Integer.class, userId);
+    }
+}
@@ -0,0 +1,150 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link RefreshTokenRepository#rotateInPlace} contra PostgreSQL real: rotación, reutilización de un token ya
+ * rotado y recorte de sesiones con tope 1 y con tope N. Se salta si no hay Docker.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class RefreshTokenRotationPostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired RefreshTokenRepository tokens;
+    @Autowired RefreshSessionCountRepository sessionCounts;
+    @Autowired UserRepository users;
+    @Autowired JdbcTemplate jdbc;
+
+    JpaRefreshTokenStore store;
+    RefreshTokenService.UserRef user;
+
+    @BeforeEach
+    void setUp() {
+        store = new JpaRefreshTokenStore(tokens, sessionCounts, users, true);
+        User u = new User();
+        u.setUsername("rotation");
+        u.setEmail("rotation@mail.com");
+        u.setPasswordHash("x");
+        u.setEnabled(true);
+        User saved = users.save(u);
+        user = new RefreshTokenService.UserRef(saved.getId(), saved.getUsername());
+    }
+
+    @Test
+    void rotation_revokes_the_used_token_and_issues_the_next() {
+        issue("a", 5);
+
+        assertThat(rotate("a", "b", 5)).contains(user);
+        assertThat(hashes()).containsExactly("a", "b");
+        assertThat(revoked("a")).isTrue();
+        assertThat(revoked("b")).isFalse();
+        assertThat(counter()).isEqualTo(2);
+    }
+
+    @Test
+    void a_consumed_token_cannot_be_rotated_again() {
+        issue("a", 5);
+        rotate("a", "b", 5);
+
+        assertThat(rotate("a", "c", 5)).isEmpty();
+        assertThat(rotate("missing", "d", 5)).isEmpty();
+        assertThat(hashes()).containsExactly("a", "b");
+        assertThat(counter()).isEqualTo(2);
+    }
+
+    @Test
+    void cap_one_keeps_only_the_new_session() {
+        issue("a", 1);
+
+        assertThat(rotate("a", "b", 1)).contains(user);
+        assertThat(hashes()).containsExactly("b");
+        assertThat(counter()).isEqualTo(1);
+
+        assertThat(rotate("b", "c", 1)).contains(user);
+        assertThat(hashes()).containsExactly("c");
+        assertThat(counter()).isEqualTo(1);
+    }
+
+    @Test
+    void cap_n_trims_the_oldest_sessions_counting_the_used_one() {
+        issue("a", 3);
+        issue("b", 3);
+        issue("c", 3);
+
+        // Se va la más antigua; el usado queda revocado
+        assertThat(rotate("c", "d", 3)).contains(user);
+        assertThat(hashes()).containsExactly("b", "c", "d");
+        assertThat(revoked("c")).isTrue();
+        assertThat(counter()).isEqualTo(3);
+
+        // Rotar la más antigua la borra a ella misma
+        assertThat(rotate("b", "e", 3)).contains(user);
+        assertThat(hashes()).containsExactly("c", "d", "e");
+        assertThat(counter()).isEqualTo(3);
+    }
+
+    @Test
+    void cap_zero_does_not_trim() {
+        issue("a", 0);
+        issue("b", 0);
+
+        rotate("b", "c", 0);
+        assertThat(hashes()).containsExactly("a", "b", "c");
+        assertThat(counter()).isEqualTo(3);
+    }
+
+    private void issue(String hash, int cap) {
+        store.issue(user, hash, null, Instant.now().plus(Duration.ofDays(7)), cap);
+        tokens.flush();
+    }
+
+    private Optional<RefreshTokenService.UserRef> rotate(String used, String next, int cap) {
+        Instant now = Instant.now();
+        return store.rotate(used, now.minus(Duration.ofDays(1)), now.plus(Duration.ofDays(30)),
+                next, null, now, now.plus(Duration.ofDays(7)), cap);
+    }
+
+    private List<String> hashes() {
+        return jdbc.queryForList("select token_hash from refresh_tokens where user_id = ? order by created_at, id",
+                String.class, user.id());
+    }
+
+    private boolean revoked(String hash) {
+        return jdbc.queryForObject("select revoked from refresh_tokens where token_hash = ?", Boolean.class, hash);
+    }
+
+    private int counter() {
+        return jdbc.queryForObject("select sessions from refresh_session_counts where user_id = ?",
+                Integer.class, user.id());
+    }
+}
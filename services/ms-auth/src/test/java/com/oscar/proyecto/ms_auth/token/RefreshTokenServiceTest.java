@@ -0,0 +1,79 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+
+    RefreshTokenRepository repo = mock(RefreshTokenRepository.class);
+    UserRepository users = mock(UserRepository.class);
+
+    @Test
+    void postgres_rotation_is_a_single_statement() {
+        RefreshTokenService service = new RefreshTokenService(
+                new JpaRefreshTokenStore(repo, null, users, true), null, 7, 5, false, false);
+        when(repo.rotateInPlace(eq(TokenCodec.sha256Url("used")), any(), any(), anyString(), isNull(),
+                any(Instant.class), any(Instant.class), eq(5)))
+                .thenReturn(List.<Object[]>of(new Object[]{42L, "alice"}));
+
+        var result = service.rotate("used");
+
+        assertEquals(new RefreshTokenService.UserRef(42L, "alice"), result.user());
+        assertEquals(604800L, result.newRefresh().expiresInSeconds());
+        verify(repo).rotateInPlace(anyString(), any(), any(), eq(TokenCodec.sha256Url(result.newRefresh().plain())),
+                isNull(), any(Instant.class), any(Instant.class), anyInt());
+        verifyNoMoreInteractions(repo);
+    }
+
+    @Test
+    void postgres_rotation_without_row_is_401() {
+        RefreshTokenService service = new RefreshTokenService(
+                new JpaRefreshTokenStore(repo, null, users, true), null, 7, 5, false, false);
+        when(repo.rotateInPlace(anyString(), any(), any(), anyString(), any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        var ex = assertThrows(ResponseStatusException.class, () -> service.rotate("used"));
+        assertEquals(HttpStatus.UNAUTHORIZED, ex.getStatusCode());
+    }
+
+    @Test
+    void partitioned_tokens_carry_their_expiry_day() {
+        RefreshSessionCountRepository counts = mock(RefreshSessionCountRepository.class);
+        when(counts.incrementBelowCap(anyLong(), anyInt())).thenReturn(1);
+        RefreshTokenService service = new RefreshTokenService(
+                new JpaRefreshTokenStore(repo, counts, users, false), null, 7, 5, false, true);
+        String plain = service.create(new RefreshTokenService.UserRef(1L, "alice")).plain();
+
+        var saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repo).save(saved.capture());
+        var window = RefreshTokenService.ExpiryWindow.of(plain);
+        assertFalse(saved.getValue().getExpiresAt().isBefore(window.from()));
+        assertTrue(saved.getValue().getExpiresAt().isBefore(window.to()));
+        assertEquals(TokenCodec.sha256Url(plain), saved.getValue().getTokenHash());
+
+        // Tokens sin prefijo (emitidos antes o sin particionado): cualquier caducidad
+        assertEquals(RefreshTokenService.ExpiryWindow.ANY, RefreshTokenService.ExpiryWindow.of("A0pYk2-_x"));
+        assertEquals(RefreshTokenService.ExpiryWindow.ANY, RefreshTokenService.ExpiryWindow.of("zz!.x"));
+    }
+
+    @Test
+    void other_databases_rotate_with_jpa() {
+        RefreshTokenService service = new RefreshTokenService(
+                new JpaRefreshTokenStore(repo, null, users, false), null, 7, 5, false, false);
+        when(repo.findByTokenHashFetchUser(anyString(), any(), any())).thenReturn(Optional.empty());
+
+        var ex = assertThrows(ResponseStatusException.class, () -> service.rotate("used"));
+        assertEquals(HttpStatus.UNAUTHORIZED, ex.getStatusCode());
+        verify(repo, never()).rotateInPlace(anyString(), any(), any(), anyString(), any(), any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,89 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import com.oscar.proyecto.ms_auth.revocation.TokenEpochService;
+import com.oscar.proyecto.ms_auth.user.User;
+import com.oscar.proyecto.ms_auth.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Logins concurrentes de un mismo usuario: el número de refresh tokens confirmados nunca supera
+ * {@code app.jwt.max-sessions-per-user} y el contador incremental termina igual que las filas reales.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:session-cap;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.jwt.max-sessions-per-user=3"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RefreshTokenService.class, RefreshTokenStoreConfig.class, TokenEpochService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // cada login confirma su propia transacción
+class SessionCapConcurrencyTest {
+
+    private static final int CAP = 3;
+    private static final int THREADS = 8;
+    private static final int LOGINS_PER_THREAD = 15;
+
+    @Autowired RefreshTokenService service;
+    @Autowired RefreshTokenRepository tokens;
+    @Autowired RefreshSessionCountRepository sessionCounts;
+    @Autowired UserRepository users;
+
+    @Test
+    void concurrent_logins_never_exceed_cap() throws Exception {
+        User user = new User();
+        user.setUsername("concurrent");
+        user.setEmail("concurrent@mail.com");
+        user.setPasswordHash("x");
+        user.setEnabled(true);
+        User saved = users.save(user);
+        long userId = saved.getId();
+        var ref = new RefreshTokenService.UserRef(userId, saved.getUsername());
+
+        // Observador: lee continuamente las filas confirmadas del usuario
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong maxObserved = new AtomicLong();
+        Thread observer = new Thread(() -> {
+            while (running.get()) {
+                maxObserved.accumulateAndGet(tokens.countByUserId(userId), Math::max);
+            }
+        });
+        observer.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < LOGINS_PER_THREAD; i++) {
+                    service.create(ref);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : results) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        running.set(false);
+        observer.join();
+
+        assertThat(maxObserved.get()).isLessThanOrEqualTo(CAP);
+        assertThat(tokens.countByUserId(userId)).isEqualTo(CAP);
+        assertThat(sessionCounts.findById(userId)).get()
+                .extracting(RefreshSessionCount::getSessions).isEqualTo(CAP);
+    }
+}
@@ -0,0 +1,74 @@
+package com.oscar.proyecto.ms_auth.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenCodecTest {
+
+    @Test
+    void hash_matches_sha256_base64url_for_any_input() throws Exception {
+        for (String input : List.of("", "abc", "k2x.Zm9v-_", "contraseña ñ €", "x".repeat(1_000))) {
+            String hash = TokenCodec.sha256Url(input);
+            assertEquals(reference(input), hash, input);
+            assertEquals(TokenCodec.HASH_LENGTH, hash.length());
+        }
+    }
+
+    @Test
+    void hash_into_array_writes_at_offset() throws Exception {
+        byte[] dst = new byte[TokenCodec.HASH_LENGTH + 5];
+        int end = TokenCodec.sha256Url("token", dst, 5);
+
+        assertEquals(dst.length, end);
+        assertEquals(reference("token"), new String(dst, 5, TokenCodec.HASH_LENGTH, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void random_tokens_have_the_requested_entropy_and_do_not_repeat() {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            String token = TokenCodec.randomToken(32);
+            assertEquals(32, Base64.getUrlDecoder().decode(token).length);
+            assertTrue(seen.add(token));
+        }
+        assertEquals(64, Base64.getUrlDecoder().decode(TokenCodec.randomToken(64)).length);
+        assertEquals(100, Base64.getUrlDecoder().decode(TokenCodec.randomToken(100)).length);
+    }
+
+    @Test
+    void concurrent_callers_get_correct_hashes() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        String token = TokenCodec.randomToken(64);
+                        if (!TokenCodec.sha256Url(token).equals(reference(token))) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) assertTrue(result.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static String reference(String input) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+}
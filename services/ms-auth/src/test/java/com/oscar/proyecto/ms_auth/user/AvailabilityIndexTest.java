@@ -0,0 +1,60 @@
+package com.oscar.proyecto.ms_auth.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+class AvailabilityIndexTest {
+
+    @Autowired UserRepository users;
+    @Autowired JdbcTemplate jdbc;
+
+    @Test
+    void answers_from_the_filter_and_confirms_positives_in_the_database() {
+        user("alice", "Alice@Mail.com");
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        AvailabilityIndex index = new AvailabilityIndex(jdbc, users, meters, 0.01, 1_000);
+        index.onStartup();
+
+        assertThat(index.usernameTaken("alice")).isTrue();
+        assertThat(index.emailTaken("alice@mail.COM")).isTrue();
+        assertThat(index.usernameTaken("bob")).isFalse();
+        assertThat(index.emailTaken("bob@mail.com")).isFalse();
+        assertThat(meters.counter("auth.availability.lookups", "field", "username", "source", "index").count())
+                .isEqualTo(1);
+
+        // Alta en esta réplica (evento tras el commit) y en otra (la recoge refresh)
+        index.onRegistered(new UserRegisteredEvent("bob", "bob@mail.com"));
+        user("bob", "bob@mail.com");
+        user("carol", "carol@mail.com");
+        assertThat(index.usernameTaken("carol")).isFalse();
+        index.refresh();
+        assertThat(index.usernameTaken("bob")).isTrue();
+        assertThat(index.usernameTaken("carol")).isTrue();
+        assertThat(index.emailTaken("carol@mail.com")).isTrue();
+    }
+
+    @Test
+    void rebuilds_with_more_capacity_when_full() {
+        AvailabilityIndex index = new AvailabilityIndex(jdbc, users, new SimpleMeterRegistry(), 0.01, 2);
+        index.onStartup();
+        for (int i = 0; i < 10; i++) user("user" + i, "user" + i + "@mail.com");
+        index.refresh();
+
+        for (int i = 0; i < 10; i++) assertThat(index.usernameTaken("user" + i)).isTrue();
+        assertThat(index.usernameTaken("user10")).isFalse();
+    }
+
+    private void user(String username, String email) {
+        User u = new User();
+        u.setUsername(username);
+        u.setEmail(email);
+        u.setPasswordHash("HASH");
+        users.saveAndFlush(u);
+    }
+}
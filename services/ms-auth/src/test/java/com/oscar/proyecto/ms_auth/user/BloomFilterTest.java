@@ -0,0 +1,23 @@
+package com.oscar.proyecto.ms_auth.user;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void has_no_false_negatives_and_keeps_the_false_positive_rate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) filter.add("user" + i);
+
+        for (int i = 0; i < 10_000; i++) assertTrue(filter.mightContain("user" + i));
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i)) falsePositives++;
+        }
+        assertTrue(falsePositives < 2_000, "falsos positivos: " + falsePositives);
+        // ~9,6 bits por elemento para un 1 %
+        assertEquals(12_000, filter.bytes(), 100);
+    }
+}
@@ -0,0 +1,113 @@
+package com.oscar.proyecto.ms_auth.user;
+
+import com.oscar.proyecto.ms_auth.exception.EmailAlreadyExistsException;
+import com.oscar.proyecto.ms_auth.exception.UsernameAlreadyExistsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Login en una consulta y registro en un solo INSERT con las restricciones únicas reales. */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+class UserRepositoryTest {
+
+    @Autowired UserRepository users;
+
+    @Test
+    void login_lookup_matches_username_or_case_insensitive_email() {
+        User alice = user("alice", "Alice@Mail.com");
+        // Un username con forma de email: si coincide con el email de otro, gana el username
+        User tricky = user("alice@mail.com", "other@mail.com");
+
+        assertThat(users.findLogin("alice", Limit.of(1)))
+                .containsExactly(new LoginUser(alice.getId(), "alice", "HASH", false));
+        assertThat(users.findLogin("ALICE@mail.COM", Limit.of(1)))
+                .extracting(LoginUser::id).containsExactly(alice.getId());
+        assertThat(users.findLogin("alice@mail.com", Limit.of(1)))
+                .extracting(LoginUser::id).containsExactly(tricky.getId());
+        assertThat(users.findLogin("nobody", Limit.of(1))).isEmpty();
+        // Emails anteriores a la normalización que solo difieren en mayúsculas: gana el más antiguo
+        User older = user("carol", "Carol@mail.com");
+        user("carol2", "CAROL@mail.com");
+        assertThat(users.findLogin("carol@mail.com", Limit.of(1)))
+                .extracting(LoginUser::id).containsExactly(older.getId());
+        assertThat(users.existsEmailIgnoreCase("ALICE@mail.com")).isTrue();
+        assertThat(users.existsEmailIgnoreCase("alice@mail.org")).isFalse();
+
+        assertThat(users.updatePasswordHash(alice.getId(), "NEW")).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void register_translates_unique_constraint_violations() {
+        UserService service = new UserService(users, NoOpPasswordEncoder.getInstance(), event -> {});
+        service.register("bob", "bob@mail.com", "Secret123");
+
+        assertThatThrownBy(() -> service.register("bob", "new@mail.com", "Secret123"))
+                .isInstanceOf(UsernameAlreadyExistsException.class);
+        assertThatThrownBy(() -> service.register("bobby", "bob@mail.com", "Secret123"))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+        // El email se guarda en minúsculas: una variante en mayúsculas también choca
+        assertThatThrownBy(() -> service.register("bobby", "Bob@Mail.com", "Secret123"))
+                .isInstanceOf(EmailAlreadyExistsException.class);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void login_and_registration_hash_without_an_open_transaction() {
+        List<Boolean> hashedInTransaction = new ArrayList<>();
+        PasswordEncoder encoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence raw) {
+                hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                return "new:" + raw;
+            }
+
+            @Override
+            public boolean matches(CharSequence raw, String hash) {
+                hashedInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+                return hash.endsWith(":" + raw);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String hash) {
+                return !hash.startsWith("new:");
+            }
+        };
+        UserService service = new UserService(users, encoder, event -> {});
+        User registered = service.register("hasher", "hasher@mail.com", "Secret123");
+        long id = registered.getId();
+        try {
+            registered.setEnabled(true);
+            users.save(registered);
+            users.updatePasswordHash(id, "old:Secret123");
+
+            assertThat(service.authenticate("hasher", "Secret123").id()).isEqualTo(id);
+
+            // encode del registro, matches y encode del rehash
+            assertThat(hashedInTransaction).containsExactly(false, false, false);
+            assertThat(users.findById(id)).get().extracting(User::getPasswordHash).isEqualTo("new:Secret123");
+        } finally {
+            users.deleteById(id);
+        }
+    }
+
+    private User user(String username, String email) {
+        User u = new User();
+        u.setUsername(username);
+        u.setEmail(email);
+        u.setPasswordHash("HASH");
+        return users.save(u);
+    }
+}
@@ -1,11 +1,17 @@
 package com.oscar.proyecto.ms_auth.user;
 
 import com.oscar.proyecto.ms_auth.exception.*;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -15,96 +21,104 @@ class UserServiceTest {
 
     UserRepository repo = mock(UserRepository.class);
     PasswordEncoder encoder = mock(PasswordEncoder.class);
+    ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
 
     UserService service;
 
     @BeforeEach
     void setUp() {
-        service = new UserService(repo, encoder);
+        service = new UserService(repo, encoder, events);
     }
 
     // -------- register --------
 
     @Test
     void register_ok_hashes_password_and_saves() {
-        when(repo.existsByUsername("alice")).thenReturn(false);
-        when(repo.existsByEmail("alice@mail.com")).thenReturn(false);
         when(encoder.encode("Secret123")).thenReturn("HASHED");
-        when(repo.save(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(repo.saveAndFlush(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
 
         User saved = service.register("alice", "alice@mail.com", "Secret123");
 
         assertNotNull(saved);
         ArgumentCaptor<User> cap = ArgumentCaptor.forClass(User.class);
-        verify(repo).save(cap.capture());
+        verify(repo).saveAndFlush(cap.capture());
+        verify(repo, never()).existsByUsername(any());
+        verify(repo, never()).existsByEmail(any());
         assertEquals("alice", cap.getValue().getUsername());
         assertEquals("alice@mail.com", cap.getValue().getEmail());
         assertEquals("HASHED", cap.getValue().getPasswordHash());
+        verify(events).publishEvent(new UserRegisteredEvent("alice", "alice@mail.com"));
+    }
+
+    @Test
+    void register_stores_the_email_in_lower_case() {
+        when(repo.saveAndFlush(any(User.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        User saved = service.register("alice", "Alice@Mail.COM", "Secret123");
+
+        assertEquals("alice@mail.com", saved.getEmail());
+        verify(events).publishEvent(new UserRegisteredEvent("alice", "alice@mail.com"));
     }
 
     @Test
     void register_fails_when_username_exists() {
-        when(repo.existsByUsername("bob")).thenReturn(true);
+        when(repo.saveAndFlush(any(User.class))).thenThrow(duplicate("uk_users_username"));
 
         assertThrows(UsernameAlreadyExistsException.class,
                 () -> service.register("bob", "b@mail.com", "Secret123"));
-
-        verify(repo, never()).save(any());
+        verifyNoInteractions(events);
     }
 
     @Test
     void register_fails_when_email_exists() {
-        when(repo.existsByUsername("charlie")).thenReturn(false);
-        when(repo.existsByEmail("charlie@mail.com")).thenReturn(true);
+        when(repo.saveAndFlush(any(User.class))).thenThrow(duplicate("UK_USERS_EMAIL"));
 
         assertThrows(EmailAlreadyExistsException.class,
                 () -> service.register("charlie", "charlie@mail.com", "Secret123"));
+    }
 
-        verify(repo, never()).save(any());
+    @Test
+    void register_fails_when_email_exists_in_another_case() {
+        when(repo.saveAndFlush(any(User.class))).thenThrow(duplicate("uk_users_email_lower"));
+
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> service.register("charlie", "Charlie@mail.com", "Secret123"));
+    }
+
+    @Test
+    void register_rethrows_other_integrity_errors() {
+        when(repo.saveAndFlush(any(User.class))).thenThrow(duplicate("fk_something"));
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> service.register("dora", "dora@mail.com", "Secret123"));
     }
 
     // -------- authenticate --------
 
     @Test
-    void authenticate_ok_by_username() {
-        User db = new User();
-        db.setId(1L);
-        db.setUsername("dana");
-        db.setEmail("d@x.com");
-        db.setPasswordHash("HASHED");
-
-        when(repo.findByUsername("dana")).thenReturn(Optional.of(db));
-        when(repo.findByEmail("dana")).thenReturn(Optional.empty());
+    void authenticate_ok_with_a_single_lookup() {
+        when(repo.findLogin("dana", Limit.of(1))).thenReturn(List.of(new LoginUser(1L, "dana", "HASHED", true)));
         when(encoder.matches("Secret123", "HASHED")).thenReturn(true);
 
-        User out = service.authenticate("dana", "Secret123");
+        LoginUser out = service.authenticate("dana", "Secret123");
 
-        assertEquals(1L, out.getId());
-        assertEquals("dana", out.getUsername());
+        assertEquals(1L, out.id());
+        assertEquals("dana", out.username());
+        verify(repo).findLogin("dana", Limit.of(1));
+        verifyNoMoreInteractions(repo);
     }
 
     @Test
-    void authenticate_ok_by_email() {
-        User db = new User();
-        db.setEmail("e@x.com");
-        db.setPasswordHash("HASHED");
-
-        when(repo.findByUsername("e@x.com")).thenReturn(Optional.empty());
-        when(repo.findByEmail("e@x.com")).thenReturn(Optional.of(db));
+    void authenticate_fails_when_email_not_verified() {
+        when(repo.findLogin("e@x.com", Limit.of(1))).thenReturn(List.of(new LoginUser(2L, "eva", "HASHED", false)));
         when(encoder.matches("Secret123", "HASHED")).thenReturn(true);
 
-        User out = service.authenticate("e@x.com", "Secret123");
-        assertEquals("e@x.com", out.getEmail());
+        assertThrows(EmailNotVerifiedException.class, () -> service.authenticate("e@x.com", "Secret123"));
     }
 
     @Test
     void authenticate_fails_on_bad_password() {
-        User db = new User();
-        db.setUsername("fran");
-        db.setPasswordHash("HASHED");
-
-        when(repo.findByUsername("fran")).thenReturn(Optional.of(db));
-        when(repo.findByEmail("fran")).thenReturn(Optional.empty());
+        when(repo.findLogin("fran", Limit.of(1))).thenReturn(List.of(new LoginUser(3L, "fran", "HASHED", true)));
         when(encoder.matches("bad", "HASHED")).thenReturn(false);
 
         assertThrows(InvalidCredentialsException.class,
@@ -113,13 +127,36 @@ class UserServiceTest {
 
     @Test
     void authenticate_fails_when_user_not_found() {
-        when(repo.findByUsername("ghost")).thenReturn(Optional.empty());
-        when(repo.findByEmail("ghost")).thenReturn(Optional.empty());
+        when(repo.findLogin("ghost", Limit.of(1))).thenReturn(List.of());
 
         assertThrows(InvalidCredentialsException.class,
                 () -> service.authenticate("ghost", "whatever"));
     }
 
+    @Test
+    void authenticate_rehashes_outdated_hash() {
+        when(repo.findLogin("hana", Limit.of(1))).thenReturn(List.of(new LoginUser(4L, "hana", "OLD", true)));
+        when(encoder.matches("Secret123", "OLD")).thenReturn(true);
+        when(encoder.upgradeEncoding("OLD")).thenReturn(true);
+        when(encoder.encode("Secret123")).thenReturn("{bcrypt}NEW");
+
+        service.authenticate("hana", "Secret123");
+
+        verify(repo).updatePasswordHash(4L, "{bcrypt}NEW");
+    }
+
+    @Test
+    void authenticate_keeps_hash_when_hashing_pool_is_busy() {
+        var login = new LoginUser(5L, "ines", "OLD", true);
+        when(repo.findLogin("ines", Limit.of(1))).thenReturn(List.of(login));
+        when(encoder.matches("Secret123", "OLD")).thenReturn(true);
+        when(encoder.upgradeEncoding("OLD")).thenReturn(true);
+        when(encoder.encode("Secret123")).thenThrow(new PasswordHashingBusyException(1));
+
+        assertSame(login, service.authenticate("ines", "Secret123"));
+        verify(repo, never()).updatePasswordHash(anyLong(), any());
+    }
+
     // -------- requireById --------
 
     @Test
@@ -162,4 +199,10 @@ class UserServiceTest {
 
         verify(repo, never()).save(any());
     }
+
+    private static DataIntegrityViolationException duplicate(String constraint) {
+        var cause = new ConstraintViolationException(
+                "duplicate key", new SQLException("duplicate key"), constraint);
+        return new DataIntegrityViolationException("could not execute statement", cause);
+    }
 }
@@ -0,0 +1,163 @@
+package com.oscar.shared.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Conversión entre claves públicas y JWK (RFC 7517) y cálculo del {@code kid} por defecto
+ * como thumbprint RFC 7638, para claves RSA, EC P-256 y Ed25519.
+ * ms-auth lo usa para publicar y firmar; los servicios para leer.
+ */
+public final class Jwks {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Base64.Encoder B64URL = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64URL_DEC = Base64.getUrlDecoder();
+
+    // Cabecera DER fija de una clave pública Ed25519 X.509; tras ella van los 32 bytes de la clave (RFC 8410)
+    private static final byte[] ED25519_X509_PREFIX = {
+            0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00
+    };
+
+    /** Thumbprint SHA-256 (RFC 7638) en base64url: mismo valor en emisor y verificadores sin configurar nada. */
+    public static String thumbprint(PublicKey key) {
+        // Miembros obligatorios en orden lexicográfico y sin espacios
+        String canonical;
+        if (key instanceof RSAPublicKey rsa) {
+            canonical = "{\"e\":\"" + unsigned(rsa.getPublicExponent())
+                    + "\",\"kty\":\"RSA\",\"n\":\"" + unsigned(rsa.getModulus()) + "\"}";
+        } else if (key instanceof ECPublicKey ec) {
+            canonical = "{\"crv\":\"P-256\",\"kty\":\"EC\",\"x\":\"" + coordinate(ec.getW().getAffineX())
+                    + "\",\"y\":\"" + coordinate(ec.getW().getAffineY()) + "\"}";
+        } else {
+            canonical = "{\"crv\":\"Ed25519\",\"kty\":\"OKP\",\"x\":\""
+                    + B64URL.encodeToString(ed25519Raw(key)) + "\"}";
+        }
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return B64URL.encodeToString(d);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot compute SHA-256", e);
+        }
+    }
+
+    /** JWK público listo para serializar dentro de {@code {"keys":[...]}}. */
+    public static Map<String, Object> toJwk(String kid, PublicKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        if (key instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("kid", kid);
+            jwk.put("use", "sig");
+            jwk.put("alg", "RS256");
+            jwk.put("n", unsigned(rsa.getModulus()));
+            jwk.put("e", unsigned(rsa.getPublicExponent()));
+        } else if (key instanceof ECPublicKey ec) {
+            jwk.put("kty", "EC");
+            jwk.put("kid", kid);
+            jwk.put("use", "sig");
+            jwk.put("alg", "ES256");
+            jwk.put("crv", "P-256");
+            jwk.put("x", coordinate(ec.getW().getAffineX()));
+            jwk.put("y", coordinate(ec.getW().getAffineY()));
+        } else {
+            jwk.put("kty", "OKP");
+            jwk.put("kid", kid);
+            jwk.put("use", "sig");
+            jwk.put("alg", "EdDSA");
+            jwk.put("crv", "Ed25519");
+            jwk.put("x", B64URL.encodeToString(ed25519Raw(key)));
+        }
+        return jwk;
+    }
+
+    /**
+     * Lee un documento JWKS y devuelve las claves de firma indexadas por {@code kid}.
+     * Las entradas sin {@code kid}, de cifrado o de tipos no soportados se ignoran.
+     */
+    public static Map<String, PublicKey> parse(byte[] json) throws Exception {
+        JsonNode keys = MAPPER.readTree(json).path("keys");
+        Map<String, PublicKey> out = new HashMap<>();
+        for (JsonNode jwk : keys) {
+            String kid = jwk.path("kid").asText(null);
+            String use = jwk.path("use").asText("sig");
+            if (kid == null || !"sig".equals(use)) continue;
+            String kty = jwk.path("kty").asText();
+            String crv = jwk.path("crv").asText();
+            if ("RSA".equals(kty)) {
+                BigInteger n = new BigInteger(1, B64URL_DEC.decode(jwk.path("n").asText()));
+                BigInteger e = new BigInteger(1, B64URL_DEC.decode(jwk.path("e").asText()));
+                out.put(kid, KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(n, e)));
+            } else if ("EC".equals(kty) && "P-256".equals(crv)) {
+                ECPoint w = new ECPoint(
+                        new BigInteger(1, B64URL_DEC.decode(jwk.path("x").asText())),
+                        new BigInteger(1, B64URL_DEC.decode(jwk.path("y").asText())));
+                out.put(kid, KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(w, p256())));
+            } else if ("OKP".equals(kty) && "Ed25519".equals(crv)) {
+                byte[] raw = B64URL_DEC.decode(jwk.path("x").asText());
+                byte[] der = new byte[ED25519_X509_PREFIX.length + raw.length];
+                System.arraycopy(ED25519_X509_PREFIX, 0, der, 0, ED25519_X509_PREFIX.length);
+                System.arraycopy(raw, 0, der, ED25519_X509_PREFIX.length, raw.length);
+                out.put(kid, KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(der)));
+            }
+        }
+        return out;
+    }
+
+    private static byte[] ed25519Raw(PublicKey key) {
+        byte[] der = key.getEncoded();
+        if (!"EdDSA".equals(key.getAlgorithm()) && !"Ed25519".equals(key.getAlgorithm())
+                || der.length != ED25519_X509_PREFIX.length + 32) {
+            throw new IllegalArgumentException("Unsupported key type: " + key.getAlgorithm());
+        }
+        byte[] raw = new byte[32];
+        System.arraycopy(der, ED25519_X509_PREFIX.length, raw, 0, 32);
+        return raw;
+    }
+
+    private static ECParameterSpec p256() throws Exception {
+        AlgorithmParameters params = AlgorithmParameters.getInstance("EC");
+        params.init(new ECGenParameterSpec("secp256r1"));
+        return params.getParameterSpec(ECParameterSpec.class);
+    }
+
+    /** Coordenada P-256 con longitud fija de 32 bytes, como exige RFC 7518. */
+    private static String coordinate(BigInteger v) {
+        byte[] bytes = v.toByteArray();
+        byte[] fixed = new byte[32];
+        int len = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - len, fixed, 32 - len, len);
+        return B64URL.encodeToString(fixed);
+    }
+
+    /** Entero sin signo big-endian en base64url (sin el byte 0x00 de signo que añade BigInteger). */
+    private static String unsigned(BigInteger v) {
+        byte[] bytes = v.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            bytes = trimmed;
+        }
+        return B64URL.encodeToString(bytes);
+    }
+
+    private Jwks() {}
+}
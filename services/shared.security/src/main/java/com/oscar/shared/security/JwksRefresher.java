@@ -0,0 +1,114 @@
+package com.oscar.shared.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refresca un {@link JwtKeySet} en segundo plano a partir de un JWKS remoto ({@code http(s)://})
+ * o de un recurso local ({@code file:}, {@code classpath:}).
+ * <p>
+ * La descarga nunca ocurre en el hilo de la petición: un {@code kid} desconocido solo encola un
+ * refresco adelantado, limitado a uno cada {@code minGap} para que tokens basura no martilleen ms-auth.
+ * Si una descarga falla se conservan las claves anteriores.
+ */
+public class JwksRefresher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JwksRefresher.class);
+
+    private final JwtKeySet keySet;
+    private final String location;
+    private final ResourceLoader resourceLoader;
+    private final Duration minGap;
+    private final ScheduledExecutorService scheduler;
+    private final HttpClient http;
+
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final AtomicLong lastAttemptNanos = new AtomicLong();
+
+    public JwksRefresher(JwtKeySet keySet, String location, ResourceLoader resourceLoader,
+                         Duration interval, Duration minGap) {
+        this.keySet = keySet;
+        this.location = location;
+        this.resourceLoader = resourceLoader;
+        this.minGap = minGap;
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jwks-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Primera carga síncrona pero no fatal: si ms-auth aún no está arriba se usa la clave local
+        refresh();
+        scheduler.scheduleWithFixedDelay(this::refresh, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        keySet.onUnknownKid(this::requestRefresh);
+    }
+
+    /** Pide un refresco adelantado sin bloquear; se ignora si ya hay uno pendiente o fue hace poco. */
+    public void requestRefresh() {
+        long now = System.nanoTime();
+        if (now - lastAttemptNanos.get() < minGap.toNanos()) return;
+        if (!pending.compareAndSet(false, true)) return;
+        try {
+            scheduler.execute(() -> {
+                try {
+                    refresh();
+                } finally {
+                    pending.set(false);
+                }
+            });
+        } catch (Exception e) {
+            pending.set(false);
+        }
+    }
+
+    void refresh() {
+        lastAttemptNanos.set(System.nanoTime());
+        try {
+            Map<String, PublicKey> remote = Jwks.parse(fetch());
+            keySet.replace(remote);
+            log.debug("JWKS refreshed from {} ({} keys)", location, remote.size());
+        } catch (Exception e) {
+            log.warn("JWKS refresh from {} failed, keeping previous keys: {}", location, e.toString());
+        }
+    }
+
+    private byte[] fetch() throws Exception {
+        if (location.startsWith("http://") || location.startsWith("https://")) {
+            HttpRequest req = HttpRequest.newBuilder(URI.create(location))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("Accept", "application/json")
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> res = http.send(req, HttpResponse.BodyHandlers.ofByteArray());
+            if (res.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + res.statusCode());
+            }
+            return res.body();
+        }
+        try (InputStream is = resourceLoader.getResource(location).getInputStream()) {
+            return is.readAllBytes();
+        }
+    }
+
+    @Override
+    public void close() {
+        keySet.onUnknownKid(null);
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * Algoritmos de firma admitidos para los access tokens y lectura de sus claves PEM
+ * (pública X.509 {@code PUBLIC KEY}, privada PKCS#8 {@code PRIVATE KEY}).
+ * <p>
+ * Se configura con {@code app.jwt.algorithm} tanto en ms-auth como en los servicios.
+ */
+public enum JwtAlgorithm {
+
+    RS256("RSA", Jwts.SIG.RS256, "SHA256withRSA"),
+    ES256("EC", Jwts.SIG.ES256, "SHA256withECDSA"),
+    EdDSA("Ed25519", Jwts.SIG.EdDSA, "Ed25519");
+
+    private final String keyAlgorithm;
+    private final SignatureAlgorithm signature;
+    private final String jcaSignature;
+
+    JwtAlgorithm(String keyAlgorithm, SignatureAlgorithm signature, String jcaSignature) {
+        this.keyAlgorithm = keyAlgorithm;
+        this.signature = signature;
+        this.jcaSignature = jcaSignature;
+    }
+
+    /** Acepta el nombre JOSE sin distinguir mayúsculas; "Ed25519" se trata como EdDSA. */
+    public static JwtAlgorithm from(String name) {
+        String n = name == null ? "" : name.trim();
+        if (n.equalsIgnoreCase("Ed25519")) return EdDSA;
+        for (JwtAlgorithm a : values()) {
+            if (a.name().equalsIgnoreCase(n)) return a;
+        }
+        throw new IllegalArgumentException("Unsupported JWT algorithm: " + name);
+    }
+
+    public SignatureAlgorithm signature() {
+        return signature;
+    }
+
+    /** Nombre JCA de la firma, para firmar sin pasar por jjwt ({@code java.security.Signature}). */
+    public String jcaSignature() {
+        return jcaSignature;
+    }
+
+    public PublicKey readPublicKey(InputStream pem) throws IOException, GeneralSecurityException {
+        byte[] der = decodePem(pem, "PUBLIC KEY");
+        return KeyFactory.getInstance(keyAlgorithm).generatePublic(new X509EncodedKeySpec(der));
+    }
+
+    public PrivateKey readPrivateKey(InputStream pem) throws IOException, GeneralSecurityException {
+        byte[] der = decodePem(pem, "PRIVATE KEY");
+        return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(der));
+    }
+
+    private static byte[] decodePem(InputStream in, String type) throws IOException {
+        String pem = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        String base64 = pem.replace("-----BEGIN " + type + "-----", "")
+                .replace("-----END " + type + "-----", "")
+                .replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+}
@@ -0,0 +1,75 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import org.springframework.lang.Nullable;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Claves públicas de verificación indexadas por {@code kid}.
+ * <p>
+ * El mapa es una instantánea inmutable publicada mediante un campo {@code volatile}: la búsqueda
+ * en el camino de la petición es O(1) y sin locks, y un refresco sustituye la instantánea
+ * completa sin bloquear a las peticiones en curso.
+ */
+public class JwtKeySet extends LocatorAdapter<Key> {
+
+    /** Clave local (PEM) que se usa con tokens sin {@code kid}. Siempre forma parte del conjunto. */
+    @Nullable
+    private final PublicKey defaultKey;
+    @Nullable
+    private final String defaultKid;
+
+    private volatile Map<String, PublicKey> keys;
+    @Nullable
+    private volatile Runnable onUnknownKid;
+
+    public JwtKeySet(@Nullable PublicKey defaultKey) {
+        this.defaultKey = defaultKey;
+        this.defaultKid = defaultKey != null ? Jwks.thumbprint(defaultKey) : null;
+        this.keys = withDefault(Map.of());
+    }
+
+    /** Sustituye las claves remotas (p. ej. tras leer el JWKS); la clave local se conserva. */
+    public void replace(Map<String, PublicKey> remote) {
+        this.keys = withDefault(remote);
+    }
+
+    /** Callback no bloqueante para pedir un refresco cuando llega un {@code kid} desconocido. */
+    public void onUnknownKid(@Nullable Runnable callback) {
+        this.onUnknownKid = callback;
+    }
+
+    @Nullable
+    public PublicKey find(@Nullable String kid) {
+        if (kid == null) return defaultKey;
+        return keys.get(kid);
+    }
+
+    public Map<String, PublicKey> snapshot() {
+        return keys;
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        PublicKey key = find(kid);
+        if (key != null) return key;
+
+        Runnable refresh = onUnknownKid;
+        if (refresh != null) refresh.run();
+        throw new SignatureException("Unknown signing key id");
+    }
+
+    private Map<String, PublicKey> withDefault(Map<String, PublicKey> remote) {
+        if (defaultKey == null) return Map.copyOf(remote);
+        Map<String, PublicKey> merged = new HashMap<>(remote);
+        merged.putIfAbsent(defaultKid, defaultKey);
+        return Map.copyOf(merged);
+    }
+}
@@ -0,0 +1,168 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.StringUtils;
+
+import java.security.PublicKey;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Verificación de access tokens independiente del stack web.
+ * <p>
+ * El {@link JwtParser} se construye una sola vez (es inmutable y thread-safe), las authorities
+ * salen de la tabla de {@link PermissionBits} (claim {@code authz}) o se internan por conjunto de roles
+ * (claim {@code roles} de tokens anteriores) y, con caché, un token repetido solo cuesta un SHA-256.
+ * Con {@link TokenEpochs} se rechazan además los tokens emitidos antes de la última revocación
+ * del usuario, tanto en un fallo como en un acierto de caché.
+ */
+public class JwtTokenVerifier {
+
+    private final JwtParser parser;
+    private final RoleAuthorities roleAuthorities = new RoleAuthorities();
+    @Nullable
+    private final VerifiedTokenCache cache;
+    @Nullable
+    private final JwtVerificationMetrics metrics;
+    @Nullable
+    private final TokenEpochs epochs;
+
+    public JwtTokenVerifier(PublicKey publicKey, String issuer, @Nullable VerifiedTokenCache cache) {
+        this(Jwts.parser()
+                .requireIssuer(Objects.requireNonNull(issuer))
+                .verifyWith(Objects.requireNonNull(publicKey))
+                .build(), cache, null, null);
+    }
+
+    /** Variante con rotación de claves: la clave se elige por la cabecera {@code kid} del token. */
+    public JwtTokenVerifier(JwtKeySet keySet, String issuer, @Nullable VerifiedTokenCache cache) {
+        this(keySet, issuer, cache, null);
+    }
+
+    public JwtTokenVerifier(JwtKeySet keySet, String issuer, @Nullable VerifiedTokenCache cache,
+                            @Nullable JwtVerificationMetrics metrics) {
+        this(keySet, issuer, cache, metrics, null);
+    }
+
+    public JwtTokenVerifier(JwtKeySet keySet, String issuer, @Nullable VerifiedTokenCache cache,
+                            @Nullable JwtVerificationMetrics metrics, @Nullable TokenEpochs epochs) {
+        this(Jwts.parser()
+                .requireIssuer(Objects.requireNonNull(issuer))
+                .keyLocator(Objects.requireNonNull(keySet))
+                .build(), cache, metrics, epochs);
+    }
+
+    private JwtTokenVerifier(JwtParser parser, @Nullable VerifiedTokenCache cache, @Nullable JwtVerificationMetrics metrics,
+                             @Nullable TokenEpochs epochs) {
+        this.parser = parser;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.epochs = epochs;
+    }
+
+    /**
+     * Verifica el token que empieza en {@code offset} dentro de {@code source}
+     * (normalmente la cabecera {@code Authorization} sin recortar).
+     *
+     * @throws JwtVerificationException con el código de error a devolver en el 401
+     */
+    public VerifiedTokenCache.Entry verify(String source, int offset) {
+        if (metrics == null) {
+            VerifiedTokenCache.Entry hit = cached(source, offset);
+            return notRevoked(hit != null ? hit : verifyUncached(source, offset));
+        }
+
+        long start = System.nanoTime();
+        try {
+            VerifiedTokenCache.Entry hit = cached(source, offset);
+            if (hit != null) {
+                notRevoked(hit);
+                metrics.cacheHit(System.nanoTime() - start);
+                return hit;
+            }
+            VerifiedTokenCache.Entry verified = notRevoked(verifyUncached(source, offset));
+            metrics.verified(System.nanoTime() - start);
+            return verified;
+        } catch (JwtVerificationException e) {
+            metrics.failed(e.getCode(), System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    public VerifiedTokenCache.Entry verify(String token) {
+        return verify(token, 0);
+    }
+
+    @Nullable
+    private VerifiedTokenCache.Entry cached(String source, int offset) {
+        return cache != null ? cache.get(source, offset) : null;
+    }
+
+    private VerifiedTokenCache.Entry verifyUncached(String source, int offset) {
+        // Solo en un fallo de caché se materializa el token como String
+        String token = offset == 0 ? source : source.substring(offset);
+        Claims claims = parse(token);
+
+        String username = claims.getSubject();
+        if (!StringUtils.hasText(username)) {
+            throw new JwtVerificationException("INVALID_TOKEN_SUBJECT");
+        }
+
+        Date exp = claims.getExpiration();
+        Date iat = claims.getIssuedAt();
+        var verified = new VerifiedTokenCache.Entry(
+                username,
+                authorities(claims),
+                exp != null ? exp.getTime() : Long.MAX_VALUE,
+                claims.get("uid") instanceof Number uid ? uid.longValue() : VerifiedTokenCache.Entry.NO_UID,
+                // sin iat no se sabe si es anterior a una revocación: se trata como el más antiguo
+                iat != null ? iat.getTime() / 1000 : Long.MIN_VALUE);
+
+        // Sin exp no se cachea: la entrada no tendría caducidad natural
+        if (cache != null && exp != null) {
+            cache.put(token, verified);
+        }
+        return verified;
+    }
+
+    private List<GrantedAuthority> authorities(Claims claims) {
+        if (claims.get("authz") instanceof String authz) {
+            try {
+                return PermissionBits.authorities(authz);
+            } catch (IllegalArgumentException e) {
+                throw new JwtVerificationException("INVALID_TOKEN");
+            }
+        }
+        Object roles = claims.get("roles");
+        if (roles == null) return List.of();
+        // El claim viene del token: un tipo inesperado es un token inválido, no un error del servidor
+        if (!(roles instanceof List<?> list)) throw new JwtVerificationException("INVALID_TOKEN");
+        return roleAuthorities.map(list);
+    }
+
+    private VerifiedTokenCache.Entry notRevoked(VerifiedTokenCache.Entry entry) {
+        if (epochs != null && epochs.isRevoked(entry.uid(), entry.issuedAtSeconds())) {
+            throw new JwtVerificationException("TOKEN_REVOKED");
+        }
+        return entry;
+    }
+
+    private Claims parse(String token) {
+        try {
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (ExpiredJwtException e) {
+            throw new JwtVerificationException("TOKEN_EXPIRED");
+        } catch (SignatureException e) {
+            throw new JwtVerificationException("INVALID_SIGNATURE");
+        } catch (Exception e) {
+            throw new JwtVerificationException("INVALID_TOKEN");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.oscar.shared.security;
+
+/**
+ * Fallo de verificación de un access token. El mensaje es el código que se devuelve
+ * en el cuerpo del 401 ({@code TOKEN_EXPIRED}, {@code INVALID_SIGNATURE}, ...).
+ */
+public class JwtVerificationException extends RuntimeException {
+
+    public JwtVerificationException(String code) {
+        super(code);
+    }
+
+    public String getCode() {
+        return getMessage();
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,82 @@
+package com.oscar.shared.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de verificación de access tokens. Todos los meters se registran en el constructor,
+ * así que el camino de la petición solo incrementa referencias ya resueltas (sin búsquedas en el registro).
+ * <ul>
+ *   <li>{@code jwt.verification} (counter): un incremento por token, con {@code outcome} =
+ *       {@code verified}, {@code cached} o el código de error devuelto en el 401.</li>
+ *   <li>{@code jwt.verification.duration} (timer): latencia de verificación, con {@code cache} = {@code hit}/{@code miss}.</li>
+ * </ul>
+ * Todos llevan la etiqueta {@code service} ({@code spring.application.name}).
+ */
+public class JwtVerificationMetrics {
+
+    static final String COUNTER = "jwt.verification";
+    static final String TIMER = "jwt.verification.duration";
+
+    private final Counter verified;
+    private final Counter cached;
+    private final Counter tokenExpired;
+    private final Counter invalidSignature;
+    private final Counter invalidToken;
+    private final Counter invalidSubject;
+    private final Counter tokenRevoked;
+    private final Timer hitTimer;
+    private final Timer missTimer;
+
+    public JwtVerificationMetrics(MeterRegistry registry, String service) {
+        this.verified = counter(registry, service, "verified");
+        this.cached = counter(registry, service, "cached");
+        this.tokenExpired = counter(registry, service, "TOKEN_EXPIRED");
+        this.invalidSignature = counter(registry, service, "INVALID_SIGNATURE");
+        this.invalidToken = counter(registry, service, "INVALID_TOKEN");
+        this.invalidSubject = counter(registry, service, "INVALID_TOKEN_SUBJECT");
+        this.tokenRevoked = counter(registry, service, "TOKEN_REVOKED");
+        this.hitTimer = timer(registry, service, "hit");
+        this.missTimer = timer(registry, service, "miss");
+    }
+
+    void cacheHit(long nanos) {
+        cached.increment();
+        hitTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void verified(long nanos) {
+        verified.increment();
+        missTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void failed(String code, long nanos) {
+        switch (code) {
+            case "TOKEN_EXPIRED" -> tokenExpired.increment();
+            case "INVALID_SIGNATURE" -> invalidSignature.increment();
+            case "INVALID_TOKEN_SUBJECT" -> invalidSubject.increment();
+            case "TOKEN_REVOKED" -> tokenRevoked.increment();
+            default -> invalidToken.increment();
+        }
+        missTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Counter counter(MeterRegistry registry, String service, String outcome) {
+        return Counter.builder(COUNTER)
+                .description("Access tokens verified, by outcome")
+                .tag("service", service)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Timer timer(MeterRegistry registry, String service, String cache) {
+        return Timer.builder(TIMER)
+                .description("Access token verification latency")
+                .tag("service", service)
+                .tag("cache", cache)
+                .register(registry);
+    }
+}
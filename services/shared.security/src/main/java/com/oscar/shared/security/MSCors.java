@@ -0,0 +1,35 @@
+package com.oscar.shared.security;
+
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** CORS común a la variante servlet y a la reactiva; cada una lo registra en su propio {@code CorsConfigurationSource}. */
+final class MSCors {
+
+    static CorsConfiguration configuration(String allowedOriginsProp, String allowedMethodsProp, String allowedHeadersProp) {
+        CorsConfiguration cfg = new CorsConfiguration();
+
+        if (allowedOriginsProp != null && !allowedOriginsProp.isBlank()) {
+            cfg.setAllowedOrigins(Arrays.stream(allowedOriginsProp.split(",")).map(String::trim).toList());
+        } else {
+            cfg.setAllowedOriginPatterns(List.of(
+                    "http://localhost:*",
+                    "http://127.0.0.1:*",
+                    "http://192.168.*.*:*",
+                    "https://opsimulator.com",
+                    "https://www.opsimulator.com"
+            ));
+        }
+
+        cfg.setAllowedMethods(Arrays.stream(allowedMethodsProp.split(",")).map(String::trim).toList());
+        cfg.setAllowedHeaders(Arrays.stream(allowedHeadersProp.split(",")).map(String::trim).toList());
+        cfg.setExposedHeaders(List.of("Authorization", "Location"));
+        cfg.setAllowCredentials(false);
+        cfg.setMaxAge(3600L);
+        return cfg;
+    }
+
+    private MSCors() {}
+}
@@ -0,0 +1,48 @@
+package com.oscar.shared.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Autentica las llamadas entre servicios a {@code /internal/**} con un secreto compartido en la cabecera
+ * {@value #HEADER} ({@code security.internal-token}). Quien lo presenta recibe {@code ROLE_INTERNAL}, que es lo
+ * único que {@link MSSecurityConfig} acepta en esas rutas; sin secreto configurado no entra nadie.
+ */
+public class MSInternalTokenFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Internal-Token";
+    public static final String ROLE = "INTERNAL";
+
+    private final byte[] token;
+
+    public MSInternalTokenFilter(String token) {
+        this.token = token == null || token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        String presented = req.getHeader(HEADER);
+        if (token != null && presented != null
+                && MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8))) {
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    "internal", null, AuthorityUtils.createAuthorityList("ROLE_" + ROLE)));
+        }
+        chain.doFilter(req, res);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest req) {
+        return !req.getRequestURI().startsWith(req.getContextPath() + "/internal/");
+    }
+}
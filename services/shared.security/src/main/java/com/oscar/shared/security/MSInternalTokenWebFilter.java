@@ -0,0 +1,42 @@
+package com.oscar.shared.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Equivalente reactivo de {@link MSInternalTokenFilter}: el secreto de {@code security.internal-token} en la
+ * cabecera {@value MSInternalTokenFilter#HEADER} da {@code ROLE_INTERNAL}, lo único que
+ * {@link MSReactiveSecurityConfig} acepta en {@code /internal/**}. Sin secreto configurado no entra nadie.
+ */
+public class MSInternalTokenWebFilter implements WebFilter {
+
+    private final byte[] token;
+
+    public MSInternalTokenWebFilter(String token) {
+        this.token = token == null || token.isBlank() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (token == null
+                || !exchange.getRequest().getPath().pathWithinApplication().value().startsWith("/internal/")) {
+            return chain.filter(exchange);
+        }
+        String presented = exchange.getRequest().getHeaders().getFirst(MSInternalTokenFilter.HEADER);
+        if (presented == null || !MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8))) {
+            return chain.filter(exchange);
+        }
+        var authentication = new UsernamePasswordAuthenticationToken(
+                "internal", null, AuthorityUtils.createAuthorityList("ROLE_" + MSInternalTokenFilter.ROLE));
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+}
@@ -1,9 +1,5 @@
 package com.oscar.shared.security;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,22 +7,16 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.Nullable;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.security.PublicKey;
-import java.util.Collection;
-import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 public class MSJwtAuthFilter extends OncePerRequestFilter {
 
-    private final PublicKey publicKey;
-    private final String issuer;
+    private final JwtTokenVerifier verifier;
     private final String headerName;
     private final String prefix;
 
@@ -34,9 +24,20 @@ public class MSJwtAuthFilter extends OncePerRequestFilter {
         this(publicKey, issuer, "Authorization", "Bearer ");
     }
 
+    public MSJwtAuthFilter(PublicKey publicKey, String issuer, @Nullable VerifiedTokenCache cache) {
+        this(new JwtTokenVerifier(publicKey, issuer, cache));
+    }
+
     public MSJwtAuthFilter(PublicKey publicKey, String issuer, String headerName, String prefix) {
-        this.publicKey = Objects.requireNonNull(publicKey);
-        this.issuer = Objects.requireNonNull(issuer);
+        this(new JwtTokenVerifier(publicKey, issuer, null), headerName, prefix);
+    }
+
+    public MSJwtAuthFilter(JwtTokenVerifier verifier) {
+        this(verifier, "Authorization", "Bearer ");
+    }
+
+    public MSJwtAuthFilter(JwtTokenVerifier verifier, String headerName, String prefix) {
+        this.verifier = Objects.requireNonNull(verifier);
         this.headerName = headerName;
         this.prefix = prefix;
     }
@@ -47,53 +48,25 @@ public class MSJwtAuthFilter extends OncePerRequestFilter {
 
         final String auth = req.getHeader(headerName);
 
-        if (!StringUtils.hasText(auth) || !auth.startsWith(prefix)) {
+        // startsWith no reserva memoria: el token se lee directamente desde la cabecera, sin substring
+        if (auth == null || !auth.startsWith(prefix)) {
             chain.doFilter(req, res);
             return;
         }
 
-        final String token = auth.substring(prefix.length());
-
+        final VerifiedTokenCache.Entry verified;
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .requireIssuer(issuer)
-                    .setSigningKey(publicKey)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            String username = claims.getSubject();
-            if (!StringUtils.hasText(username)) {
-                unauthorized(res, "INVALID_TOKEN_SUBJECT");
-                return;
-            }
-
-            var authorities = mapRoles(claims.get("roles", List.class));
-            SecurityContextHolder.getContext().setAuthentication(
-                    new UsernamePasswordAuthenticationToken(username, null, authorities)
-            );
-
-            chain.doFilter(req, res);
-
-        } catch (ExpiredJwtException e) {
-            unauthorized(res, "TOKEN_EXPIRED");
-        } catch (SignatureException e) {
-            unauthorized(res, "INVALID_SIGNATURE");
-        } catch (Exception e) {
-            unauthorized(res, "INVALID_TOKEN");
+            verified = verifier.verify(auth, prefix.length());
+        } catch (JwtVerificationException e) {
+            unauthorized(res, e.getCode());
+            return;
         }
-    }
 
-    @SuppressWarnings("unchecked")
-    private Collection<SimpleGrantedAuthority> mapRoles(@Nullable List<?> rolesRaw) {
-        if (rolesRaw == null || rolesRaw.isEmpty()) return List.of();
-        return rolesRaw.stream()
-                .filter(Objects::nonNull)
-                .map(Object::toString)
-                .filter(StringUtils::hasText)
-                .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(verified.subject(), null, verified.authorities())
+        );
+
+        chain.doFilter(req, res);
     }
 
     private void unauthorized(HttpServletResponse res, String code) throws IOException {
@@ -0,0 +1,118 @@
+package com.oscar.shared.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.InputStream;
+import java.security.PublicKey;
+import java.time.Duration;
+
+/**
+ * Beans de verificación JWT independientes del stack web. Los importan tanto
+ * {@link MSSecurityConfig} (servlet) como {@link MSReactiveSecurityConfig} (WebFlux).
+ */
+@Configuration
+public class MSJwtConfig {
+
+    private final ResourceLoader resourceLoader;
+
+    public MSJwtConfig(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Value("${app.jwt.issuer}")
+    private String issuer;
+
+    @Value("${app.jwt.public-key-location:classpath:jwt/public.pem}")
+    private String publicKeyLocation;
+
+    // Algoritmo de la clave PEM local: RS256, ES256 o EdDSA (debe coincidir con ms-auth)
+    @Value("${app.jwt.algorithm:RS256}")
+    private String algorithm;
+
+    // Etiqueta "service" de las métricas de verificación
+    @Value("${spring.application.name:unknown}")
+    private String serviceName;
+
+    // Nº máximo de tokens verificados en caché (0 = desactivada)
+    @Value("${app.jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    // --- Beans overridables (cada MS puede proporcionar los suyos si quiere) ---
+
+    @Bean
+    @ConditionalOnMissingBean(PublicKey.class)
+    public PublicKey jwtPublicKey() throws Exception {
+        Resource res = resourceLoader.getResource(publicKeyLocation);
+        try (InputStream is = res.getInputStream()) {
+            return JwtAlgorithm.from(algorithm).readPublicKey(is);
+        }
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(VerifiedTokenCache.class)
+    @ConditionalOnExpression("${app.jwt.cache.max-entries:10000} > 0")
+    public VerifiedTokenCache verifiedTokenCache() {
+        return new VerifiedTokenCache(cacheMaxEntries);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(JwtKeySet.class)
+    public JwtKeySet jwtKeySet(PublicKey jwtPublicKey) {
+        return new JwtKeySet(jwtPublicKey);
+    }
+
+    // Solo si hay JWKS configurado; sin él el conjunto queda con la clave PEM local
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(JwksRefresher.class)
+    @ConditionalOnExpression("!'${app.jwt.jwks-uri:}'.isBlank()")
+    public JwksRefresher jwksRefresher(
+            JwtKeySet jwtKeySet,
+            @Value("${app.jwt.jwks-uri}") String jwksUri,
+            @Value("${app.jwt.jwks-refresh-seconds:300}") long refreshSeconds,
+            @Value("${app.jwt.jwks-min-refresh-gap-seconds:30}") long minGapSeconds
+    ) {
+        return new JwksRefresher(jwtKeySet, jwksUri, resourceLoader,
+                Duration.ofSeconds(refreshSeconds), Duration.ofSeconds(minGapSeconds));
+    }
+
+    // Revocación local de access tokens: solo si hay feed de epochs configurado
+    @Bean
+    @ConditionalOnMissingBean(TokenEpochs.class)
+    @ConditionalOnExpression("!'${app.jwt.revocation.feed-uri:}'.isBlank()")
+    public TokenEpochs tokenEpochs() {
+        return new TokenEpochs();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean(TokenEpochRefresher.class)
+    @ConditionalOnExpression("!'${app.jwt.revocation.feed-uri:}'.isBlank()")
+    public TokenEpochRefresher tokenEpochRefresher(
+            TokenEpochs tokenEpochs,
+            @Value("${app.jwt.revocation.feed-uri}") String feedUri,
+            @Value("${app.jwt.revocation.feed-token:}") String feedToken,
+            @Value("${app.jwt.revocation.refresh-seconds:5}") long refreshSeconds
+    ) {
+        return new TokenEpochRefresher(tokenEpochs, feedUri, feedToken, Duration.ofSeconds(refreshSeconds));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(JwtTokenVerifier.class)
+    public JwtTokenVerifier jwtTokenVerifier(JwtKeySet jwtKeySet,
+                                             ObjectProvider<VerifiedTokenCache> verifiedTokenCache,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             ObjectProvider<TokenEpochs> tokenEpochs) {
+        // Métricas solo si Actuator aporta un MeterRegistry (todos los MS lo tienen)
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        JwtVerificationMetrics metrics = registry != null ? new JwtVerificationMetrics(registry, serviceName) : null;
+        return new JwtTokenVerifier(jwtKeySet, issuer, verifiedTokenCache.getIfAvailable(), metrics,
+                tokenEpochs.getIfAvailable());
+    }
+}
@@ -0,0 +1,65 @@
+package com.oscar.shared.security;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Equivalente reactivo de {@link MSJwtAuthFilter}: mismo {@link JwtTokenVerifier}, mismos códigos de error.
+ * <p>
+ * La verificación se hace en el propio hilo del event loop: con la caché de tokens verificados
+ * el caso habitual es un SHA-256, y un fallo de caché es una única verificación de firma.
+ */
+public class MSJwtWebFilter implements WebFilter {
+
+    private final JwtTokenVerifier verifier;
+    private final String headerName;
+    private final String prefix;
+
+    public MSJwtWebFilter(JwtTokenVerifier verifier) {
+        this(verifier, "Authorization", "Bearer ");
+    }
+
+    public MSJwtWebFilter(JwtTokenVerifier verifier, String headerName, String prefix) {
+        this.verifier = Objects.requireNonNull(verifier);
+        this.headerName = headerName;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        final String auth = exchange.getRequest().getHeaders().getFirst(headerName);
+
+        if (auth == null || !auth.startsWith(prefix)) {
+            return chain.filter(exchange);
+        }
+
+        final VerifiedTokenCache.Entry verified;
+        try {
+            verified = verifier.verify(auth, prefix.length());
+        } catch (JwtVerificationException e) {
+            return unauthorized(exchange.getResponse(), e.getCode());
+        }
+
+        var authentication = new UsernamePasswordAuthenticationToken(verified.subject(), null, verified.authorities());
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+
+    private Mono<Void> unauthorized(ServerHttpResponse res, String code) {
+        res.setStatusCode(HttpStatus.UNAUTHORIZED);
+        res.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer body = res.bufferFactory().wrap(("{\"code\":\"" + code + "\"}").getBytes(StandardCharsets.UTF_8));
+        return res.writeWith(Mono.just(body));
+    }
+}
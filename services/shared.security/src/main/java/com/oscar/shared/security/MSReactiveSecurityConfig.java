@@ -0,0 +1,81 @@
+package com.oscar.shared.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.authorization.HttpStatusServerAccessDeniedHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+
+/**
+ * Variante WebFlux de {@link MSSecurityConfig}. Se autoconfigura en servicios reactivos (Netty)
+ * con las mismas propiedades {@code app.jwt.*}, {@code security.permit-all} y {@code cors.*}.
+ */
+@AutoConfiguration(before = ReactiveSecurityAutoConfiguration.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+@Import(MSJwtConfig.class)
+public class MSReactiveSecurityConfig {
+
+    @Value("${security.permit-all:/actuator/health,/actuator/info}")
+    private String[] permitAll;
+
+    @Bean
+    @ConditionalOnMissingBean(CorsConfigurationSource.class)
+    public CorsConfigurationSource reactiveCorsConfigurationSource(
+            @Value("${cors.allowed-origins:}") String allowedOriginsProp,
+            @Value("${cors.allowed-methods:GET,POST,PUT,DELETE,OPTIONS,PATCH}") String allowedMethodsProp,
+            @Value("${cors.allowed-headers:*}") String allowedHeadersProp
+    ) {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**",
+                MSCors.configuration(allowedOriginsProp, allowedMethodsProp, allowedHeadersProp));
+        return source;
+    }
+
+    // --- Cadena de seguridad común ---
+    @Bean
+    @ConditionalOnMissingBean(SecurityWebFilterChain.class)
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtTokenVerifier jwtTokenVerifier,
+                                                        @Value("${security.internal-token:}") String internalToken) {
+        // Los filtros no se exponen como bean: WebFlux registraría cualquier WebFilter también fuera de la cadena
+        MSJwtWebFilter jwtFilter = new MSJwtWebFilter(jwtTokenVerifier);
+        MSInternalTokenWebFilter internalFilter = new MSInternalTokenWebFilter(internalToken);
+        return http
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .cors(Customizer.withDefaults())
+            // sin sesión: el contexto solo vive durante la petición
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+            .authorizeExchange(auth -> auth
+                // Llamadas entre servicios: solo con el secreto compartido, aunque se incluyan en permit-all
+                .pathMatchers("/internal/**").hasRole(MSInternalTokenFilter.ROLE)
+                .pathMatchers(permitAll).permitAll()
+                .pathMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                .anyExchange().authenticated()
+            )
+            .exceptionHandling(ex -> ex
+                // sin token / token inválido -> 401
+                .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED))
+                // con token pero sin permisos -> 403
+                .accessDeniedHandler(new HttpStatusServerAccessDeniedHandler(HttpStatus.FORBIDDEN))
+            )
+            .addFilterBefore(internalFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+            .addFilterAt(jwtFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.oscar.shared.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Catálogo de permisos que ms-auth emite en el claim {@code authz}.
+ * <p>
+ * El {@code bit} es parte del formato del token: no se reutiliza ni se cambia el de un permiso existente.
+ * Un permiso nuevo toma el siguiente bit libre; los servicios que aún no lo conocen simplemente lo ignoran.
+ */
+public enum Permission {
+
+    USERS_ADMIN(0),
+    HR_READ(1),
+    HR_WRITE(2),
+    PRODUCTION_READ(3),
+    PRODUCTION_WRITE(4);
+
+    private final int bit;
+    private final GrantedAuthority authority;
+
+    Permission(int bit) {
+        this.bit = bit;
+        this.authority = new SimpleGrantedAuthority(name());
+    }
+
+    public int bit() { return bit; }
+
+    public long mask() { return 1L << bit; }
+
+    /** Authority compartida: las colecciones de {@link PermissionBits} reutilizan esta misma instancia. */
+    public GrantedAuthority authority() { return authority; }
+}
@@ -0,0 +1,109 @@
+package com.oscar.shared.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Formato del claim {@code authz}: el conjunto de {@link Permission} como bitset en bytes little-endian
+ * (bit {@code n} = byte {@code n/8}, bit {@code n%8}, igual que {@link java.util.BitSet#toByteArray()}),
+ * codificado en base64url sin padding. Con el catálogo actual ocupa 2 caracteres.
+ * <p>
+ * Las authorities de cada valor posible del bitset se calculan al cargar la clase en una tabla indexada
+ * por el propio valor, así que traducir un token es decodificar unos pocos caracteres y leer una posición:
+ * sin mapas, sin crear authorities y devolviendo siempre la misma lista inmutable.
+ */
+public final class PermissionBits {
+
+    /** Base64url de 64 bits: con más caracteres el claim no puede venir de ms-auth. */
+    private static final int MAX_CHARS = 11;
+
+    private static final long KNOWN;
+    private static final List<GrantedAuthority>[] TABLE;
+
+    static {
+        long known = 0;
+        int maxBit = -1;
+        for (Permission p : Permission.values()) {
+            if (p.bit() < 0 || p.bit() >= 16 || (known & p.mask()) != 0) {
+                throw new IllegalStateException("Invalid permission bit: " + p);
+            }
+            known |= p.mask();
+            maxBit = Math.max(maxBit, p.bit());
+        }
+        KNOWN = known;
+
+        @SuppressWarnings("unchecked")
+        List<GrantedAuthority>[] table = new List[1 << (maxBit + 1)];
+        for (int bits = 0; bits < table.length; bits++) {
+            if ((bits & ~known) != 0) continue;   // solo se indexa por valores enmascarados
+            List<GrantedAuthority> out = new ArrayList<>(Long.bitCount(bits));
+            for (Permission p : Permission.values()) {
+                if ((bits & p.mask()) != 0) out.add(p.authority());
+            }
+            table[bits] = List.copyOf(out);
+        }
+        TABLE = table;
+    }
+
+    private PermissionBits() {}
+
+    public static long of(Collection<Permission> permissions) {
+        long bits = 0;
+        for (Permission p : permissions) bits |= p.mask();
+        return bits;
+    }
+
+    public static String encode(long bits) {
+        int len = Math.max(1, (64 - Long.numberOfLeadingZeros(bits) + 7) / 8);
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) bytes[i] = (byte) (bits >>> (8 * i));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Decodifica el claim sin reservar memoria.
+     *
+     * @throws IllegalArgumentException si no es base64url válido o no cabe en 64 bits
+     */
+    public static long decode(CharSequence claim) {
+        int len = claim.length();
+        if (len == 0 || len > MAX_CHARS || len % 4 == 1) {
+            throw new IllegalArgumentException("Invalid authz claim");
+        }
+        long bits = 0;
+        int acc = 0, accBits = 0, shift = 0;
+        for (int i = 0; i < len; i++) {
+            acc = (acc << 6) | sextet(claim.charAt(i));
+            accBits += 6;
+            if (accBits >= 8) {
+                accBits -= 8;
+                if (shift < 64) bits |= ((long) ((acc >>> accBits) & 0xFF)) << shift;
+                shift += 8;
+                acc &= (1 << accBits) - 1;
+            }
+        }
+        return bits;
+    }
+
+    /** Authorities de un bitset; los bits que este servicio no conoce se ignoran. */
+    public static List<GrantedAuthority> authorities(long bits) {
+        return TABLE[(int) (bits & KNOWN)];
+    }
+
+    public static List<GrantedAuthority> authorities(CharSequence claim) {
+        return authorities(decode(claim));
+    }
+
+    private static int sextet(char c) {
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+        if (c >= '0' && c <= '9') return c - '0' + 52;
+        if (c == '-') return 62;
+        if (c == '_') return 63;
+        throw new IllegalArgumentException("Invalid authz claim");
+    }
+}
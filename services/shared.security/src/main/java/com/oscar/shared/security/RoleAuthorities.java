@@ -0,0 +1,57 @@
+package com.oscar.shared.security;
+
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Traduce el claim {@code roles} a authorities reutilizando una única colección inmutable
+ * por cada conjunto distinto de roles. En la práctica hay muy pocos conjuntos distintos,
+ * así que tras el primer token de cada tipo no se crea ningún {@link SimpleGrantedAuthority}.
+ */
+public class RoleAuthorities {
+
+    /** Límite de conjuntos internados: por encima se calculan sin guardar (protege frente a claims arbitrarios). */
+    private static final int MAX_INTERNED_SETS = 1024;
+
+    private final ConcurrentHashMap<List<?>, List<GrantedAuthority>> bySet = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, GrantedAuthority> byName = new ConcurrentHashMap<>();
+
+    public List<GrantedAuthority> map(@Nullable List<?> rolesRaw) {
+        if (rolesRaw == null || rolesRaw.isEmpty()) return List.of();
+
+        List<GrantedAuthority> interned = bySet.get(rolesRaw);
+        if (interned != null) return interned;
+
+        List<GrantedAuthority> built = build(rolesRaw);
+        if (bySet.size() < MAX_INTERNED_SETS && !rolesRaw.contains(null)) {
+            // La clave es una copia inmutable: la lista del claim no nos pertenece
+            List<GrantedAuthority> prev = bySet.putIfAbsent(List.copyOf(rolesRaw), built);
+            if (prev != null) return prev;
+        }
+        return built;
+    }
+
+    private List<GrantedAuthority> build(List<?> rolesRaw) {
+        List<GrantedAuthority> out = new ArrayList<>(rolesRaw.size());
+        for (Object raw : rolesRaw) {
+            if (raw == null) continue;
+            String r = raw.toString();
+            if (r.isBlank()) continue;
+            out.add(authority(r.startsWith("ROLE_") ? r : "ROLE_" + r));
+        }
+        return List.copyOf(out);
+    }
+
+    private GrantedAuthority authority(String name) {
+        if (byName.size() >= MAX_INTERNED_SETS) {
+            GrantedAuthority existing = byName.get(name);
+            return existing != null ? existing : new SimpleGrantedAuthority(name);
+        }
+        return byName.computeIfAbsent(name, SimpleGrantedAuthority::new);
+    }
+}
@@ -0,0 +1,99 @@
+package com.oscar.shared.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantiene {@link TokenEpochs} al día leyendo en segundo plano el feed incremental de ms-auth
+ * ({@code GET /internal/token-epochs?since=<cursor>}). Cada llamada solo trae los cambios
+ * posteriores al cursor anterior. El feed exige el secreto compartido de ms-auth, que se envía en
+ * {@link MSInternalTokenFilter#HEADER}.
+ * <p>
+ * Si el feed no responde se conservan los epochs ya conocidos y los tokens siguen siendo válidos
+ * hasta su {@code exp} (el mismo comportamiento que sin revocación local).
+ */
+public class TokenEpochRefresher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenEpochRefresher.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TokenEpochs epochs;
+    private final String feedUri;
+    private final String feedToken;
+    private final ScheduledExecutorService scheduler;
+    private final HttpClient http;
+
+    // Solo lo toca el hilo del scheduler
+    private long cursor;
+
+    /** @param feedToken secreto de {@code /internal/**} en ms-auth ({@code null} o vacío = sin cabecera) */
+    public TokenEpochRefresher(TokenEpochs epochs, String feedUri, String feedToken, Duration interval) {
+        if (!feedUri.startsWith("http://") && !feedUri.startsWith("https://")) {
+            throw new IllegalArgumentException("Token epoch feed must be an http(s) URI: " + feedUri);
+        }
+        this.epochs = epochs;
+        this.feedUri = feedUri;
+        this.feedToken = feedToken == null || feedToken.isBlank() ? null : feedToken;
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-epoch-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Primera carga en segundo plano: el arranque no depende de que ms-auth esté arriba
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    void refresh() {
+        try {
+            HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(feedUri + (feedUri.contains("?") ? "&" : "?") + "since=" + cursor))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("Accept", "application/json")
+                    .GET();
+            if (feedToken != null) req.header(MSInternalTokenFilter.HEADER, feedToken);
+            HttpResponse<byte[]> res = http.send(req.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (res.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + res.statusCode());
+            }
+            apply(MAPPER.readTree(res.body()), System.currentTimeMillis() / 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Token epoch refresh from {} failed, keeping {} known epochs: {}", feedUri, epochs.size(), e.toString());
+        }
+    }
+
+    /** {@code {"cursor":..., "retainSeconds":..., "epochs":[{"uid":..., "after":...}]}} */
+    void apply(JsonNode feed, long nowSeconds) {
+        JsonNode changes = feed.path("epochs");
+        long[] uids = new long[changes.size()];
+        long[] after = new long[changes.size()];
+        for (int i = 0; i < uids.length; i++) {
+            JsonNode c = changes.get(i);
+            uids[i] = c.path("uid").asLong();
+            after[i] = c.path("after").asLong();
+        }
+        epochs.merge(uids, after, nowSeconds - feed.path("retainSeconds").asLong(Long.MAX_VALUE / 2));
+        cursor = Math.max(cursor, feed.path("cursor").asLong(cursor));
+        if (uids.length > 0) {
+            log.debug("Token epochs: {} changes applied, {} tracked", uids.length, epochs.size());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
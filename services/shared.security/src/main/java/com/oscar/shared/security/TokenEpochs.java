@@ -0,0 +1,106 @@
+package com.oscar.shared.security;
+
+/**
+ * Réplica local de los epochs de revocación de ms-auth: usuario → "tokens válidos desde" (epoch s).
+ * <p>
+ * Tabla hash abierta de {@code long} a {@code long} (sin boxing) publicada por copy-on-write:
+ * la consulta en el hilo de la petición es una lectura volátil y unas pocas posiciones de array.
+ * Solo escribe el refresco en segundo plano, que reconstruye la tabla entera; con un feed limitado
+ * a la vida de un access token el mapa contiene únicamente las revocaciones recientes.
+ */
+public class TokenEpochs {
+
+    /** Sin epoch para el usuario: ningún {@code iat} es anterior. */
+    static final long NONE = Long.MIN_VALUE;
+
+    private volatile Table table = Table.EMPTY;
+
+    /** {@code true} si el token de {@code uid} emitido en {@code issuedAtSeconds} es anterior a su epoch. */
+    public boolean isRevoked(long uid, long issuedAtSeconds) {
+        return issuedAtSeconds < table.get(uid);
+    }
+
+    /** Epoch vigente del usuario o {@link #NONE}. */
+    public long epochOf(long uid) {
+        return table.get(uid);
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * Aplica un lote de cambios (se queda con el mayor epoch por usuario) y descarta los epochs
+     * anteriores a {@code pruneBeforeSeconds}: cualquier token al que afectaran ya ha caducado.
+     */
+    public synchronized void merge(long[] uids, long[] epochs, long pruneBeforeSeconds) {
+        if (uids.length != epochs.length) throw new IllegalArgumentException("uids and epochs differ in length");
+        Table current = table;
+        if (uids.length == 0 && current.minEpoch >= pruneBeforeSeconds) return;
+
+        Table next = new Table(current.size + uids.length);
+        for (int i = 0; i < current.keys.length; i++) {
+            if (current.used[i] && current.values[i] >= pruneBeforeSeconds) {
+                next.putMax(current.keys[i], current.values[i]);
+            }
+        }
+        for (int i = 0; i < uids.length; i++) {
+            if (epochs[i] >= pruneBeforeSeconds) {
+                next.putMax(uids[i], epochs[i]);
+            }
+        }
+        table = next;
+    }
+
+    /** Direccionamiento abierto con sondeo lineal; se rellena una vez y después es de solo lectura. */
+    private static final class Table {
+
+        static final Table EMPTY = new Table(0);
+
+        final long[] keys;
+        final long[] values;
+        final boolean[] used;
+        final int mask;
+        int size;
+        long minEpoch = Long.MAX_VALUE;
+
+        Table(int expected) {
+            // factor de carga <= 0.5: los sondeos se mantienen cortos
+            int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new long[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        long get(long key) {
+            for (int i = index(key); used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return NONE;
+        }
+
+        void putMax(long key, long value) {
+            int i = index(key);
+            while (used[i]) {
+                if (keys[i] == key) {
+                    values[i] = Math.max(values[i], value);
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+            size++;
+            minEpoch = Math.min(minEpoch, value);
+        }
+
+        private int index(long key) {
+            // hash de Fibonacci: ids consecutivos no forman racimos
+            long h = key * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 32;
+            return (int) h & mask;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.oscar.shared.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché acotada y concurrente de access tokens ya verificados.
+ * <p>
+ * La clave es el SHA-256 del token (nunca se guarda el token en claro) y cada entrada
+ * caduca en el {@code exp} del propio token, así que un acierto nunca alarga su validez.
+ */
+public class VerifiedTokenCache {
+
+    /**
+     * Resultado de una verificación correcta: principal + authorities + caducidad (epoch ms),
+     * más {@code uid} e {@code iat} (epoch s) para comprobar la revocación también en un acierto de caché.
+     */
+    public record Entry(String subject, Collection<? extends GrantedAuthority> authorities, long expiresAtMillis,
+                        long uid, long issuedAtSeconds) {
+
+        /** Token sin claim {@code uid}: no le afecta ningún epoch de revocación. */
+        public static final long NO_UID = Long.MIN_VALUE;
+
+        public Entry(String subject, Collection<? extends GrantedAuthority> authorities, long expiresAtMillis) {
+            this(subject, authorities, expiresAtMillis, NO_UID, Long.MAX_VALUE);
+        }
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+
+    /**
+     * Digest y buffers del hash de las claves, repartidos en franjas (el doble de CPUs) y no en
+     * {@code ThreadLocal}: con hilos virtuales (uno por petición) se crearían de nuevo en cada petición.
+     * Cada hilo usa siempre la misma franja y la bloquea lo que dura un SHA-256.
+     */
+    private static final Stripe[] STRIPES;
+    private static final int MASK;
+
+    static {
+        int n = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+        STRIPES = new Stripe[Math.min(n, 64)];
+        for (int i = 0; i < STRIPES.length; i++) STRIPES[i] = new Stripe();
+        MASK = STRIPES.length - 1;
+    }
+
+    private final ConcurrentHashMap<Key, Entry> entries;
+    private final int maxEntries;
+
+    public VerifiedTokenCache(int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be > 0");
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+    }
+
+    /** Devuelve la entrada vigente para el token o {@code null} si no hay (o ya caducó). */
+    public Entry get(String token) {
+        return get(token, 0);
+    }
+
+    /**
+     * Igual que {@link #get(String)} pero con el token empezando en {@code offset}
+     * (p. ej. la cabecera {@code Authorization} completa): evita el {@code substring}.
+     */
+    public Entry get(String source, int offset) {
+        Key key = Key.of(source, offset);
+        if (key == null) return null;
+        Entry e = entries.get(key);
+        if (e == null) return null;
+        if (e.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, e);
+            return null;
+        }
+        return e;
+    }
+
+    public void put(String token, Entry entry) {
+        long now = System.currentTimeMillis();
+        if (entry.isExpired(now)) return;
+        Key key = Key.of(token, 0);
+        if (key == null) return;
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(key, entry);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /** Primero saca los caducados; si sigue llena, descarta ~1/8 de las entradas para no desbordar el tamaño. */
+    private void evict(long now) {
+        entries.values().removeIf(e -> e.isExpired(now));
+        int excess = entries.size() - maxEntries + 1;
+        if (excess <= 0) return;
+        int toRemove = Math.max(excess, maxEntries / 8);
+        Iterator<Key> it = entries.keySet().iterator();
+        while (toRemove-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /** SHA-256 del token repartido en 4 longs: comparación barata y sin retener el token. */
+    private record Key(long a, long b, long c, long d) {
+
+        /** {@code null} si el token no es ASCII (nunca lo es uno válido): así no hay dos tokens con la misma clave. */
+        static Key of(String source, int offset) {
+            int h = System.identityHashCode(Thread.currentThread());
+            Stripe s = STRIPES[(h ^ (h >>> 16)) & MASK];
+            synchronized (s) {
+                return s.key(source, offset);
+            }
+        }
+
+        private static long readLong(byte[] b, int off) {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (b[off + i] & 0xFFL);
+            }
+            return v;
+        }
+    }
+
+    /** Estado de una franja; solo se toca con su monitor tomado. */
+    private static final class Stripe {
+        final MessageDigest sha256;
+        final byte[] digest = new byte[32];
+        byte[] ascii = new byte[1024];
+
+        Stripe() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Cannot compute SHA-256", e);
+            }
+        }
+
+        Key key(String source, int offset) {
+            int len = source.length() - offset;
+            if (ascii.length < len) ascii = new byte[Math.max(len, ascii.length * 2)];
+            // Un JWT compacto es ASCII (base64url + '.'), así que basta con copiar cada char
+            for (int i = 0; i < len; i++) {
+                char c = source.charAt(offset + i);
+                if (c > 0x7F) return null;
+                ascii[i] = (byte) c;
+            }
+            sha256.update(ascii, 0, len);
+            try {
+                sha256.digest(digest, 0, digest.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Cannot compute SHA-256", e);
+            }
+            return new Key(Key.readLong(digest, 0), Key.readLong(digest, 8),
+                    Key.readLong(digest, 16), Key.readLong(digest, 24));
+        }
+    }
+}
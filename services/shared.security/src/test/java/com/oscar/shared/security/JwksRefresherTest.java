@@ -0,0 +1,101 @@
+package com.oscar.shared.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwksRefresherTest {
+
+    static final KeyPair FIRST = JwtKeySetTest.rsa();
+    static final KeyPair SECOND = JwtKeySetTest.rsa();
+
+    @TempDir
+    Path dir;
+
+    final JwtKeySet keySet = new JwtKeySet(null);
+    JwksRefresher refresher;
+
+    @AfterEach
+    void tearDown() {
+        if (refresher != null) refresher.close();
+    }
+
+    @Test
+    void loads_the_document_on_construction() throws Exception {
+        Path jwks = write(Map.of("k1", FIRST));
+
+        refresher = refresher(jwks, Duration.ofHours(1));
+
+        assertEquals(Map.of("k1", FIRST.getPublic()), keySet.snapshot());
+    }
+
+    @Test
+    void an_unknown_kid_triggers_a_background_refresh() throws Exception {
+        Path jwks = write(Map.of("k1", FIRST));
+        refresher = refresher(jwks, Duration.ZERO);
+        write(Map.of("k1", FIRST, "k2", SECOND));
+
+        JwtTokenVerifier verifier = new JwtTokenVerifier(keySet, "ms-auth", null);
+        String token = Jwts.builder().header().keyId("k2").and()
+                .subject("alice").issuer("ms-auth").signWith(SECOND.getPrivate()).compact();
+        assertEquals("INVALID_SIGNATURE",
+                assertThrows(JwtVerificationException.class, () -> verifier.verify(token)).getCode());
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (keySet.find("k2") == null && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(SECOND.getPublic(), keySet.find("k2"));
+        assertEquals("alice", verifier.verify(token).subject());
+    }
+
+    @Test
+    void early_refreshes_are_throttled_by_min_gap() throws Exception {
+        Path jwks = write(Map.of("k1", FIRST));
+        refresher = refresher(jwks, Duration.ofHours(1));
+        write(Map.of("k2", SECOND));
+
+        for (int i = 0; i < 10; i++) refresher.requestRefresh();
+        Thread.sleep(100);
+
+        assertEquals(Map.of("k1", FIRST.getPublic()), keySet.snapshot());
+    }
+
+    @Test
+    void a_failed_refresh_keeps_the_previous_keys() throws Exception {
+        Path jwks = write(Map.of("k1", FIRST));
+        refresher = refresher(jwks, Duration.ofHours(1));
+
+        Files.writeString(jwks, "not json");
+        refresher.refresh();
+        assertEquals(Map.of("k1", FIRST.getPublic()), keySet.snapshot());
+
+        Files.delete(jwks);
+        refresher.refresh();
+        assertEquals(Map.of("k1", FIRST.getPublic()), keySet.snapshot());
+    }
+
+    private JwksRefresher refresher(Path jwks, Duration minGap) {
+        return new JwksRefresher(keySet, jwks.toUri().toString(), new DefaultResourceLoader(),
+                Duration.ofHours(1), minGap);
+    }
+
+    private Path write(Map<String, KeyPair> keys) throws Exception {
+        List<Map<String, Object>> jwks = keys.entrySet().stream()
+                .map(e -> Jwks.toJwk(e.getKey(), e.getValue().getPublic()))
+                .toList();
+        Path file = dir.resolve("jwks.json");
+        Files.write(file, new ObjectMapper().writeValueAsBytes(Map.of("keys", jwks)));
+        return file;
+    }
+}
@@ -0,0 +1,90 @@
+package com.oscar.shared.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwksTest {
+
+    /** Clave RSA del ejemplo de RFC 7638, sección 3.1. */
+    static final String RFC7638_N = "0vx7agoebGcQSuuPiLJXZptN9nndrQmbXEps2aiAFbWhM78LhWx4cbbfAAtVT86zwu1RK7aPFFxuhDR1L6tSoc_BJECPebWKRXjBZCiFV4n3oknjhMstn64tZ_2W-5JsGY4Hc5n9yBXArwl93lqt7_RN5w6Cf0h4QyQ5v-65YGjQR0_FDW2QvzqY368QQMicAtaSqzs8KJZgnYb9c7d0zgdAZHzu6qMQvRL5hajrn1n91CbOpbISD08qNLyrdkt-bFTWhAI4vMQFh6WeZu0fM4lFd2NcRwr3XPksINHaQ-G_xBniIqbw0Ls1jF44-csFCur-kEgU8awapJzKnqDKgw";
+    static final String RFC7638_THUMBPRINT = "NzbLsXh8uDCcd-6MNwXF4W_7noWXFZAfHkxZsRGC9Xs";
+
+    /** Clave Ed25519 del ejemplo de RFC 8037, apéndices A.2 y A.3. */
+    static final String RFC8037_X = "11qYAYKxCrfVS_7TyWQHOg7hcvPapiMlrwIaaPcHURo";
+    static final String RFC8037_THUMBPRINT = "kPrK_qmxVWaYVA9wwBF6Iuo3vVzz7TxHCTwXBygrS4k";
+
+    @Test
+    void rsa_thumbprint_matches_rfc_7638() throws Exception {
+        Base64.Decoder b64 = Base64.getUrlDecoder();
+        PublicKey key = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                new BigInteger(1, b64.decode(RFC7638_N)), new BigInteger(1, b64.decode("AQAB"))));
+
+        assertEquals(RFC7638_THUMBPRINT, Jwks.thumbprint(key));
+    }
+
+    @Test
+    void ed25519_thumbprint_matches_rfc_8037() throws Exception {
+        PublicKey key = Jwks.parse(json("""
+                {"keys":[{"kty":"OKP","crv":"Ed25519","kid":"k","x":"%s"}]}""".formatted(RFC8037_X))).get("k");
+
+        assertEquals(RFC8037_THUMBPRINT, Jwks.thumbprint(key));
+        assertEquals(RFC8037_X, Jwks.toJwk("k", key).get("x"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void jwk_round_trip_keeps_the_key_and_its_thumbprint(JwtAlgorithm algorithm) throws Exception {
+        // Varias claves EC: las coordenadas con ceros a la izquierda también deben ir a 32 bytes
+        int keys = algorithm == JwtAlgorithm.RS256 ? 1 : 32;
+        for (int i = 0; i < keys; i++) {
+            PublicKey key = JwtAlgorithmTest.keyPair(algorithm).getPublic();
+            String kid = Jwks.thumbprint(key);
+
+            Map<String, Object> jwk = Jwks.toJwk(kid, key);
+            PublicKey parsed = Jwks.parse(new ObjectMapper().writeValueAsBytes(Map.of("keys", List.of(jwk)))).get(kid);
+
+            assertEquals(algorithm.name(), jwk.get("alg"));
+            assertArrayEquals(key.getEncoded(), parsed.getEncoded());
+            assertEquals(kid, Jwks.thumbprint(parsed));
+        }
+    }
+
+    @Test
+    void parse_keeps_only_signing_keys_with_a_kid() throws Exception {
+        Map<String, PublicKey> keys = Jwks.parse(json("""
+                {"keys":[
+                  {"kty":"RSA","kid":"sig","use":"sig","n":"%1$s","e":"AQAB"},
+                  {"kty":"RSA","kid":"default","n":"%1$s","e":"AQAB"},
+                  {"kty":"RSA","kid":"enc","use":"enc","n":"%1$s","e":"AQAB"},
+                  {"kty":"RSA","use":"sig","n":"%1$s","e":"AQAB"},
+                  {"kty":"EC","kid":"p384","crv":"P-384","x":"AA","y":"AA"},
+                  {"kty":"oct","kid":"hmac","k":"AA"}
+                ]}""".formatted(RFC7638_N)));
+
+        assertEquals(Set.of("sig", "default"), keys.keySet());
+        assertEquals(RFC7638_THUMBPRINT, Jwks.thumbprint(keys.get("sig")));
+    }
+
+    @Test
+    void a_document_without_keys_is_empty() throws Exception {
+        assertTrue(Jwks.parse(json("{}")).isEmpty());
+    }
+
+    static byte[] json(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAlgorithmTest {
+
+    @Test
+    void names_are_case_insensitive_and_ed25519_means_eddsa() {
+        assertEquals(JwtAlgorithm.RS256, JwtAlgorithm.from("rs256"));
+        assertEquals(JwtAlgorithm.ES256, JwtAlgorithm.from(" ES256 "));
+        assertEquals(JwtAlgorithm.EdDSA, JwtAlgorithm.from("EDDSA"));
+        assertEquals(JwtAlgorithm.EdDSA, JwtAlgorithm.from("Ed25519"));
+        assertThrows(IllegalArgumentException.class, () -> JwtAlgorithm.from("HS256"));
+        assertThrows(IllegalArgumentException.class, () -> JwtAlgorithm.from(null));
+    }
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void pem_keys_sign_and_verify_through_the_key_set(JwtAlgorithm algorithm) throws Exception {
+        KeyPair pair = keyPair(algorithm);
+        PublicKey publicKey = algorithm.readPublicKey(pem("PUBLIC KEY", pair.getPublic().getEncoded()));
+        PrivateKey privateKey = algorithm.readPrivateKey(pem("PRIVATE KEY", pair.getPrivate().getEncoded()));
+
+        String kid = Jwks.thumbprint(publicKey);
+        JwtKeySet keySet = new JwtKeySet(null);
+        keySet.replace(Map.of(kid, publicKey));
+        JwtTokenVerifier verifier = new JwtTokenVerifier(keySet, "ms-auth", null);
+
+        String token = Jwts.builder().header().keyId(kid).and()
+                .subject("alice").issuer("ms-auth").signWith(privateKey, algorithm.signature()).compact();
+        assertEquals("alice", verifier.verify(token).subject());
+
+        // Firmado con otra clave del mismo tipo bajo el mismo kid
+        KeyPair other = keyPair(algorithm);
+        String forged = Jwts.builder().header().keyId(kid).and()
+                .subject("mallory").issuer("ms-auth").signWith(other.getPrivate(), algorithm.signature()).compact();
+        assertEquals("INVALID_SIGNATURE",
+                assertThrows(JwtVerificationException.class, () -> verifier.verify(forged)).getCode());
+    }
+
+    static KeyPair keyPair(JwtAlgorithm algorithm) throws GeneralSecurityException {
+        return switch (algorithm) {
+            case RS256 -> JwtKeySetTest.rsa();
+            case ES256 -> {
+                KeyPairGenerator gen = KeyPairGenerator.getInstance("EC");
+                gen.initialize(new ECGenParameterSpec("secp256r1"));
+                yield gen.generateKeyPair();
+            }
+            case EdDSA -> KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        };
+    }
+
+    private static ByteArrayInputStream pem(String type, byte[] der) {
+        String pem = "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+        return new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,72 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeySetTest {
+
+    static final KeyPair LOCAL = rsa();
+    static final KeyPair REMOTE = rsa();
+
+    final JwtKeySet keySet = new JwtKeySet(LOCAL.getPublic());
+
+    @Test
+    void the_local_key_is_found_without_kid_and_by_its_thumbprint() {
+        assertSame(LOCAL.getPublic(), keySet.find(null));
+        assertSame(LOCAL.getPublic(), keySet.find(Jwks.thumbprint(LOCAL.getPublic())));
+        assertNull(keySet.find("remote"));
+    }
+
+    @Test
+    void replacing_the_remote_keys_keeps_the_local_one() {
+        keySet.replace(Map.of("remote", REMOTE.getPublic()));
+        assertSame(REMOTE.getPublic(), keySet.find("remote"));
+
+        keySet.replace(Map.of());
+        assertNull(keySet.find("remote"));
+        assertEquals(Map.of(Jwks.thumbprint(LOCAL.getPublic()), LOCAL.getPublic()), keySet.snapshot());
+    }
+
+    @Test
+    void an_unknown_kid_requests_a_refresh_and_fails_as_invalid_signature() {
+        AtomicInteger refreshes = new AtomicInteger();
+        keySet.onUnknownKid(refreshes::incrementAndGet);
+        JwtTokenVerifier verifier = new JwtTokenVerifier(keySet, "ms-auth", null);
+        String token = Jwts.builder().header().keyId("remote").and()
+                .subject("alice").issuer("ms-auth").signWith(REMOTE.getPrivate()).compact();
+
+        JwtVerificationException ex = assertThrows(JwtVerificationException.class, () -> verifier.verify(token));
+        assertEquals("INVALID_SIGNATURE", ex.getCode());
+        assertEquals(1, refreshes.get());
+
+        keySet.replace(Map.of("remote", REMOTE.getPublic()));
+        assertEquals("alice", verifier.verify(token).subject());
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    void tokens_without_kid_use_the_local_key() {
+        JwtTokenVerifier verifier = new JwtTokenVerifier(keySet, "ms-auth", null);
+        String token = Jwts.builder().subject("alice").issuer("ms-auth").signWith(LOCAL.getPrivate()).compact();
+
+        assertEquals("alice", verifier.verify(token).subject());
+    }
+
+    static KeyPair rsa() {
+        try {
+            KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+            gen.initialize(2048);
+            return gen.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenVerifierTest {
+
+    static final String ISSUER = "ms-auth";
+    static final KeyPair KEYS = rsa();
+
+    final VerifiedTokenCache cache = new VerifiedTokenCache(16);
+    final JwtTokenVerifier verifier = new JwtTokenVerifier(KEYS.getPublic(), ISSUER, cache);
+
+    @Test
+    void verifies_subject_expiry_and_role_authorities() {
+        Instant exp = Instant.now().plus(Duration.ofMinutes(5));
+        String token = token().expiration(Date.from(exp)).claim("roles", List.of("USER", "ROLE_ADMIN")).compact();
+
+        VerifiedTokenCache.Entry entry = verifier.verify(token);
+
+        assertEquals("alice", entry.subject());
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), names(entry));
+        assertEquals(exp.getEpochSecond() * 1000, entry.expiresAtMillis());
+        assertEquals(VerifiedTokenCache.Entry.NO_UID, entry.uid());
+    }
+
+    @Test
+    void authz_claim_takes_precedence_over_roles() {
+        String authz = PermissionBits.encode(PermissionBits.of(List.of(Permission.USERS_ADMIN, Permission.HR_READ)));
+        String token = token().claim("authz", authz).claim("roles", List.of("USER")).claim("uid", 42).compact();
+
+        VerifiedTokenCache.Entry entry = verifier.verify(token);
+
+        assertEquals(Set.of("USERS_ADMIN", "HR_READ"), names(entry));
+        assertEquals(42, entry.uid());
+    }
+
+    @Test
+    void a_repeated_token_is_served_from_the_cache() {
+        String token = token().compact();
+
+        VerifiedTokenCache.Entry first = verifier.verify("Bearer " + token, "Bearer ".length());
+
+        assertEquals(1, cache.size());
+        assertSame(first, verifier.verify("Bearer " + token, "Bearer ".length()));
+        assertSame(first, verifier.verify(token));
+    }
+
+    @Test
+    void tokens_issued_before_the_users_epoch_are_revoked_even_when_cached() {
+        TokenEpochs epochs = new TokenEpochs();
+        JwtKeySet keySet = new JwtKeySet(KEYS.getPublic());
+        JwtTokenVerifier revoking = new JwtTokenVerifier(keySet, ISSUER, cache, null, epochs);
+        Date iat = Date.from(Instant.now().minusSeconds(30));
+        String token = token().issuedAt(iat).claim("uid", 42).compact();
+        String noUid = token().issuedAt(iat).compact();
+        revoking.verify(token);
+        assertEquals(1, cache.size());
+
+        epochs.merge(new long[]{42}, new long[]{iat.getTime() / 1000 + 1}, 0);
+
+        JwtVerificationException ex = assertThrows(JwtVerificationException.class, () -> revoking.verify(token));
+        assertEquals("TOKEN_REVOKED", ex.getCode());
+        assertEquals("alice", revoking.verify(noUid).subject());
+        assertEquals("alice", revoking.verify(token().claim("uid", 42).compact()).subject());
+    }
+
+    @Test
+    void malformed_claims_are_invalid_tokens() {
+        assertCode("INVALID_TOKEN", token().claim("roles", "ADMIN").compact());
+        assertCode("INVALID_TOKEN", token().claim("roles", Map.of("name", "ADMIN")).compact());
+        assertCode("INVALID_TOKEN", token().claim("authz", "!!").compact());
+        assertCode("INVALID_TOKEN_SUBJECT", token().subject(null).compact());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rejects_expired_foreign_and_garbled_tokens() {
+        assertCode("TOKEN_EXPIRED", token().expiration(Date.from(Instant.now().minusSeconds(60))).compact());
+        assertCode("INVALID_SIGNATURE", token().signWith(rsa().getPrivate()).compact());
+        assertCode("INVALID_TOKEN", token().issuer("someone-else").compact());
+        assertCode("INVALID_TOKEN", "not-a-jwt");
+    }
+
+    private void assertCode(String code, String token) {
+        JwtVerificationException ex = assertThrows(JwtVerificationException.class, () -> verifier.verify(token));
+        assertEquals(code, ex.getCode());
+    }
+
+    private static JwtBuilder token() {
+        return Jwts.builder()
+                .subject("alice")
+                .issuer(ISSUER)
+                .issuedAt(new Date())
+                .expiration(Date.from(Instant.now().plus(Duration.ofMinutes(5))))
+                .signWith(KEYS.getPrivate());
+    }
+
+    private static Set<String> names(VerifiedTokenCache.Entry entry) {
+        Set<String> names = new HashSet<>();
+        for (GrantedAuthority a : entry.authorities()) names.add(a.getAuthority());
+        return names;
+    }
+
+    static KeyPair rsa() {
+        try {
+            KeyPairGenerator gen = KeyPairGenerator.getInstance("RSA");
+            gen.initialize(2048);
+            return gen.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtVerificationMetricsTest {
+
+    static final KeyPair KEYS = JwtKeySetTest.rsa();
+
+    final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    final JwtTokenVerifier verifier = new JwtTokenVerifier(new JwtKeySet(KEYS.getPublic()), "ms-auth",
+            new VerifiedTokenCache(16), new JwtVerificationMetrics(registry, "ms-hr"));
+
+    @Test
+    void all_meters_are_registered_up_front() {
+        assertEquals(7, registry.find(JwtVerificationMetrics.COUNTER).tag("service", "ms-hr").counters().size());
+        assertEquals(2, registry.find(JwtVerificationMetrics.TIMER).tag("service", "ms-hr").timers().size());
+    }
+
+    @Test
+    void counts_each_verification_by_outcome_and_times_it_by_cache_result() {
+        String token = token().expiration(Date.from(Instant.now().plusSeconds(300))).compact();
+        verifier.verify(token);
+        verifier.verify(token);
+        verifier.verify(token);
+        reject(token().expiration(Date.from(Instant.now().minusSeconds(60))).compact());
+        reject(Jwts.builder().subject("alice").issuer("ms-auth").signWith(JwtKeySetTest.rsa().getPrivate()).compact());
+        reject(token().subject(null).compact());
+        reject("garbage");
+
+        assertEquals(1, count("verified"));
+        assertEquals(2, count("cached"));
+        assertEquals(1, count("TOKEN_EXPIRED"));
+        assertEquals(1, count("INVALID_SIGNATURE"));
+        assertEquals(1, count("INVALID_TOKEN_SUBJECT"));
+        assertEquals(1, count("INVALID_TOKEN"));
+        assertEquals(0, count("TOKEN_REVOKED"));
+        assertEquals(2, timer("hit"));
+        assertEquals(5, timer("miss"));
+    }
+
+    private void reject(String token) {
+        assertThrows(JwtVerificationException.class, () -> verifier.verify(token));
+    }
+
+    private double count(String outcome) {
+        return registry.get(JwtVerificationMetrics.COUNTER).tag("service", "ms-hr").tag("outcome", outcome)
+                .counter().count();
+    }
+
+    private long timer(String cache) {
+        return registry.get(JwtVerificationMetrics.TIMER).tag("service", "ms-hr").tag("cache", cache)
+                .timer().count();
+    }
+
+    private static JwtBuilder token() {
+        return Jwts.builder().subject("alice").issuer("ms-auth").signWith(KEYS.getPrivate());
+    }
+}
@@ -0,0 +1,56 @@
+package com.oscar.shared.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MSInternalTokenFilterTest {
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void the_shared_secret_grants_the_internal_role() throws Exception {
+        Authentication auth = filter("s3cret", "/internal/token-epochs", "s3cret");
+
+        assertNotNull(auth);
+        assertEquals("ROLE_" + MSInternalTokenFilter.ROLE, auth.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void a_wrong_or_missing_secret_grants_nothing() throws Exception {
+        assertNull(filter("s3cret", "/internal/token-epochs", "guess"));
+        assertNull(filter("s3cret", "/internal/token-epochs", null));
+    }
+
+    @Test
+    void without_a_configured_secret_nobody_is_internal() throws Exception {
+        assertNull(filter(null, "/internal/token-epochs", ""));
+        assertNull(filter(" ", "/internal/token-epochs", " "));
+    }
+
+    @Test
+    void only_internal_paths_are_filtered() throws Exception {
+        assertNull(filter("s3cret", "/api/items", "s3cret"));
+    }
+
+    private static Authentication filter(String configured, String uri, String presented) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest req = new MockHttpServletRequest("GET", uri);
+        if (presented != null) req.addHeader(MSInternalTokenFilter.HEADER, presented);
+        MockFilterChain chain = new MockFilterChain();
+
+        new MSInternalTokenFilter(configured).doFilter(req, new MockHttpServletResponse(), chain);
+
+        assertSame(req, chain.getRequest());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
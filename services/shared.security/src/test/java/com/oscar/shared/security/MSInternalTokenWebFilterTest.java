@@ -0,0 +1,59 @@
+package com.oscar.shared.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MSInternalTokenWebFilterTest {
+
+    @Test
+    void the_shared_secret_grants_the_internal_role() {
+        Authentication auth = filter("s3cret", "/internal/token-epochs", "s3cret");
+
+        assertNotNull(auth);
+        assertEquals("ROLE_" + MSInternalTokenFilter.ROLE, auth.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void a_wrong_or_missing_secret_grants_nothing() {
+        assertNull(filter("s3cret", "/internal/token-epochs", "guess"));
+        assertNull(filter("s3cret", "/internal/token-epochs", null));
+    }
+
+    @Test
+    void without_a_configured_secret_nobody_is_internal() {
+        assertNull(filter(null, "/internal/token-epochs", ""));
+        assertNull(filter(" ", "/internal/token-epochs", " "));
+    }
+
+    @Test
+    void only_internal_paths_are_filtered() {
+        assertNull(filter("s3cret", "/api/items", "s3cret"));
+    }
+
+    private static Authentication filter(String configured, String uri, String presented) {
+        MockServerHttpRequest.BaseBuilder<?> req = MockServerHttpRequest.get(uri);
+        if (presented != null) req.header(MSInternalTokenFilter.HEADER, presented);
+        AtomicBoolean called = new AtomicBoolean();
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+
+        new MSInternalTokenWebFilter(configured).filter(MockServerWebExchange.from(req), exchange -> {
+            called.set(true);
+            return ReactiveSecurityContextHolder.getContext()
+                    .map(SecurityContext::getAuthentication)
+                    .doOnNext(seen::set)
+                    .then();
+        }).block();
+
+        assertTrue(called.get());
+        return seen.get();
+    }
+}
@@ -0,0 +1,92 @@
+package com.oscar.shared.security;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.security.KeyPair;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MSJwtWebFilterTest {
+
+    static final KeyPair KEYS = JwtKeySetTest.rsa();
+
+    final MSJwtWebFilter filter = new MSJwtWebFilter(new JwtTokenVerifier(KEYS.getPublic(), "ms-auth", null));
+    final AtomicBoolean called = new AtomicBoolean();
+    final AtomicReference<Authentication> seen = new AtomicReference<>();
+    final WebFilterChain chain = exchange -> {
+        called.set(true);
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .doOnNext(seen::set)
+                .then();
+    };
+
+    @Test
+    void a_valid_token_authenticates_the_rest_of_the_chain() {
+        String token = Jwts.builder().subject("alice").issuer("ms-auth").claim("roles", List.of("USER"))
+                .signWith(KEYS.getPrivate()).compact();
+        MockServerWebExchange exchange = exchange("Bearer " + token);
+
+        filter.filter(exchange, chain).block();
+
+        assertTrue(called.get());
+        assertEquals("alice", seen.get().getName());
+        assertEquals("ROLE_USER", seen.get().getAuthorities().iterator().next().getAuthority());
+        assertNull(exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void requests_without_a_bearer_token_pass_through_unauthenticated() {
+        filter.filter(exchange(null), chain).block();
+        assertTrue(called.get());
+        assertNull(seen.get());
+
+        called.set(false);
+        filter.filter(exchange("Basic dXNlcjpwYXNz"), chain).block();
+        assertTrue(called.get());
+        assertNull(seen.get());
+    }
+
+    @Test
+    void an_invalid_token_is_answered_with_401_and_its_code() {
+        String expired = Jwts.builder().subject("alice").issuer("ms-auth")
+                .expiration(Date.from(Instant.now().minusSeconds(60))).signWith(KEYS.getPrivate()).compact();
+
+        assertUnauthorized("Bearer " + expired, "TOKEN_EXPIRED");
+        assertUnauthorized("Bearer " + Jwts.builder().subject("alice").issuer("ms-auth")
+                .signWith(JwtKeySetTest.rsa().getPrivate()).compact(), "INVALID_SIGNATURE");
+        assertUnauthorized("Bearer garbage", "INVALID_TOKEN");
+    }
+
+    private void assertUnauthorized(String authorization, String code) {
+        MockServerWebExchange exchange = exchange(authorization);
+
+        filter.filter(exchange, chain).block();
+
+        assertFalse(called.get());
+        assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, exchange.getResponse().getHeaders().getContentType());
+        assertEquals("{\"code\":\"" + code + "\"}", exchange.getResponse().getBodyAsString().block());
+    }
+
+    private static MockServerWebExchange exchange(String authorization) {
+        MockServerHttpRequest.BaseBuilder<?> req = MockServerHttpRequest.get("/api/items");
+        if (authorization != null) req.header("Authorization", authorization);
+        return MockServerWebExchange.from(req);
+    }
+}
@@ -0,0 +1,33 @@
+package com.oscar.shared.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenEpochRefresherTest {
+
+    final TokenEpochs epochs = new TokenEpochs();
+
+    @Test
+    void applies_the_feed_and_prunes_by_its_retention() throws Exception {
+        // Puerto sin servicio: el refresco programado falla y solo se prueba apply
+        try (TokenEpochRefresher refresher = new TokenEpochRefresher(epochs, "http://127.0.0.1:9/internal/token-epochs",
+                null, Duration.ofHours(1))) {
+            refresher.apply(new ObjectMapper().readTree("""
+                    {"cursor":5,"retainSeconds":900,"epochs":[{"uid":1,"after":9500},{"uid":2,"after":8000}]}"""),
+                    10_000);
+
+            assertEquals(9_500, epochs.epochOf(1));
+            assertEquals(TokenEpochs.NONE, epochs.epochOf(2));
+        }
+    }
+
+    @Test
+    void only_http_feeds_are_accepted() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TokenEpochRefresher(epochs, "file:/tmp/epochs.json", null, Duration.ofMinutes(1)));
+    }
+}
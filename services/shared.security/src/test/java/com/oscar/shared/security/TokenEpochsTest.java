@@ -0,0 +1,71 @@
+package com.oscar.shared.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenEpochsTest {
+
+    final TokenEpochs epochs = new TokenEpochs();
+
+    @Test
+    void an_unknown_user_has_no_epoch() {
+        assertEquals(TokenEpochs.NONE, epochs.epochOf(1));
+        assertFalse(epochs.isRevoked(1, Long.MIN_VALUE + 1));
+        assertEquals(0, epochs.size());
+    }
+
+    @Test
+    void tokens_issued_before_the_epoch_are_revoked() {
+        epochs.merge(new long[]{7}, new long[]{1_000}, 0);
+
+        assertTrue(epochs.isRevoked(7, 999));
+        assertFalse(epochs.isRevoked(7, 1_000));
+        assertFalse(epochs.isRevoked(8, 999));
+    }
+
+    @Test
+    void merge_keeps_the_latest_epoch_per_user() {
+        epochs.merge(new long[]{7, 7, 8}, new long[]{1_000, 900, 500}, 0);
+        epochs.merge(new long[]{7, 8}, new long[]{800, 600}, 0);
+
+        assertEquals(1_000, epochs.epochOf(7));
+        assertEquals(600, epochs.epochOf(8));
+        assertEquals(2, epochs.size());
+    }
+
+    @Test
+    void merge_prunes_epochs_older_than_any_live_token() {
+        epochs.merge(new long[]{1, 2}, new long[]{100, 500}, 0);
+        epochs.merge(new long[]{3, 4}, new long[]{200, 600}, 300);
+
+        assertEquals(TokenEpochs.NONE, epochs.epochOf(1));
+        assertEquals(500, epochs.epochOf(2));
+        assertEquals(TokenEpochs.NONE, epochs.epochOf(3));
+        assertEquals(600, epochs.epochOf(4));
+        assertEquals(2, epochs.size());
+    }
+
+    @Test
+    void the_table_grows_with_every_batch() {
+        for (int batch = 0; batch < 50; batch++) {
+            long[] uids = new long[200];
+            long[] after = new long[200];
+            for (int i = 0; i < uids.length; i++) {
+                uids[i] = batch * 200L + i;
+                after[i] = 1_000 + uids[i];
+            }
+            epochs.merge(uids, after, 0);
+        }
+
+        assertEquals(10_000, epochs.size());
+        for (long uid = 0; uid < 10_000; uid++) assertEquals(1_000 + uid, epochs.epochOf(uid));
+        assertEquals(TokenEpochs.NONE, epochs.epochOf(10_000));
+        assertEquals(TokenEpochs.NONE, epochs.epochOf(-1));
+    }
+
+    @Test
+    void batches_must_pair_each_user_with_an_epoch() {
+        assertThrows(IllegalArgumentException.class, () -> epochs.merge(new long[]{1, 2}, new long[]{1}, 0));
+    }
+}
@@ -0,0 +1,77 @@
+package com.oscar.shared.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    final VerifiedTokenCache cache = new VerifiedTokenCache(8);
+
+    @Test
+    void returns_the_entry_of_the_same_token_only() {
+        VerifiedTokenCache.Entry entry = entry("alice", 60_000);
+        cache.put("a.b.c", entry);
+
+        assertSame(entry, cache.get("a.b.c"));
+        assertNull(cache.get("a.b.d"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void finds_the_token_inside_the_authorization_header() {
+        VerifiedTokenCache.Entry entry = entry("alice", 60_000);
+        cache.put("a.b.c", entry);
+
+        assertSame(entry, cache.get("Bearer a.b.c", "Bearer ".length()));
+        assertNull(cache.get("Bearer a.b.c", 0));
+    }
+
+    @Test
+    void an_entry_is_not_served_after_the_token_expires() throws InterruptedException {
+        cache.put("expired", entry("alice", -1));
+        assertEquals(0, cache.size());
+
+        cache.put("short", entry("bob", 30));
+        assertNotNull(cache.get("short"));
+        Thread.sleep(60);
+        assertNull(cache.get("short"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void a_full_cache_drops_expired_entries_first() throws InterruptedException {
+        for (int i = 0; i < 7; i++) cache.put("short" + i, entry("u" + i, 30));
+        cache.put("long", entry("alice", 60_000));
+        Thread.sleep(60);
+
+        cache.put("new", entry("bob", 60_000));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("long"));
+        assertNotNull(cache.get("new"));
+    }
+
+    @Test
+    void a_full_cache_of_live_entries_stays_within_its_bound() {
+        for (int i = 0; i < 100; i++) {
+            cache.put("token" + i, entry("u" + i, 60_000));
+            assertTrue(cache.size() <= 8);
+        }
+        assertNotNull(cache.get("token99"));
+    }
+
+    @Test
+    void non_ascii_tokens_are_never_cached() {
+        cache.put("tokén", entry("alice", 60_000));
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("tokén"));
+    }
+
+    private static VerifiedTokenCache.Entry entry(String subject, long ttlMillis) {
+        return new VerifiedTokenCache.Entry(subject, AuthorityUtils.createAuthorityList("ROLE_USER"),
+                System.currentTimeMillis() + ttlMillis);
+    }
+}